@@ -0,0 +1,48 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic fixtures shared by the benchmarks and harnesses.
+ */
+public final class BenchmarkData {
+    
+    private static final String[] NAMES = {
+            "Aspirin 81mg", "Metformin 500mg", "Lisinopril 10mg", "Vitamin D3 1000IU", "Omega-3 Fish Oil",
+            "Calcium Carbonate", "Atorvastatin 20mg", "Levothyroxine 50mcg", "Amlodipine 5mg", "Omeprazole 20mg"
+    };
+    
+    private BenchmarkData() {}
+    
+    public static User user(long id) {
+        User user = new User("Benchmark User " + id, "bench-" + id + "@example.com", "{noop}password");
+        user.setId(id);
+        user.getDefaultProfile().setId(id);
+        return user;
+    }
+    
+    public static Medicine medicine(User user, int index) {
+        Medicine medicine = new Medicine(NAMES[index % NAMES.length], 1 + index % 3, 30 + index % 60,
+                LocalDate.of(2024, 1, 1), user.getDefaultProfile());
+        // Spread stock so statuses and refill dates cover OK, LOW and REFILL_NEEDED
+        medicine.setCurrentQuantity(index % 40);
+        medicine.setId((long) index + 1);
+        medicine.setCreatedAt(LocalDateTime.of(2024, 1, 1, 9, 0));
+        medicine.setUpdatedAt(LocalDateTime.of(2024, 1, 2, 9, 0));
+        return medicine;
+    }
+    
+    public static List<Medicine> medicines(User user, int count) {
+        List<Medicine> medicines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            medicines.add(medicine(user, i));
+        }
+        return medicines;
+    }
+}
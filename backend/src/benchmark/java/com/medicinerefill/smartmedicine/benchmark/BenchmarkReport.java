@@ -0,0 +1,66 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Machine-readable result of a harness run, written to target/benchmark-results/ so runs can be
+ * diffed or charted across commits.
+ */
+public class BenchmarkReport {
+    
+    private static final Path RESULTS_DIR = Paths.get("target", "benchmark-results");
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    private final Map<String, Object> root = new LinkedHashMap<>();
+    
+    public BenchmarkReport(String harness) {
+        root.put("harness", harness);
+        root.put("timestamp", LocalDateTime.now());
+        root.put("javaVersion", Runtime.version().toString());
+        root.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+    }
+    
+    public BenchmarkReport put(String key, Object value) {
+        root.put(key, value);
+        return this;
+    }
+    
+    public static Map<String, Object> latency(LatencyRecorder.Snapshot snapshot) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requests", snapshot.getRequests());
+        result.put("errors", snapshot.getErrors());
+        result.put("throughputPerSecond", round(snapshot.getThroughputPerSecond()));
+        result.put("p50Ms", round(snapshot.percentileMs(50)));
+        result.put("p95Ms", round(snapshot.percentileMs(95)));
+        result.put("p99Ms", round(snapshot.percentileMs(99)));
+        result.put("maxMs", round(snapshot.percentileMs(100)));
+        return result;
+    }
+    
+    public Path write() throws IOException {
+        Files.createDirectories(RESULTS_DIR);
+        Path file = RESULTS_DIR.resolve(root.get("harness") + "-"
+                + LocalDateTime.now().format(FILE_TIMESTAMP) + ".json");
+        new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(file.toFile(), root);
+        return file;
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
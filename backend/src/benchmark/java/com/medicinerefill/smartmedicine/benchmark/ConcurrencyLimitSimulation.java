@@ -0,0 +1,181 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.medicinerefill.smartmedicine.config.GradientConcurrencyLimit;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates a database slowdown with and without {@link GradientConcurrencyLimit}, using the same
+ * settings and priority shares as application.yml.
+ *
+ * Requests arrive at a fixed rate onto a pool of request threads (Tomcat) and hold one of
+ * {@code pool-size} connections (Hikari) for their service time, giving up after
+ * {@code connection-timeout}. Most requests are cheap high-priority reads and dose taps; the rest
+ * are heavy low-priority dashboards. In the middle phase every query takes {@code slowdown} times
+ * longer, which puts the service well over capacity. Prints per phase and priority how many
+ * requests succeeded, were shed with a 503 or timed out waiting for a connection, and the latency
+ * of the successful ones.
+ *
+ * mvn -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.medicinerefill.smartmedicine.benchmark.ConcurrencyLimitSimulation \
+ *     -Dexec.args="--rate=1000 --phase-seconds=5 --slowdown=5"
+ */
+public class ConcurrencyLimitSimulation {
+    
+    private static final String[] PHASES = {"normal", "slow database", "recovered"};
+    
+    private final int rate;
+    private final int phaseSeconds;
+    private final double slowdown;
+    private final int poolSize;
+    private final long connectionTimeoutMs;
+    private final int requestThreads;
+    private final double heavyFraction;
+    
+    private volatile double currentSlowdown = 1;
+    
+    public ConcurrencyLimitSimulation(int rate, int phaseSeconds, double slowdown, int poolSize,
+                                      long connectionTimeoutMs, int requestThreads, double heavyFraction) {
+        this.rate = rate;
+        this.phaseSeconds = phaseSeconds;
+        this.slowdown = slowdown;
+        this.poolSize = poolSize;
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.requestThreads = requestThreads;
+        this.heavyFraction = heavyFraction;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int rate = 1000;
+        int phaseSeconds = 5;
+        double slowdown = 5;
+        int poolSize = 10;
+        long connectionTimeoutMs = 5000;
+        int requestThreads = 200;
+        double heavyFraction = 0.2;
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            String value = parts.length > 1 ? parts[1] : "";
+            switch (parts[0]) {
+                case "rate" -> rate = Integer.parseInt(value);
+                case "phase-seconds" -> phaseSeconds = Integer.parseInt(value);
+                case "slowdown" -> slowdown = Double.parseDouble(value);
+                case "pool-size" -> poolSize = Integer.parseInt(value);
+                case "connection-timeout-ms" -> connectionTimeoutMs = Long.parseLong(value);
+                case "request-threads" -> requestThreads = Integer.parseInt(value);
+                case "heavy-fraction" -> heavyFraction = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        
+        ConcurrencyLimitSimulation simulation = new ConcurrencyLimitSimulation(rate, phaseSeconds, slowdown, poolSize,
+                connectionTimeoutMs, requestThreads, heavyFraction);
+        System.out.printf("%d req/s, %.0f%% heavy, %d connections, %d request threads, database %.0fx slower in phase 2%n",
+                rate, heavyFraction * 100, poolSize, requestThreads, slowdown);
+        simulation.run(false);
+        simulation.run(true);
+    }
+    
+    private void run(boolean limited) throws InterruptedException {
+        // Defaults of app.concurrency-limit
+        GradientConcurrencyLimit limit = limited ? new GradientConcurrencyLimit(20, 4, 200, 1.5, 0.2, 4, 10, 600) : null;
+        Semaphore pool = new Semaphore(poolSize, true);
+        ExecutorService requestPool = Executors.newFixedThreadPool(requestThreads);
+        ScheduledExecutorService arrivals = Executors.newSingleThreadScheduledExecutor();
+        Outcomes[][] outcomes = new Outcomes[PHASES.length][2];
+        for (Outcomes[] phase : outcomes) {
+            phase[0] = new Outcomes();
+            phase[1] = new Outcomes();
+        }
+        AtomicInteger phase = new AtomicInteger();
+        int[] minLimit = {Integer.MAX_VALUE};
+        
+        System.out.println();
+        System.out.println(limited ? "With concurrency limit" : "Without concurrency limit");
+        currentSlowdown = 1;
+        arrivals.scheduleAtFixedRate(() -> {
+            int perTick = rate / 1000;
+            for (int i = 0; i < perTick; i++) {
+                boolean heavy = ThreadLocalRandom.current().nextDouble() < heavyFraction;
+                Outcomes target = outcomes[phase.get()][heavy ? 1 : 0];
+                long arrival = System.nanoTime();
+                requestPool.execute(() -> handle(limit, pool, heavy, arrival, target));
+            }
+            if (limit != null) {
+                minLimit[0] = Math.min(minLimit[0], limit.getLimit());
+            }
+        }, 0, 1, TimeUnit.MILLISECONDS);
+        
+        for (int i = 0; i < PHASES.length; i++) {
+            phase.set(i);
+            currentSlowdown = i == 1 ? slowdown : 1;
+            Thread.sleep(phaseSeconds * 1000L);
+            if (limit != null) {
+                System.out.printf("  limit after %-14s %d%n", PHASES[i] + ":", limit.getLimit());
+            }
+        }
+        arrivals.shutdownNow();
+        requestPool.shutdown();
+        requestPool.awaitTermination(connectionTimeoutMs * 4, TimeUnit.MILLISECONDS);
+        
+        System.out.printf("  %-14s %-6s %8s %8s %8s %10s %10s%n", "phase", "kind", "ok", "shed", "timeout", "p50 ms", "p99 ms");
+        for (int i = 0; i < PHASES.length; i++) {
+            for (int kind = 0; kind < 2; kind++) {
+                Outcomes o = outcomes[i][kind];
+                LatencyRecorder.Snapshot snapshot = o.latencies.snapshot(0);
+                System.out.printf("  %-14s %-6s %8d %8d %8d %10.1f %10.1f%n", PHASES[i], kind == 0 ? "cheap" : "heavy",
+                        snapshot.getRequests(), o.shed.get(), o.timedOut.get(),
+                        snapshot.percentileMs(50), snapshot.percentileMs(99));
+            }
+        }
+        if (limit != null) {
+            System.out.println("  lowest limit: " + minLimit[0]);
+        }
+    }
+    
+    private void handle(GradientConcurrencyLimit limit, Semaphore pool, boolean heavy, long arrival, Outcomes outcomes) {
+        int inflight = 0;
+        long start = System.nanoTime();
+        if (limit != null) {
+            // Shares of app.concurrency-limit: high 1.0, low 0.5
+            inflight = limit.tryAcquire(heavy ? 0.5 : 1.0);
+            if (inflight < 0) {
+                outcomes.shed.incrementAndGet();
+                return;
+            }
+        }
+        try {
+            if (!pool.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                outcomes.timedOut.incrementAndGet();
+                return;
+            }
+            try {
+                // Cheap reads hold a connection ~2ms, dashboards ~20ms
+                double serviceMs = (heavy ? 20 : 2) * currentSlowdown;
+                Thread.sleep((long) serviceMs, (int) ((serviceMs % 1) * 1_000_000));
+            } finally {
+                pool.release();
+            }
+            outcomes.latencies.record(System.nanoTime() - arrival, true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (limit != null) {
+                limit.release(inflight, System.nanoTime() - start);
+            }
+        }
+    }
+    
+    private static class Outcomes {
+        
+        private final LatencyRecorder latencies = new LatencyRecorder();
+        private final AtomicInteger shed = new AtomicInteger();
+        private final AtomicInteger timedOut = new AtomicInteger();
+    }
+}
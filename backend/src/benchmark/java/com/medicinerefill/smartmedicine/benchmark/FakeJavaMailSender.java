@@ -0,0 +1,67 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JavaMailSender that counts messages instead of talking to SMTP, with an optional simulated
+ * transport latency so scheduler runs can be measured without a mail server.
+ */
+public class FakeJavaMailSender implements JavaMailSender {
+    
+    private final Session session = Session.getInstance(new Properties());
+    private final Duration latency;
+    private final AtomicLong sent = new AtomicLong();
+    
+    public FakeJavaMailSender(Duration latency) {
+        this.latency = latency;
+    }
+    
+    public long getSentCount() {
+        return sent.get();
+    }
+    
+    @Override
+    public MimeMessage createMimeMessage() {
+        return new MimeMessage(session);
+    }
+    
+    @Override
+    public MimeMessage createMimeMessage(InputStream contentStream) {
+        try {
+            return new MimeMessage(session, contentStream);
+        } catch (Exception e) {
+            throw new MailSendException("Could not parse MIME message", e);
+        }
+    }
+    
+    @Override
+    public void send(MimeMessage... mimeMessages) {
+        transmit(mimeMessages.length);
+    }
+    
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) {
+        transmit(simpleMessages.length);
+    }
+    
+    private void transmit(int messages) {
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency.toMillis() * messages);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MailSendException("Interrupted while sending", e);
+            }
+        }
+        sent.addAndGet(messages);
+    }
+}
@@ -0,0 +1,66 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Collects request latencies for one load step and computes percentiles.
+ */
+public class LatencyRecorder {
+    
+    private long[] latenciesNanos = new long[1024];
+    private int count;
+    private int errors;
+    
+    public synchronized void record(long latencyNanos, boolean success) {
+        if (!success) {
+            errors++;
+        }
+        if (count == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+        }
+        latenciesNanos[count++] = latencyNanos;
+    }
+    
+    public synchronized Snapshot snapshot(long elapsedNanos) {
+        long[] sorted = Arrays.copyOf(latenciesNanos, count);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted, errors, elapsedNanos);
+    }
+    
+    public static class Snapshot {
+        
+        private final long[] sortedNanos;
+        private final int errors;
+        private final long elapsedNanos;
+        
+        Snapshot(long[] sortedNanos, int errors, long elapsedNanos) {
+            this.sortedNanos = sortedNanos;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        public int getRequests() {
+            return sortedNanos.length;
+        }
+        
+        public int getErrors() {
+            return errors;
+        }
+        
+        public double getErrorRate() {
+            return sortedNanos.length == 0 ? 0 : (double) errors / sortedNanos.length;
+        }
+        
+        public double getThroughputPerSecond() {
+            return elapsedNanos == 0 ? 0 : sortedNanos.length / (elapsedNanos / 1_000_000_000.0);
+        }
+        
+        public double percentileMs(double percentile) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.medicinerefill.smartmedicine.SmartMedicineApplication;
+import com.medicinerefill.smartmedicine.config.JwtTokenProvider;
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import com.medicinerefill.smartmedicine.repository.UserRepository;
+import com.medicinerefill.smartmedicine.service.NotificationPipeline;
+import com.medicinerefill.smartmedicine.service.NotificationSchedulerService;
+import com.medicinerefill.smartmedicine.service.ReminderRunReport;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * End-to-end load against a realistic dataset: seeds users and medicines straight through the
+ * repositories, drives a mixed list / dashboard / take-dose workload over HTTP, then times a full
+ * daily reminder run against a fake mail transport. Results are printed and written as JSON to
+ * target/benchmark-results/.
+ *
+ * mvn -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.medicinerefill.smartmedicine.benchmark.MacroLoadHarness \
+ *     -Dexec.args="--users=1000 --medicines=20 --clients=64 --seconds=30 --mail-latency-ms=5"
+ *
+ * --logging selects the log setup: quiet (WARN only, the default), dev (the application.yml levels
+ * with SQL echo) or prod (the prod profile). Redirect stdout to a file for dev and prod, as a
+ * container log driver would; the results are in the report.
+ */
+public class MacroLoadHarness {
+    
+    private static final String[] OPERATIONS = {"list", "dashboard", "take-dose"};
+    // Cumulative weights out of 100 for list, dashboard, take-dose
+    private static final int[] MIX = {60, 90, 100};
+    
+    private final int users;
+    private final int medicinesPerUser;
+    private final int clients;
+    private final Duration duration;
+    private final Duration mailLatency;
+    private final String logging;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    
+    public MacroLoadHarness(int users, int medicinesPerUser, int clients, Duration duration, Duration mailLatency,
+                            String logging) {
+        this.users = users;
+        this.medicinesPerUser = medicinesPerUser;
+        this.clients = clients;
+        this.duration = duration;
+        this.mailLatency = mailLatency;
+        this.logging = logging;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int users = 200;
+        int medicinesPerUser = 20;
+        int clients = 32;
+        Duration duration = Duration.ofSeconds(20);
+        Duration mailLatency = Duration.ZERO;
+        String logging = "quiet";
+        
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            String value = parts.length > 1 ? parts[1] : "";
+            switch (parts[0]) {
+                case "users" -> users = Integer.parseInt(value);
+                case "medicines" -> medicinesPerUser = Integer.parseInt(value);
+                case "clients" -> clients = Integer.parseInt(value);
+                case "seconds" -> duration = Duration.ofSeconds(Long.parseLong(value));
+                case "mail-latency-ms" -> mailLatency = Duration.ofMillis(Long.parseLong(value));
+                case "logging" -> logging = value;
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        
+        new MacroLoadHarness(users, medicinesPerUser, clients, duration, mailLatency, logging).run();
+        System.exit(0);
+    }
+    
+    private void run() throws Exception {
+        FakeJavaMailSender mailSender = new FakeJavaMailSender(mailLatency);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SmartMedicineApplication.class)
+                .initializers(ctx -> ((GenericApplicationContext) ctx)
+                        .registerBean("mailSender", JavaMailSender.class, () -> mailSender))
+                .run(applicationArgs());
+        
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + context.getEnvironment().getProperty("server.servlet.context-path", "") + "/api";
+            
+            long seedStart = System.nanoTime();
+            List<Session> sessions = seed(context);
+            long seedMs = (System.nanoTime() - seedStart) / 1_000_000;
+            System.out.printf("Seeded %d users x %d medicines in %d ms%n", users, medicinesPerUser, seedMs);
+            
+            Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+            for (String operation : OPERATIONS) {
+                recorders.put(operation, new LatencyRecorder());
+            }
+            long start = System.nanoTime();
+            long deadline = start + duration.toNanos();
+            CompletableFuture<?>[] running = new CompletableFuture<?>[clients];
+            for (int i = 0; i < clients; i++) {
+                running[i] = runClient(baseUrl, sessions.get(i % sessions.size()), recorders, deadline);
+            }
+            CompletableFuture.allOf(running).join();
+            long elapsed = System.nanoTime() - start;
+            
+            System.out.printf("%n=== HTTP workload (%d clients, %d s) ===%n", clients, duration.getSeconds());
+            System.out.printf("%-10s %10s %10s %10s %10s %10s %8s%n",
+                    "operation", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors");
+            Map<String, Object> http = new LinkedHashMap<>();
+            for (Map.Entry<String, LatencyRecorder> entry : recorders.entrySet()) {
+                LatencyRecorder.Snapshot snapshot = entry.getValue().snapshot(elapsed);
+                System.out.printf("%-10s %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n", entry.getKey(),
+                        snapshot.getThroughputPerSecond(), snapshot.percentileMs(50), snapshot.percentileMs(95),
+                        snapshot.percentileMs(99), snapshot.percentileMs(100), snapshot.getErrors());
+                http.put(entry.getKey(), BenchmarkReport.latency(snapshot));
+            }
+            
+            NotificationSchedulerService scheduler = context.getBean(NotificationSchedulerService.class);
+            scheduler.sendDailyRefillReminders();
+            // Reminders are queued by the run and sent by the channel workers
+            context.getBean(NotificationPipeline.class).awaitIdle(Duration.ofMinutes(5));
+            ReminderRunReport run = scheduler.getLastRun(NotificationSchedulerService.DAILY_REMINDER_JOB);
+            System.out.printf("%n=== Daily reminder run ===%n");
+            System.out.printf("duration %d ms, medicines %d, users %d, digests %d queued / %d delivered"
+                            + " (transport saw %d), failures %d%n",
+                    run.getDurationMs(), run.getMedicinesScanned(), run.getUsersScanned(), run.getDigestsQueued(),
+                    run.getDigestsDelivered(), mailSender.getSentCount(), run.getFailures());
+            
+            Map<String, Object> config = new LinkedHashMap<>();
+            config.put("users", users);
+            config.put("medicinesPerUser", medicinesPerUser);
+            config.put("clients", clients);
+            config.put("durationSeconds", duration.getSeconds());
+            config.put("mailLatencyMs", mailLatency.toMillis());
+            config.put("logging", logging);
+            Path file = new BenchmarkReport("macro-load")
+                    .put("config", config)
+                    .put("seedMs", seedMs)
+                    .put("http", http)
+                    .put("dailyReminderRun", run)
+                    .write();
+            System.out.println();
+            System.out.println("Report written to " + file.toAbsolutePath());
+        } finally {
+            context.close();
+        }
+    }
+    
+    private String[] applicationArgs() {
+        List<String> args = new ArrayList<>(List.of("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:macroload;DB_CLOSE_DELAY=-1",
+                "--jwt.secret=loadTestSecretKey0123456789loadTestSecretKey0123456789loadTestSecretKey",
+                // Load is generated from a handful of users and one IP
+                "--app.rate-limit.enabled=false",
+                "--app.concurrency-limit.enabled=false",
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=100",
+                "--spring.main.banner-mode=off"));
+        switch (logging) {
+            case "quiet" -> args.addAll(List.of("--spring.jpa.show-sql=false",
+                    "--logging.level.root=WARN",
+                    "--logging.level.com.medicinerefill.smartmedicine=WARN",
+                    "--logging.level.org.hibernate=WARN",
+                    "--logging.level.org.springframework.security=WARN"));
+            case "dev" -> {
+            }
+            case "prod" -> args.add("--spring.profiles.active=prod");
+            default -> throw new IllegalArgumentException("Unknown logging mode: " + logging);
+        }
+        return args.toArray(new String[0]);
+    }
+    
+    private List<Session> seed(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        MedicineRepository medicineRepository = context.getBean(MedicineRepository.class);
+        JwtTokenProvider tokenProvider = context.getBean(JwtTokenProvider.class);
+        // BCrypt is deliberately slow; one hash is shared by every seeded user
+        String password = context.getBean(PasswordEncoder.class).encode("password123");
+        
+        List<Session> sessions = new ArrayList<>(users);
+        for (int u = 0; u < users; u++) {
+            User user = userRepository.save(new User("Load User " + u, "macro-" + u + "@example.com", password));
+            List<Medicine> medicines = new ArrayList<>(medicinesPerUser);
+            for (int i = 0; i < medicinesPerUser; i++) {
+                // Even rows have deep stock for take-dose traffic; odd rows fall due within the reminder window
+                int quantity = i % 2 == 0 ? 5_000 : 1 + (u + i) % 7;
+                medicines.add(new Medicine("Medicine " + i, 1, quantity, LocalDate.now(), user.getDefaultProfile()));
+            }
+            medicineRepository.saveAll(medicines);
+            sessions.add(new Session(tokenProvider.generateTokenFromEmail(user.getEmail()), medicines.get(0).getId()));
+        }
+        return sessions;
+    }
+    
+    private CompletableFuture<Void> runClient(String baseUrl, Session session, Map<String, LatencyRecorder> recorders,
+                                             long deadline) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String operation = pickOperation();
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .header("Authorization", "Bearer " + session.token)
+                .timeout(Duration.ofSeconds(30));
+        switch (operation) {
+            case "list" -> builder.uri(URI.create(baseUrl + "/medicines")).GET();
+            case "dashboard" -> builder.uri(URI.create(baseUrl + "/medicines/dashboard-summary")).GET();
+            default -> builder.uri(URI.create(baseUrl + "/medicines/" + session.doseMedicineId + "/take-dose"))
+                    .POST(HttpRequest.BodyPublishers.noBody());
+        }
+        
+        LatencyRecorder recorder = recorders.get(operation);
+        long sent = System.nanoTime();
+        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    recorder.record(System.nanoTime() - sent, error == null && response.statusCode() == 200);
+                    return null;
+                })
+                .thenCompose(ignored -> runClient(baseUrl, session, recorders, deadline));
+    }
+    
+    private static String pickOperation() {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        for (int i = 0; i < MIX.length; i++) {
+            if (roll < MIX[i]) {
+                return OPERATIONS[i];
+            }
+        }
+        return OPERATIONS[OPERATIONS.length - 1];
+    }
+    
+    private record Session(String token, Long doseMedicineId) {}
+}
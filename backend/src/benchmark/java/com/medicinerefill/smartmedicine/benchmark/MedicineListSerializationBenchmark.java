@@ -0,0 +1,97 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.medicinerefill.smartmedicine.dto.MedicineListView;
+import com.medicinerefill.smartmedicine.dto.MedicineResponse;
+import com.medicinerefill.smartmedicine.model.Medicine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the MedicineResponse DTO path with the streaming MedicineListSerializer for the list
+ * endpoints, end to end through Jackson, and the JSON rows with the compact CBOR rows, with and
+ * without the gzip the server applies (WireFormatSizes reports the sizes). Run with the GC profiler to get allocation per operation
+ * (divide gc.alloc.rate.norm by rows for bytes per row):
+ *
+ *   -Dexec.args="-cp %classpath org.openjdk.jmh.Main MedicineListSerializationBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MedicineListSerializationBenchmark {
+    
+    @Param({"10", "100"})
+    private int rows;
+    
+    // Configured like Spring Boot's auto-configured mapper
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory())
+            .registerModule(new JavaTimeModule())
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final OutputStream sink = OutputStream.nullOutputStream();
+    private List<Medicine> medicines;
+    
+    @Setup
+    public void setUp() {
+        medicines = BenchmarkData.medicines(BenchmarkData.user(1), rows);
+    }
+    
+    @Benchmark
+    public void responseDtos() throws IOException {
+        List<MedicineResponse> responses = new ArrayList<>(medicines.size());
+        for (Medicine medicine : medicines) {
+            responses.add(new MedicineResponse(medicine));
+        }
+        objectMapper.writeValue(sink, responses);
+    }
+    
+    @Benchmark
+    public void streamingView() throws IOException {
+        objectMapper.writeValue(sink, new MedicineListView(medicines));
+    }
+    
+    @Benchmark
+    public void streamingViewGzip() throws IOException {
+        try (GZIPOutputStream gzip = new GZIPOutputStream(OutputStream.nullOutputStream())) {
+            objectMapper.writeValue(gzip, new MedicineListView(medicines));
+        }
+    }
+    
+    @Benchmark
+    public void cborView() throws IOException {
+        cborMapper.writeValue(sink, new MedicineListView(medicines));
+    }
+    
+    @Benchmark
+    public void cborViewGzip() throws IOException {
+        try (GZIPOutputStream gzip = new GZIPOutputStream(OutputStream.nullOutputStream())) {
+            cborMapper.writeValue(gzip, new MedicineListView(medicines));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the refill-date and status recomputation that runs on every Medicine write.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MedicineModelBenchmark {
+    
+    private Medicine medicine;
+    
+    @Setup
+    public void setUp() {
+        medicine = BenchmarkData.medicine(BenchmarkData.user(1), 7);
+    }
+    
+    @Benchmark
+    public Object calculateRefillDate() {
+        medicine.calculateRefillDate();
+        return medicine.getRefillDate();
+    }
+    
+    @Benchmark
+    public Object updateStatus() {
+        medicine.updateStatus();
+        return medicine.getStatus();
+    }
+    
+    @Benchmark
+    public Object calculateRefillDateAndUpdateStatus() {
+        medicine.calculateRefillDate();
+        medicine.updateStatus();
+        return medicine.getStatus();
+    }
+}
@@ -0,0 +1,50 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.medicinerefill.smartmedicine.dto.MedicineResponse;
+import com.medicinerefill.smartmedicine.model.Medicine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-list cost of mapping entities to MedicineResponse, as the list endpoints do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MedicineResponseBenchmark {
+    
+    @Param({"10", "100"})
+    private int rows;
+    
+    private List<Medicine> medicines;
+    
+    @Setup
+    public void setUp() {
+        medicines = BenchmarkData.medicines(BenchmarkData.user(1), rows);
+    }
+    
+    @Benchmark
+    public List<MedicineResponse> constructResponses() {
+        List<MedicineResponse> responses = new ArrayList<>(medicines.size());
+        for (Medicine medicine : medicines) {
+            responses.add(new MedicineResponse(medicine));
+        }
+        return responses;
+    }
+}
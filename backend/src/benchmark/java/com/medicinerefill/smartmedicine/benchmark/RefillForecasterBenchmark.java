@@ -0,0 +1,101 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.medicinerefill.smartmedicine.model.DosingSchedule;
+import com.medicinerefill.smartmedicine.model.RefillForecaster;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run-out forecast with block jumping against a day-by-day simulation of the same schedule.
+ * Setup fails if the two disagree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefillForecasterBenchmark {
+    
+    @Param({"30", "1000", "100000"})
+    private int quantity;
+    
+    @Param({"daily", "alternate-weekdays", "taper"})
+    private String regimen;
+    
+    private DosingSchedule schedule;
+    private LocalDate start;
+    private LocalDate today;
+    
+    @Setup
+    public void setUp() {
+        start = LocalDate.of(2024, 1, 1);
+        today = LocalDate.of(2024, 1, 10);
+        schedule = switch (regimen) {
+            case "daily" -> null;
+            case "alternate-weekdays" -> new DosingSchedule(new int[] {2, 0, 1}, DosingSchedule.weekdayMask(
+                    List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY, DayOfWeek.FRIDAY, DayOfWeek.SATURDAY)),
+                    null, null, null);
+            case "taper" -> new DosingSchedule(new int[] {8}, null, 1, 7, 1);
+            default -> throw new IllegalArgumentException(regimen);
+        };
+        LocalDate fast = forecast();
+        LocalDate slow = simulate();
+        if (!fast.equals(slow)) {
+            throw new IllegalStateException("Forecast " + fast + " != simulation " + slow);
+        }
+    }
+    
+    @Benchmark
+    public LocalDate forecast() {
+        return RefillForecaster.runOutDate(quantity, 3, schedule, start, today);
+    }
+    
+    @Benchmark
+    public LocalDate simulate() {
+        // Day-by-day baseline
+        long remaining = quantity;
+        LocalDate day = today;
+        while (true) {
+            long dose = doseOn(day);
+            if (dose > remaining) {
+                return day;
+            }
+            remaining -= dose;
+            day = day.plusDays(1);
+        }
+    }
+    
+    private long doseOn(LocalDate day) {
+        if (schedule == null) {
+            return 3;
+        }
+        if (schedule.getWeekdayMask() != null
+                && (schedule.getWeekdayMask() & (1 << (day.getDayOfWeek().getValue() - 1))) == 0) {
+            return 0;
+        }
+        long sinceStart = ChronoUnit.DAYS.between(start, day);
+        int[] doses = schedule.getDoses();
+        int base = doses[(int) Math.floorMod(sinceStart, (long) doses.length)];
+        if (base == 0 || !schedule.isTapering()) {
+            return base;
+        }
+        long tapered = base - (long) schedule.getTaperStep() * Math.max(0, sinceStart / schedule.getTaperEveryDays());
+        return Math.max(Math.min(base, schedule.getTaperFloor() != null ? schedule.getTaperFloor() : 0), tapered);
+    }
+}
@@ -0,0 +1,176 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.medicinerefill.smartmedicine.SmartMedicineApplication;
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import com.medicinerefill.smartmedicine.service.MedicineSnapshot;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reminder candidate selection through the database against the in-memory MedicineSnapshot on the
+ * same data: seeds users and medicines with batched JDBC inserts, then times the repository query
+ * and the parallel snapshot scan plus loading its hits. Fails if the two return different ids.
+ *
+ * mvn -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.medicinerefill.smartmedicine.benchmark.ReminderScanHarness \
+ *     -Dexec.args="--medicines=1000000 --users=50000 --due-percent=5 --iterations=5"
+ */
+public class ReminderScanHarness {
+    
+    private static final int INSERT_BATCH = 5_000;
+    
+    public static void main(String[] args) throws Exception {
+        int medicines = 200_000;
+        int users = 10_000;
+        int duePercent = 5;
+        int iterations = 5;
+        
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            String value = parts.length > 1 ? parts[1] : "";
+            switch (parts[0]) {
+                case "medicines" -> medicines = Integer.parseInt(value);
+                case "users" -> users = Integer.parseInt(value);
+                case "due-percent" -> duePercent = Integer.parseInt(value);
+                case "iterations" -> iterations = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SmartMedicineApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:reminderscan;DB_CLOSE_DELAY=-1",
+                        "--jwt.secret=loadTestSecretKey0123456789loadTestSecretKey0123456789loadTestSecretKey",
+                        // Rebuilt explicitly below, after seeding
+                        "--app.medicine-snapshot.enabled=true",
+                        "--app.medicine-snapshot.rebuild-interval=24h",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.medicinerefill.smartmedicine=WARN",
+                        "--logging.level.org.hibernate=WARN");
+        try {
+            run(context, medicines, users, duePercent, iterations);
+        } finally {
+            context.close();
+        }
+        System.exit(0);
+    }
+    
+    private static void run(ConfigurableApplicationContext context, int medicines, int users, int duePercent,
+                            int iterations) throws Exception {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        MedicineRepository medicineRepository = context.getBean(MedicineRepository.class);
+        MedicineSnapshot snapshot = context.getBean(MedicineSnapshot.class);
+        LocalDate today = LocalDate.now();
+        LocalDate windowEnd = today.plusDays(7);
+        
+        long seedStart = System.nanoTime();
+        seed(jdbcTemplate, medicines, users, duePercent, today);
+        long seedMs = (System.nanoTime() - seedStart) / 1_000_000;
+        
+        long rebuildStart = System.nanoTime();
+        snapshot.rebuild();
+        long rebuildMs = (System.nanoTime() - rebuildStart) / 1_000_000;
+        System.out.printf("Seeded %d medicines for %d users in %d ms; snapshot rebuilt in %d ms%n",
+                medicines, users, seedMs, rebuildMs);
+        
+        List<Double> databaseMs = new ArrayList<>();
+        List<Double> scanMs = new ArrayList<>();
+        List<Double> snapshotMs = new ArrayList<>();
+        int hits = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            List<Medicine> fromDatabase = medicineRepository.findMedicinesNeedingRefillReminderBetween(today, windowEnd);
+            databaseMs.add((System.nanoTime() - start) / 1e6);
+            
+            start = System.nanoTime();
+            long[] ids = snapshot.findReminderCandidateIds(today, windowEnd, null, false);
+            scanMs.add((System.nanoTime() - start) / 1e6);
+            List<Medicine> loaded = new ArrayList<>(ids.length);
+            for (int from = 0; from < ids.length; from += 1000) {
+                loaded.addAll(medicineRepository.findWithUserByIdIn(
+                        Arrays.stream(ids, from, Math.min(ids.length, from + 1000)).boxed().toList()));
+            }
+            snapshotMs.add((System.nanoTime() - start) / 1e6);
+            
+            long[] expected = fromDatabase.stream().mapToLong(Medicine::getId).sorted().toArray();
+            long[] actual = loaded.stream().mapToLong(Medicine::getId).sorted().toArray();
+            if (!Arrays.equals(expected, actual)) {
+                throw new IllegalStateException("Snapshot returned " + actual.length + " candidates, database "
+                        + expected.length);
+            }
+            hits = actual.length;
+        }
+        
+        System.out.printf("%n=== Reminder candidates (%d of %d medicines) ===%n", hits, medicines);
+        System.out.printf("%-28s %10s %10s%n", "path", "best ms", "median ms");
+        print("database query", databaseMs);
+        print("snapshot scan (ids only)", scanMs);
+        print("snapshot scan + load hits", snapshotMs);
+        
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("medicines", medicines);
+        config.put("users", users);
+        config.put("duePercent", duePercent);
+        config.put("iterations", iterations);
+        config.put("cores", Runtime.getRuntime().availableProcessors());
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("databaseMs", databaseMs);
+        results.put("scanMs", scanMs);
+        results.put("scanAndLoadMs", snapshotMs);
+        Path file = new BenchmarkReport("reminder-scan")
+                .put("config", config)
+                .put("seedMs", seedMs)
+                .put("rebuildMs", rebuildMs)
+                .put("candidates", hits)
+                .put("results", results)
+                .write();
+        System.out.println();
+        System.out.println("Report written to " + file.toAbsolutePath());
+    }
+    
+    private static void seed(JdbcTemplate jdbcTemplate, int medicines, int users, int duePercent, LocalDate today) {
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+        for (int u = 0; u < users; u++) {
+            batch.add(new Object[] {"Scan User " + u, "scan-" + u + "@example.com", "x", u % 10 != 0});
+            if (batch.size() == INSERT_BATCH || u == users - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (name, email, password, email_notifications_enabled)"
+                        + " VALUES (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        Long firstUserId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+        
+        for (int m = 0; m < medicines; m++) {
+            // duePercent of the rows fall inside the 7-day window, the rest are up to a year out
+            int daysLeft = m % 100 < duePercent ? m % 8 : 8 + m % 358;
+            batch.add(new Object[] {"Medicine " + m, 1, daysLeft, daysLeft, Date.valueOf(today),
+                    Date.valueOf(today.plusDays(daysLeft)), m % 20 != 0, daysLeft <= 5 ? "LOW" : "OK",
+                    firstUserId + m % users});
+            if (batch.size() == INSERT_BATCH || m == medicines - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO medicines (medicine_name, dosage_per_day, total_quantity,"
+                        + " current_quantity, start_date, refill_date, notifications_enabled, status, user_id)"
+                        + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+    
+    private static void print(String label, List<Double> samples) {
+        double[] sorted = samples.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        System.out.printf("%-28s %10.2f %10.2f%n", label, sorted[0], sorted[sorted.length / 2]);
+    }
+}
@@ -0,0 +1,194 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.medicinerefill.smartmedicine.SmartMedicineApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares platform-thread and virtual-thread request handling under increasing concurrency.
+ *
+ * Each mode starts the application in-process on its own H2 database, seeds one user, then drives
+ * GET /api/medicines with N closed-loop clients per step. The "max concurrent users" of a mode is the
+ * highest step whose p99 stays within the SLO with under 1% errors.
+ *
+ * mvn -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.medicinerefill.smartmedicine.benchmark.VirtualThreadLoadTest \
+ *     -Dexec.args="--levels=50,100,200,400,800 --step-seconds=10 --tomcat-threads=50 --slo-ms=250"
+ *
+ * Virtual-thread mode needs a Java 21 runtime and is skipped otherwise.
+ */
+public class VirtualThreadLoadTest {
+    
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("\"accessToken\"\\s*:\\s*\"([^\"]+)\"");
+    
+    private final int[] levels;
+    private final Duration stepDuration;
+    private final int tomcatThreads;
+    private final int medicinesPerUser;
+    private final double sloMs;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    
+    public VirtualThreadLoadTest(int[] levels, Duration stepDuration, int tomcatThreads, int medicinesPerUser,
+                                 double sloMs) {
+        this.levels = levels;
+        this.stepDuration = stepDuration;
+        this.tomcatThreads = tomcatThreads;
+        this.medicinesPerUser = medicinesPerUser;
+        this.sloMs = sloMs;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int[] levels = {25, 50, 100, 200, 400};
+        Duration stepDuration = Duration.ofSeconds(10);
+        int tomcatThreads = 50;
+        int medicinesPerUser = 20;
+        double sloMs = 250;
+        
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            String value = parts.length > 1 ? parts[1] : "";
+            switch (parts[0]) {
+                case "levels" -> levels = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                case "step-seconds" -> stepDuration = Duration.ofSeconds(Long.parseLong(value));
+                case "tomcat-threads" -> tomcatThreads = Integer.parseInt(value);
+                case "medicines" -> medicinesPerUser = Integer.parseInt(value);
+                case "slo-ms" -> sloMs = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        
+        VirtualThreadLoadTest test = new VirtualThreadLoadTest(levels, stepDuration, tomcatThreads,
+                medicinesPerUser, sloMs);
+        List<String> summary = new ArrayList<>();
+        summary.add(test.runMode(false));
+        if (Runtime.version().feature() >= 21) {
+            summary.add(test.runMode(true));
+        } else {
+            summary.add("virtual  : skipped, Java " + Runtime.version().feature() + " runtime (needs 21+)");
+        }
+        
+        System.out.println();
+        System.out.println("=== Summary (SLO p99 <= " + sloMs + " ms, errors < 1%) ===");
+        summary.forEach(System.out::println);
+        System.exit(0);
+    }
+    
+    private String runMode(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SmartMedicineApplication.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--server.tomcat.threads.max=" + tomcatThreads,
+                        "--spring.datasource.url=jdbc:h2:mem:loadtest-" + mode + ";DB_CLOSE_DELAY=-1",
+                        "--jwt.secret=loadTestSecretKey0123456789loadTestSecretKey0123456789loadTestSecretKey",
+                        // Load is generated from a handful of users and one IP
+                        "--app.rate-limit.enabled=false",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.medicinerefill.smartmedicine=WARN",
+                        "--logging.level.org.hibernate=WARN",
+                        "--logging.level.org.springframework.security=WARN");
+        
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + context.getEnvironment().getProperty("server.servlet.context-path", "") + "/api";
+            String token = seed(baseUrl, mode);
+            HttpRequest listRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/medicines"))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            
+            System.out.printf("%n=== %s threads (tomcat max threads %d) ===%n", mode, tomcatThreads);
+            System.out.printf("%8s %10s %10s %10s %10s %10s %8s%n",
+                    "users", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors");
+            
+            int maxUsers = 0;
+            double p99AtMax = 0;
+            for (int users : levels) {
+                LatencyRecorder.Snapshot result = runStep(listRequest, users);
+                System.out.printf("%8d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n", users,
+                        result.getThroughputPerSecond(), result.percentileMs(50), result.percentileMs(95),
+                        result.percentileMs(99), result.percentileMs(100), result.getErrors());
+                if (result.percentileMs(99) <= sloMs && result.getErrorRate() < 0.01) {
+                    maxUsers = users;
+                    p99AtMax = result.percentileMs(99);
+                }
+            }
+            return String.format("%-9s: max concurrent users %d (p99 %.2f ms)", mode, maxUsers, p99AtMax);
+        } finally {
+            context.close();
+        }
+    }
+    
+    private String seed(String baseUrl, String mode) throws Exception {
+        String signup = "{\"name\":\"Load Test\",\"email\":\"load-" + mode + "@example.com\",\"password\":\"password123\"}";
+        HttpResponse<String> response = client.send(jsonPost(baseUrl + "/auth/signup", signup, null),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = TOKEN_PATTERN.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("Signup failed: " + response.statusCode() + " " + response.body());
+        }
+        String token = matcher.group(1);
+        
+        for (int i = 0; i < medicinesPerUser; i++) {
+            String medicine = "{\"medicineName\":\"Medicine " + i + "\",\"dosagePerDay\":" + (1 + i % 3)
+                    + ",\"totalQuantity\":" + (10 + i * 3) + ",\"startDate\":\"2024-01-01\"}";
+            client.send(jsonPost(baseUrl + "/medicines", medicine, token), HttpResponse.BodyHandlers.discarding());
+        }
+        return token;
+    }
+    
+    private LatencyRecorder.Snapshot runStep(HttpRequest request, int users) {
+        LatencyRecorder recorder = new LatencyRecorder();
+        long start = System.nanoTime();
+        long deadline = start + stepDuration.toNanos();
+        
+        CompletableFuture<?>[] clients = new CompletableFuture<?>[users];
+        for (int i = 0; i < users; i++) {
+            clients[i] = runClient(request, recorder, deadline);
+        }
+        CompletableFuture.allOf(clients).join();
+        
+        return recorder.snapshot(System.nanoTime() - start);
+    }
+    
+    private CompletableFuture<Void> runClient(HttpRequest request, LatencyRecorder recorder, long deadline) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long sent = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    recorder.record(System.nanoTime() - sent, error == null && response.statusCode() == 200);
+                    return null;
+                })
+                .thenCompose(ignored -> runClient(request, recorder, deadline));
+    }
+    
+    private static HttpRequest jsonPost(String url, String body, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+}
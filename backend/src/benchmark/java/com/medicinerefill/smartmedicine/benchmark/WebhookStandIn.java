@@ -0,0 +1,83 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local HTTP stand-in for the webhook notification channel. Accepts batches on any path, prints
+ * one line per batch and can simulate a slow or flaky provider:
+ *
+ * mvn -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.medicinerefill.smartmedicine.benchmark.WebhookStandIn \
+ *     -Dexec.args="--port=9099 --latency-ms=200 --failure-rate=0.2"
+ *
+ * then start the backend with WEBHOOK_NOTIFICATIONS_ENABLED=true and
+ * NOTIFICATION_WEBHOOK_URL=http://localhost:9099/notifications.
+ */
+public class WebhookStandIn {
+    
+    private static final Pattern NOTIFICATION_ID = Pattern.compile("\"id\"\\s*:\\s*\"");
+    
+    public static void main(String[] args) throws IOException {
+        int port = 9099;
+        long latencyMs = 0;
+        double failureRate = 0;
+        
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            String value = parts.length > 1 ? parts[1] : "";
+            switch (parts[0]) {
+                case "port" -> port = Integer.parseInt(value);
+                case "latency-ms" -> latencyMs = Long.parseLong(value);
+                case "failure-rate" -> failureRate = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        
+        long latency = latencyMs;
+        double failures = failureRate;
+        AtomicLong batches = new AtomicLong();
+        AtomicLong notifications = new AtomicLong();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            if (latency > 0) {
+                try {
+                    Thread.sleep(latency);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int status = ThreadLocalRandom.current().nextDouble() < failures ? 503 : 204;
+            int count = 0;
+            Matcher matcher = NOTIFICATION_ID.matcher(body);
+            while (matcher.find()) {
+                count++;
+            }
+            if (status == 204) {
+                batches.incrementAndGet();
+                notifications.addAndGet(count);
+            }
+            System.out.printf("%s %s batch of %d -> %d (accepted so far: %d batches, %d notifications)%n",
+                    exchange.getRequestMethod(), exchange.getRequestURI(), count, status, batches.get(),
+                    notifications.get());
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        System.out.println("Webhook stand-in listening on http://localhost:" + port + "/");
+    }
+}
@@ -0,0 +1,95 @@
+package com.medicinerefill.smartmedicine.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.medicinerefill.smartmedicine.dto.MedicineListView;
+import com.medicinerefill.smartmedicine.model.DosingSchedule;
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response body sizes of a medicine list as JSON and as compact CBOR, each plain and gzipped the
+ * way server.compression sends them. Latency of the same encodings is measured by
+ * MedicineListSerializationBenchmark.
+ *
+ * mvn -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.medicinerefill.smartmedicine.benchmark.WireFormatSizes \
+ *     -Dexec.args="--rows=1,10,100,1000"
+ */
+public class WireFormatSizes {
+    
+    public static void main(String[] args) throws IOException {
+        int[] rowCounts = {1, 10, 100, 1000};
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            String value = parts.length > 1 ? parts[1] : "";
+            if (parts[0].equals("rows")) {
+                rowCounts = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        
+        // Configured like Spring Boot's auto-configured mappers
+        ObjectMapper jsonMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory())
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        
+        User user = BenchmarkData.user(1);
+        System.out.printf("%8s %12s %12s %12s %12s %10s%n", "rows", "json B", "json gz B", "cbor B", "cbor gz B",
+                "cbor/json");
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (int rows : rowCounts) {
+            List<Medicine> medicines = BenchmarkData.medicines(user, rows);
+            for (int i = 0; i < medicines.size(); i++) {
+                // Most medicines resolve to a catalog entry on creation; some carry a schedule
+                Medicine medicine = medicines.get(i);
+                medicine.setCatalogId((long) i % 10 + 1);
+                if (i % 4 == 0) {
+                    medicine.setSchedule(new DosingSchedule(new int[] {2, 1}, 0x1F, null, null, null));
+                }
+            }
+            byte[] json = jsonMapper.writeValueAsBytes(new MedicineListView(medicines));
+            byte[] cbor = cborMapper.writeValueAsBytes(new MedicineListView(medicines));
+            int jsonGzip = gzippedSize(json);
+            int cborGzip = gzippedSize(cbor);
+            System.out.printf("%8d %12d %12d %12d %12d %9.0f%%%n", rows, json.length, jsonGzip, cbor.length, cborGzip,
+                    100.0 * cbor.length / json.length);
+            
+            Map<String, Object> sizes = new LinkedHashMap<>();
+            sizes.put("jsonBytes", json.length);
+            sizes.put("jsonGzipBytes", jsonGzip);
+            sizes.put("cborBytes", cbor.length);
+            sizes.put("cborGzipBytes", cborGzip);
+            results.put(String.valueOf(rows), sizes);
+        }
+        
+        Path file = new BenchmarkReport("wire-format-sizes")
+                .put("results", results)
+                .write();
+        System.out.println();
+        System.out.println("Report written to " + file.toAbsolutePath());
+    }
+    
+    private static int gzippedSize(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.size();
+    }
+}
@@ -0,0 +1,60 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.benchmark.BenchmarkData;
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTML rendering of reminder emails, without the SMTP transport.
+ * Lives in the service package, like the tests, to call the package-private builders that
+ * NotificationSchedulerService renders with.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailRenderingBenchmark {
+    
+    private final EmailService emailService = new EmailService();
+    private User user;
+    private Medicine medicine;
+    private List<Medicine> medicines;
+    
+    @Setup
+    public void setUp() {
+        // An empty catalog falls back to building links from the medicine name
+        Field catalog = ReflectionUtils.findField(EmailService.class, "medicineCatalogService");
+        ReflectionUtils.makeAccessible(catalog);
+        ReflectionUtils.setField(catalog, emailService, new MedicineCatalogService());
+        user = BenchmarkData.user(1);
+        medicines = BenchmarkData.medicines(user, 8);
+        medicine = medicines.get(0);
+    }
+    
+    @Benchmark
+    public String renderSingleReminder() {
+        return emailService.buildRefillReminderHtml(user, medicine);
+    }
+    
+    @Benchmark
+    public String renderMultipleReminder() {
+        return emailService.buildMultipleRefillReminderHtml(user, medicines);
+    }
+}
@@ -0,0 +1,23 @@
+package com.medicinerefill.smartmedicine.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Serves application/cbor to clients that ask for it in Accept; JSON stays the default. The
+ * converter's mapper is built from Spring Boot's builder so spring.jackson settings and modules
+ * apply to both formats. Medicine lists use the compact rows of docs/medicine-api.cddl.
+ */
+@Configuration
+public class CborConfig {
+    
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper cborMapper = builder.factory(new CBORFactory()).build();
+        return new MappingJackson2CborHttpMessageConverter(cborMapper);
+    }
+}
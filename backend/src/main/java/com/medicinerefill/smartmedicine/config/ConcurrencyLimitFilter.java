@@ -0,0 +1,90 @@
+package com.medicinerefill.smartmedicine.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds load with an immediate {@code 503} once more requests are in flight than the
+ * {@link GradientConcurrencyLimit} allows, instead of letting them queue on Tomcat threads for a
+ * database connection. Runs in the security chain ahead of JWT authentication, so rejected
+ * requests do no work. Low-priority routes may only fill part of the limit, which keeps room for
+ * high-priority ones while the limit is shrinking.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    
+    @Autowired
+    private ConcurrencyLimitProperties properties;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private GradientConcurrencyLimit limit;
+    
+    @PostConstruct
+    void init() {
+        limit = new GradientConcurrencyLimit(properties.getInitialLimit(), properties.getMinLimit(),
+                properties.getMaxLimit(), properties.getRttTolerance(), properties.getSmoothing(),
+                properties.getQueueSize(), properties.getShortWindow(), properties.getLongWindow());
+        meterRegistry.gauge("http.concurrency_limit.limit", limit, GradientConcurrencyLimit::getLimit);
+        meterRegistry.gauge("http.concurrency_limit.inflight", limit, GradientConcurrencyLimit::getInflight);
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ConcurrencyLimitProperties.Rule rule = findRule(request);
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        int inflight = limit.tryAcquire(properties.getShares().getOrDefault(rule.getPriority(), 1.0));
+        if (inflight < 0) {
+            meterRegistry.counter("http.concurrency_limit.rejected", "rule", rule.getName(),
+                    "priority", rule.getPriority().name().toLowerCase()).increment();
+            long retryAfterSeconds = Math.max(1, properties.getRetryAfter().toSeconds());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Server busy, retry in " + retryAfterSeconds + " s\"}");
+            return;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limit.release(inflight, System.nanoTime() - start);
+        }
+    }
+    
+    private ConcurrencyLimitProperties.Rule findRule(HttpServletRequest request) {
+        String path = request.getServletPath();
+        for (ConcurrencyLimitProperties.Rule rule : properties.getRules()) {
+            if ((rule.getMethod() == null || rule.getMethod().equalsIgnoreCase(request.getMethod()))
+                    && pathMatcher.match(rule.getPattern(), path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,187 @@
+package com.medicinerefill.smartmedicine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adaptive concurrency limit under {@code app.concurrency-limit}. The first rule whose method and
+ * path pattern match a request gives its priority; requests matching no rule are not limited.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.concurrency-limit")
+public class ConcurrencyLimitProperties {
+    
+    public enum Priority { HIGH, NORMAL, LOW }
+    
+    private boolean enabled = true;
+    
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 200;
+    
+    // Latency may grow by this factor over the long-term average before the limit shrinks
+    private double rttTolerance = 1.5;
+    
+    // Weight of each new estimate in the limit
+    private double smoothing = 0.2;
+    
+    // Growth per sample while latency is within tolerance
+    private int queueSize = 4;
+    
+    // Samples in the short and long latency averages
+    private int shortWindow = 10;
+    private int longWindow = 600;
+    
+    private Duration retryAfter = Duration.ofSeconds(1);
+    
+    // Fraction of the limit that requests of each priority may fill
+    private Map<Priority, Double> shares = new EnumMap<>(Map.of(
+            Priority.HIGH, 1.0, Priority.NORMAL, 0.8, Priority.LOW, 0.5));
+    
+    private List<Rule> rules = new ArrayList<>();
+    
+    public static class Rule {
+        
+        private String name;
+        private String pattern;
+        // Any method when unset
+        private String method;
+        private Priority priority = Priority.NORMAL;
+        
+        // Getters and setters
+        public String getName() {
+            return name;
+        }
+        
+        public void setName(String name) {
+            this.name = name;
+        }
+        
+        public String getPattern() {
+            return pattern;
+        }
+        
+        public void setPattern(String pattern) {
+            this.pattern = pattern;
+        }
+        
+        public String getMethod() {
+            return method;
+        }
+        
+        public void setMethod(String method) {
+            this.method = method;
+        }
+        
+        public Priority getPriority() {
+            return priority;
+        }
+        
+        public void setPriority(Priority priority) {
+            this.priority = priority;
+        }
+    }
+    
+    // Getters and setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+    
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+    
+    public int getMinLimit() {
+        return minLimit;
+    }
+    
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+    
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+    
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+    
+    public double getRttTolerance() {
+        return rttTolerance;
+    }
+    
+    public void setRttTolerance(double rttTolerance) {
+        this.rttTolerance = rttTolerance;
+    }
+    
+    public double getSmoothing() {
+        return smoothing;
+    }
+    
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+    
+    public int getQueueSize() {
+        return queueSize;
+    }
+    
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+    
+    public int getShortWindow() {
+        return shortWindow;
+    }
+    
+    public void setShortWindow(int shortWindow) {
+        this.shortWindow = shortWindow;
+    }
+    
+    public int getLongWindow() {
+        return longWindow;
+    }
+    
+    public void setLongWindow(int longWindow) {
+        this.longWindow = longWindow;
+    }
+    
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+    
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+    
+    public Map<Priority, Double> getShares() {
+        return shares;
+    }
+    
+    public void setShares(Map<Priority, Double> shares) {
+        this.shares = shares;
+    }
+    
+    public List<Rule> getRules() {
+        return rules;
+    }
+    
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+}
@@ -0,0 +1,130 @@
+package com.medicinerefill.smartmedicine.config;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that adapts to observed latency (the gradient algorithm of Netflix's
+ * concurrency-limits). A short and a long moving average of request latency are kept; while the
+ * short one stays within {@code rttTolerance} of the long one the limit grows by about
+ * {@code queueSize} per sample, and once requests slow down (a saturated connection pool or a slow
+ * database) it shrinks in proportion. The long average drifts towards a sustained new latency and
+ * is pulled back down after a slow period ends.
+ *
+ * Releasing a request only adds its sample to counters; every {@value #WINDOW} samples the thread that
+ * completes the window folds them into the averages and the limit, and the others carry on.
+ */
+public final class GradientConcurrencyLimit {
+    
+    private static final int WINDOW = 10;
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final int queueSize;
+    private final double shortAlpha;
+    private final double longAlpha;
+    
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+    // Samples since the last update: latency sum, count, and how many came in near the limit
+    private final LongAdder rttSum = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder busySamples = new LongAdder();
+    private final AtomicBoolean updating = new AtomicBoolean();
+    // Moving averages of latency in nanoseconds, 0 until the first update; only the updating thread uses them
+    private double shortRtt;
+    private double longRtt;
+    
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double rttTolerance,
+                                    double smoothing, int queueSize, int shortWindow, int longWindow) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.queueSize = queueSize;
+        this.shortAlpha = 2.0 / (shortWindow + 1);
+        this.longAlpha = 2.0 / (longWindow + 1);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+    
+    /**
+     * Admits a request if fewer than {@code share} of the limit are in flight. Returns the number
+     * in flight including this request, to pass to {@link #release}, or -1 if it is rejected.
+     */
+    public int tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                return -1;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+    
+    /**
+     * Ends a request admitted by {@link #tryAcquire} that took {@code rttNanos}.
+     */
+    public void release(int inflightAtStart, long rttNanos) {
+        inflight.decrementAndGet();
+        onSample(inflightAtStart, rttNanos);
+    }
+    
+    public int getLimit() {
+        return (int) limit;
+    }
+    
+    public int getInflight() {
+        return inflight.get();
+    }
+    
+    private void onSample(int inflightAtStart, long rttNanos) {
+        rttSum.add(rttNanos);
+        // Far below the limit, latency says nothing about how much more the service could take
+        if (inflightAtStart >= limit / 2) {
+            busySamples.increment();
+        }
+        samples.increment();
+        if (samples.sum() >= WINDOW && updating.compareAndSet(false, true)) {
+            try {
+                update();
+            } finally {
+                updating.set(false);
+            }
+        }
+    }
+    
+    private void update() {
+        // A sample racing the reset may count towards the next window
+        long count = samples.sumThenReset();
+        if (count == 0) {
+            return;
+        }
+        double rtt = (double) rttSum.sumThenReset() / count;
+        long busy = Math.min(count, busySamples.sumThenReset());
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+        } else {
+            // The window's average taken as count samples, so the windows stay counted in samples
+            shortRtt += (rtt - shortRtt) * (1 - Math.pow(1 - shortAlpha, count));
+            longRtt += (rtt - longRtt) * (1 - Math.pow(1 - longAlpha, count));
+        }
+        // Latency has recovered well below the baseline: pull the baseline down faster than its window would
+        if (longRtt / shortRtt > 2) {
+            longRtt *= Math.pow(0.95, count);
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+        double next = limit;
+        for (long i = 0; i < busy; i++) {
+            double target = next * gradient + queueSize;
+            next = Math.max(minLimit, Math.min(maxLimit, next * (1 - smoothing) + target * smoothing));
+        }
+        limit = next;
+    }
+}
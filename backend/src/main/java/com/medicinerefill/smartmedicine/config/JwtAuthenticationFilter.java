@@ -1,6 +1,10 @@
 package com.medicinerefill.smartmedicine.config;
 
 import com.medicinerefill.smartmedicine.service.CustomUserDetailsService;
+import com.medicinerefill.smartmedicine.service.TokenRevocationList;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -27,16 +31,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
     
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) 
             throws ServletException, IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "anonymous";
         try {
             String jwt = getJwtFromRequest(request);
             
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String userEmail = tokenProvider.getUserEmailFromJWT(jwt);
+            if (StringUtils.hasText(jwt)) {
+                outcome = "invalid";
+            }
+            
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.parseClaims(jwt) : null;
+            if (claims != null && claims.getId() != null && tokenRevocationList.isRevoked(claims.getId())) {
+                outcome = "revoked";
+            } else if (claims != null) {
+                String userEmail = claims.getSubject();
                 
                 UserDetails userDetails = customUserDetailsService.loadUserByUsername(userEmail);
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
@@ -44,11 +63,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
+                outcome = "authenticated";
             }
         } catch (Exception ex) {
+            outcome = "error";
             logger.error("Could not set user authentication in security context", ex);
         }
         
+        // Only the token check and principal lookup are timed, not the rest of the chain
+        sample.stop(Timer.builder("security.jwt.filter")
+                .description("JWT validation, revocation check and principal lookup")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        
         filterChain.doFilter(request, response);
     }
     
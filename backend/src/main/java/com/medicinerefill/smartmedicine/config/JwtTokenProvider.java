@@ -10,7 +10,9 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.time.Instant;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtTokenProvider {
@@ -29,45 +31,45 @@ public class JwtTokenProvider {
     
     public String generateToken(Authentication authentication) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
-        
-        Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationInMs);
-        
-        return Jwts.builder()
-                .setSubject(userPrincipal.getUsername())
-                .setIssuedAt(new Date())
-                .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
-                .compact();
+        return generateTokenFromEmail(userPrincipal.getUsername());
     }
     
     public String generateTokenFromEmail(String email) {
-        Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationInMs);
-        
+        return generateTokenFromEmail(email, UUID.randomUUID().toString(), getExpiryFromNow());
+    }
+    
+    /**
+     * Access token for {@code email} with the given jti, so it can be revoked before {@code expiresAt}.
+     */
+    public String generateTokenFromEmail(String email, String jti, Instant expiresAt) {
         return Jwts.builder()
                 .setSubject(email)
+                .setId(jti)
                 .setIssuedAt(new Date())
-                .setExpiration(expiryDate)
+                .setExpiration(Date.from(expiresAt))
                 .signWith(getSigningKey(), SignatureAlgorithm.HS512)
                 .compact();
     }
     
-    public String getUserEmailFromJWT(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return claims.getSubject();
+    public Instant getExpiryFromNow() {
+        return Instant.now().plusMillis(jwtExpirationInMs);
     }
     
-    public boolean validateToken(String authToken) {
+    public int getExpirationInMs() {
+        return jwtExpirationInMs;
+    }
+    
+    /**
+     * Claims of a valid token, or null if the token is malformed, badly signed or expired; parses
+     * once where validateToken plus getUserEmailFromJWT would parse twice.
+     */
+    public Claims parseClaims(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(authToken);
-            return true;
+            return Jwts.parserBuilder()
+                    .setSigningKey(getSigningKey())
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
         } catch (SecurityException ex) {
             logger.error("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
@@ -79,6 +81,20 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException ex) {
             logger.error("JWT claims string is empty.");
         }
-        return false;
+        return null;
+    }
+    
+    public String getUserEmailFromJWT(String token) {
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(getSigningKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        
+        return claims.getSubject();
+    }
+    
+    public boolean validateToken(String authToken) {
+        return parseClaims(authToken) != null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,171 @@
+package com.medicinerefill.smartmedicine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notification pipeline settings under {@code app.notifications}. Each channel gets its own
+ * bounded queue and workers, so a slow or failing provider only backs up its own queue.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.notifications")
+public class NotificationProperties {
+    
+    // Channels for users who have not chosen any
+    private List<String> defaultChannels = new ArrayList<>(List.of("email"));
+    
+    private Map<String, Channel> channels = new HashMap<>();
+    
+    private Suppression suppression = new Suppression();
+    
+    public Channel channel(String name) {
+        return channels.getOrDefault(name, new Channel());
+    }
+    
+    public static class Channel {
+        
+        private boolean enabled = true;
+        // Notifications beyond this are rejected rather than queued
+        private int queueCapacity = 1000;
+        private int batchSize = 1;
+        // Worker threads draining the queue
+        private int concurrency = 1;
+        // Including the first attempt
+        private int maxAttempts = 3;
+        // Doubled after each failed attempt
+        private Duration retryBackoff = Duration.ofSeconds(10);
+        
+        // Getters and setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+        
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+        
+        public int getBatchSize() {
+            return batchSize;
+        }
+        
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+        
+        public int getConcurrency() {
+            return concurrency;
+        }
+        
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+        
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+        
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+        
+        public Duration getRetryBackoff() {
+            return retryBackoff;
+        }
+        
+        public void setRetryBackoff(Duration retryBackoff) {
+            this.retryBackoff = retryBackoff;
+        }
+    }
+    
+    /**
+     * When a medicine due within the reminder window is reminded again: on the first day it falls
+     * into a new milestone bucket (by default 7, 3, 1 and 0 days before the refill date) and, if
+     * {@code onStatusChange} is set, when its status changes. A bucket is the smallest milestone at
+     * or above the days left; medicines beyond the largest milestone are not reminded.
+     */
+    public static class Suppression {
+        
+        private boolean enabled = true;
+        private List<Integer> milestones = new ArrayList<>(List.of(7, 3, 1, 0));
+        private boolean onStatusChange = true;
+        
+        /** Milestones in ascending order, without duplicates. */
+        public List<Integer> sortedMilestones() {
+            return milestones.stream().filter(m -> m >= 0).distinct().sorted().toList();
+        }
+        
+        /** Bucket for {@code daysLeft}, or -1 beyond the largest milestone. */
+        public int bucketFor(long daysLeft) {
+            for (int milestone : sortedMilestones()) {
+                if (daysLeft <= milestone) {
+                    return milestone;
+                }
+            }
+            return -1;
+        }
+        
+        // Getters and setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public List<Integer> getMilestones() {
+            return milestones;
+        }
+        
+        public void setMilestones(List<Integer> milestones) {
+            this.milestones = milestones;
+        }
+        
+        public boolean isOnStatusChange() {
+            return onStatusChange;
+        }
+        
+        public void setOnStatusChange(boolean onStatusChange) {
+            this.onStatusChange = onStatusChange;
+        }
+    }
+    
+    // Getters and setters
+    public List<String> getDefaultChannels() {
+        return defaultChannels;
+    }
+    
+    public void setDefaultChannels(List<String> defaultChannels) {
+        this.defaultChannels = defaultChannels;
+    }
+    
+    public Map<String, Channel> getChannels() {
+        return channels;
+    }
+    
+    public void setChannels(Map<String, Channel> channels) {
+        this.channels = channels;
+    }
+    
+    public Suppression getSuppression() {
+        return suppression;
+    }
+    
+    public void setSuppression(Suppression suppression) {
+        this.suppression = suppression;
+    }
+}
@@ -0,0 +1,146 @@
+package com.medicinerefill.smartmedicine.config;
+
+import com.medicinerefill.smartmedicine.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-route token-bucket rate limiting keyed by user id or client IP. Runs in the security chain
+ * right after JWT authentication, so limited requests are rejected before BCrypt checks and
+ * controllers. Rejections get {@code 429} with {@code Retry-After}.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+    
+    @Autowired
+    private RateLimitProperties properties;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RateLimitProperties.Rule rule = findRule(request);
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        long now = System.nanoTime();
+        String key = rule.getName() + ":" + clientKey(rule, request);
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(rule.getCapacity(),
+                    rule.getRefillPeriod().toNanos(), now));
+            if (buckets.size() > properties.getMaxBuckets()) {
+                evictBuckets(now);
+            }
+        }
+        
+        long remaining = bucket.tryConsume(now);
+        response.setHeader("X-RateLimit-Limit", String.valueOf(bucket.getCapacity()));
+        if (remaining >= 0) {
+            response.setHeader("X-RateLimit-Remaining", String.valueOf(remaining));
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(-remaining + 999_999_999L));
+        meterRegistry.counter("http.rate_limit.rejected", "rule", rule.getName()).increment();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setHeader("X-RateLimit-Remaining", "0");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Too many requests, retry in " + retryAfterSeconds + " s\"}");
+    }
+    
+    /**
+     * Drops full buckets, which hold no state. Runs periodically and whenever the map grows past
+     * max-buckets; if every bucket is still in use, arbitrary ones are dropped to stay bounded.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void evictFullBuckets() {
+        evictBuckets(System.nanoTime());
+    }
+    
+    private void evictBuckets(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+            int excess = buckets.size() - properties.getMaxBuckets();
+            if (excess > 0) {
+                logger.warn("Rate-limit buckets over capacity, dropping {} active buckets", excess);
+                Iterator<TokenBucket> it = buckets.values().iterator();
+                while (excess-- > 0 && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+    
+    private RateLimitProperties.Rule findRule(HttpServletRequest request) {
+        String path = request.getServletPath();
+        for (RateLimitProperties.Rule rule : properties.getRules()) {
+            if ((rule.getMethod() == null || rule.getMethod().equalsIgnoreCase(request.getMethod()))
+                    && pathMatcher.match(rule.getPattern(), path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+    
+    private String clientKey(RateLimitProperties.Rule rule, HttpServletRequest request) {
+        if (rule.getKey() == RateLimitProperties.KeyType.USER) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof User user) {
+                return "u" + user.getId();
+            }
+        }
+        if (properties.isTrustForwardedFor()) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (StringUtils.hasText(forwardedFor)) {
+                return "ip" + forwardedFor.split(",")[0].trim();
+            }
+        }
+        return "ip" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,124 @@
+package com.medicinerefill.smartmedicine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rate-limit rules under {@code app.rate-limit}. The first rule whose method and path pattern
+ * match a request applies; requests matching no rule are not limited.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+    
+    public enum KeyType { USER, IP }
+    
+    private boolean enabled = true;
+    
+    // Upper bound on live buckets; full buckets are evicted first
+    private int maxBuckets = 100_000;
+    
+    // Use the first X-Forwarded-For address as the client IP (only behind a trusted proxy)
+    private boolean trustForwardedFor = false;
+    
+    private List<Rule> rules = new ArrayList<>();
+    
+    public static class Rule {
+        
+        private String name;
+        private String pattern;
+        // Any method when unset
+        private String method;
+        // USER falls back to the client IP for anonymous requests
+        private KeyType key = KeyType.USER;
+        private int capacity;
+        // Time to earn back one token
+        private Duration refillPeriod;
+        
+        // Getters and setters
+        public String getName() {
+            return name;
+        }
+        
+        public void setName(String name) {
+            this.name = name;
+        }
+        
+        public String getPattern() {
+            return pattern;
+        }
+        
+        public void setPattern(String pattern) {
+            this.pattern = pattern;
+        }
+        
+        public String getMethod() {
+            return method;
+        }
+        
+        public void setMethod(String method) {
+            this.method = method;
+        }
+        
+        public KeyType getKey() {
+            return key;
+        }
+        
+        public void setKey(KeyType key) {
+            this.key = key;
+        }
+        
+        public int getCapacity() {
+            return capacity;
+        }
+        
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+        
+        public Duration getRefillPeriod() {
+            return refillPeriod;
+        }
+        
+        public void setRefillPeriod(Duration refillPeriod) {
+            this.refillPeriod = refillPeriod;
+        }
+    }
+    
+    // Getters and setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+    
+    public void setMaxBuckets(int maxBuckets) {
+        this.maxBuckets = maxBuckets;
+    }
+    
+    public boolean isTrustForwardedFor() {
+        return trustForwardedFor;
+    }
+    
+    public void setTrustForwardedFor(boolean trustForwardedFor) {
+        this.trustForwardedFor = trustForwardedFor;
+    }
+    
+    public List<Rule> getRules() {
+        return rules;
+    }
+    
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+}
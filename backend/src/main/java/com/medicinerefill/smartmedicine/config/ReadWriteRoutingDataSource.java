@@ -0,0 +1,48 @@
+package com.medicinerefill.smartmedicine.config;
+
+import com.medicinerefill.smartmedicine.model.User;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the replica pool and everything else to the primary.
+ * Must be wrapped in a LazyConnectionDataSourceProxy so the lookup happens after the
+ * transaction's read-only flag has been set.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+    
+    private final ReadYourWritesGuard readYourWritesGuard;
+    
+    public ReadWriteRoutingDataSource(ReadYourWritesGuard readYourWritesGuard) {
+        this.readYourWritesGuard = readYourWritesGuard;
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Long userId = currentUserId();
+        
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return readYourWritesGuard.mustReadFromPrimary(userId) ? Route.PRIMARY : Route.REPLICA;
+        }
+        
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            readYourWritesGuard.recordWrite(userId);
+        }
+        return Route.PRIMARY;
+    }
+    
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
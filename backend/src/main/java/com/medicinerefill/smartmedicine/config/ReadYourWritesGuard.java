@@ -0,0 +1,53 @@
+package com.medicinerefill.smartmedicine.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which users wrote recently so their reads stay on the primary
+ * until the replica has had time to catch up.
+ */
+@Component
+public class ReadYourWritesGuard {
+    
+    private static final int PRUNE_THRESHOLD = 10_000;
+    
+    private final Map<Long, Long> lastWriteByUser = new ConcurrentHashMap<>();
+    
+    @Value("${app.datasource.routing.read-your-writes-window:5s}")
+    private Duration window;
+    
+    public void recordWrite(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        lastWriteByUser.put(userId, System.nanoTime());
+        if (lastWriteByUser.size() > PRUNE_THRESHOLD) {
+            pruneExpired();
+        }
+    }
+    
+    public boolean mustReadFromPrimary(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        Long lastWrite = lastWriteByUser.get(userId);
+        if (lastWrite == null) {
+            return false;
+        }
+        if (System.nanoTime() - lastWrite < window.toNanos()) {
+            return true;
+        }
+        lastWriteByUser.remove(userId, lastWrite);
+        return false;
+    }
+    
+    private void pruneExpired() {
+        long cutoff = System.nanoTime() - window.toNanos();
+        lastWriteByUser.values().removeIf(lastWrite -> lastWrite - cutoff < 0);
+    }
+}
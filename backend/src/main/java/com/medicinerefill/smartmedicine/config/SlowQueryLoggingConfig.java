@@ -0,0 +1,82 @@
+package com.medicinerefill.smartmedicine.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Logs statements slower than app.logging.slow-query.threshold instead of echoing every statement.
+ * The application DataSource is wrapped in a datasource-proxy, so Hibernate and JdbcTemplate
+ * statements are both timed. Only the SQL text is logged, never bound parameters, which hold
+ * names and emails. Enabled with app.logging.slow-query.enabled=true (the prod profile).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.logging.slow-query", name = "enabled", havingValue = "true")
+public class SlowQueryLoggingConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLoggingConfig.class);
+    
+    // Static, as post-processors are created before the other beans of their configuration
+    @Bean
+    public static BeanPostProcessor slowQueryDataSourceWrapper(
+            @Value("${app.logging.slow-query.threshold:200ms}") Duration threshold,
+            @Value("${app.logging.slow-query.max-sql-length:2000}") int maxSqlLength) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Only the DataSource the application uses; with read/write routing its pools sit behind it
+                if (bean instanceof DataSource dataSource && beanName.equals("dataSource")) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new SlowQueryListener(threshold.toMillis(), maxSqlLength))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+    
+    private static class SlowQueryListener implements QueryExecutionListener {
+        
+        private final long thresholdMs;
+        private final int maxSqlLength;
+        
+        SlowQueryListener(long thresholdMs, int maxSqlLength) {
+            this.thresholdMs = thresholdMs;
+            this.maxSqlLength = maxSqlLength;
+        }
+        
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+        
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (execInfo.getElapsedTime() < thresholdMs) {
+                return;
+            }
+            String sql = queryInfoList.stream().map(QueryInfo::getQuery).distinct().collect(Collectors.joining("; "));
+            if (sql.length() > maxSqlLength) {
+                sql = sql.substring(0, maxSqlLength) + "...";
+            }
+            logger.warn("Slow query {} {} {} {}", kv("duration_ms", execInfo.getElapsedTime()),
+                    kv("batch_size", Math.max(1, execInfo.getBatchSize())), kv("success", execInfo.isSuccess()),
+                    kv("sql", sql));
+        }
+    }
+}
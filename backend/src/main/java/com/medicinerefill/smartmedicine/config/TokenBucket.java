@@ -0,0 +1,51 @@
+package com.medicinerefill.smartmedicine.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. Instead of a token count and a refill timestamp the state is the single
+ * time at which the bucket will be full again (the GCRA form of a token bucket), so taking a
+ * token is one compare-and-set.
+ */
+class TokenBucket {
+    
+    private final long capacity;
+    private final long nanosPerToken;
+    private final AtomicLong fullAt;
+    
+    TokenBucket(long capacity, long nanosPerToken, long now) {
+        this.capacity = capacity;
+        this.nanosPerToken = nanosPerToken;
+        this.fullAt = new AtomicLong(now);
+    }
+    
+    /**
+     * Takes one token. Returns the number of tokens left, or {@code -nanos} until a token is
+     * available if the bucket is empty.
+     */
+    long tryConsume(long now) {
+        long burst = capacity * nanosPerToken;
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + nanosPerToken;
+            long debt = next - now;
+            if (debt > burst) {
+                return -(debt - burst);
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return (burst - debt) / nanosPerToken;
+            }
+        }
+    }
+    
+    /**
+     * A full bucket carries no state, so it can be dropped and recreated without changing limits.
+     */
+    boolean isFull(long now) {
+        return fullAt.get() <= now;
+    }
+    
+    long getCapacity() {
+        return capacity;
+    }
+}
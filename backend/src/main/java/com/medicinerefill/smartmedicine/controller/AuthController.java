@@ -2,10 +2,15 @@ package com.medicinerefill.smartmedicine.controller;
 
 import com.medicinerefill.smartmedicine.dto.JwtAuthenticationResponse;
 import com.medicinerefill.smartmedicine.dto.LoginRequest;
+import com.medicinerefill.smartmedicine.dto.RefreshTokenRequest;
 import com.medicinerefill.smartmedicine.dto.SignUpRequest;
 import com.medicinerefill.smartmedicine.model.User;
 import com.medicinerefill.smartmedicine.repository.UserRepository;
 import com.medicinerefill.smartmedicine.config.JwtTokenProvider;
+import com.medicinerefill.smartmedicine.service.CustomUserDetailsService;
+import com.medicinerefill.smartmedicine.service.RefreshTokenService;
+import com.medicinerefill.smartmedicine.service.TokenRevocationList;
+import io.jsonwebtoken.Claims;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -17,6 +22,9 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -33,6 +41,15 @@ public class AuthController {
     @Autowired
     private JwtTokenProvider tokenProvider;
     
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+    
     @PostMapping("/signin")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
         try {
@@ -45,14 +62,8 @@ public class AuthController {
             
             SecurityContextHolder.getContext().setAuthentication(authentication);
             
-            String jwt = tokenProvider.generateToken(authentication);
             User user = (User) authentication.getPrincipal();
-            
-            JwtAuthenticationResponse.UserSummary userSummary = new JwtAuthenticationResponse.UserSummary(
-                    user.getId(), user.getName(), user.getEmail()
-            );
-            
-            return ResponseEntity.ok(new JwtAuthenticationResponse(jwt, userSummary));
+            return ResponseEntity.ok(issueTokens(user));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body("{\"error\": \"Invalid email or password\"}");
@@ -70,25 +81,56 @@ public class AuthController {
         User user = new User(signUpRequest.getName(),
                            signUpRequest.getEmail(),
                            passwordEncoder.encode(signUpRequest.getPassword()));
+        user.setRole(customUserDetailsService.roleFor(user.getEmail()));
         
         User result = userRepository.save(user);
         
-        // Generate JWT token
-        String jwt = tokenProvider.generateTokenFromEmail(result.getEmail());
-        
-        JwtAuthenticationResponse.UserSummary userSummary = new JwtAuthenticationResponse.UserSummary(
-                result.getId(), result.getName(), result.getEmail()
-        );
+        return ResponseEntity.ok(issueTokens(result));
+    }
+    
+    // Exchanges a refresh token for a new access token and the next refresh token
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        String jti = UUID.randomUUID().toString();
+        Instant expiresAt = tokenProvider.getExpiryFromNow();
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken(), jti, expiresAt);
+        User user = rotation != null ? userRepository.findById(rotation.getUserId()).orElse(null) : null;
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("{\"error\": \"Invalid refresh token\"}");
+        }
         
-        return ResponseEntity.ok(new JwtAuthenticationResponse(jwt, userSummary));
+        String jwt = tokenProvider.generateTokenFromEmail(user.getEmail(), jti, expiresAt);
+        return ResponseEntity.ok(new JwtAuthenticationResponse(jwt, tokenProvider.getExpirationInMs() / 1000,
+                rotation.getRefreshToken(), summaryOf(user)));
     }
     
+    // Revokes the presented access token and, when given, the refresh token's family
     @PostMapping("/logout")
-    public ResponseEntity<?> logout() {
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                    @RequestBody(required = false) RefreshTokenRequest request) {
+        revokeAccessToken(authorization);
+        if (request != null && request.getRefreshToken() != null) {
+            refreshTokenService.revoke(request.getRefreshToken());
+        }
         SecurityContextHolder.clearContext();
         return ResponseEntity.ok("{\"message\": \"User logged out successfully\"}");
     }
     
+    // Signs out every device of the account
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAll(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                       Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User user)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("{\"error\": \"User not authenticated\"}");
+        }
+        refreshTokenService.revokeAll(user.getId());
+        revokeAccessToken(authorization);
+        SecurityContextHolder.clearContext();
+        return ResponseEntity.ok("{\"message\": \"All sessions logged out\"}");
+    }
+    
     @GetMapping("/me")
     public ResponseEntity<?> getCurrentUser(Authentication authentication) {
         if (authentication == null || authentication.getPrincipal() == null) {
@@ -97,10 +139,30 @@ public class AuthController {
         }
         
         User user = (User) authentication.getPrincipal();
-        JwtAuthenticationResponse.UserSummary userSummary = new JwtAuthenticationResponse.UserSummary(
-                user.getId(), user.getName(), user.getEmail()
-        );
-        
-        return ResponseEntity.ok(userSummary);
+        return ResponseEntity.ok(summaryOf(user));
+    }
+    
+    private JwtAuthenticationResponse issueTokens(User user) {
+        String jti = UUID.randomUUID().toString();
+        Instant expiresAt = tokenProvider.getExpiryFromNow();
+        String jwt = tokenProvider.generateTokenFromEmail(user.getEmail(), jti, expiresAt);
+        String refreshToken = refreshTokenService.issue(user.getId(), jti, expiresAt);
+        return new JwtAuthenticationResponse(jwt, tokenProvider.getExpirationInMs() / 1000, refreshToken,
+                summaryOf(user));
+    }
+    
+    private void revokeAccessToken(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return;
+        }
+        Claims claims = tokenProvider.parseClaims(authorization.substring(7));
+        // Tokens issued before revocation support have no jti; they expire on their own
+        if (claims != null && claims.getId() != null) {
+            tokenRevocationList.revoke(claims.getId(), claims.getExpiration().toInstant());
+        }
+    }
+    
+    private static JwtAuthenticationResponse.UserSummary summaryOf(User user) {
+        return new JwtAuthenticationResponse.UserSummary(user.getId(), user.getName(), user.getEmail());
     }
 }
\ No newline at end of file
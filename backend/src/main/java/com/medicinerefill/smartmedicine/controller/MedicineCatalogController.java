@@ -0,0 +1,55 @@
+package com.medicinerefill.smartmedicine.controller;
+
+import com.medicinerefill.smartmedicine.model.MedicineCatalogEntry;
+import com.medicinerefill.smartmedicine.service.MedicineCatalogService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/medicine-catalog")
+public class MedicineCatalogController {
+    
+    private static final int MAX_SUGGESTIONS = 50;
+    
+    @Autowired
+    private MedicineCatalogService medicineCatalogService;
+    
+    // Autocomplete for the add-medicine form
+    @GetMapping("/search")
+    public ResponseEntity<List<Map<String, Object>>> search(@RequestParam("q") String query,
+                                                            @RequestParam(defaultValue = "10") int limit) {
+        List<MedicineCatalogEntry> entries = medicineCatalogService.search(query,
+                Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+        
+        List<Map<String, Object>> suggestions = new ArrayList<>(entries.size());
+        for (MedicineCatalogEntry entry : entries) {
+            suggestions.add(toMap(entry));
+        }
+        
+        return ResponseEntity.ok(suggestions);
+    }
+    
+    // Resolves the catalogId of compact (CBOR) medicine rows, which carry no refillUrl
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getEntry(@PathVariable Long id) {
+        MedicineCatalogEntry entry = medicineCatalogService.find(id);
+        if (entry == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(toMap(entry));
+    }
+    
+    private Map<String, Object> toMap(MedicineCatalogEntry entry) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", entry.getId());
+        map.put("name", entry.getDisplayName());
+        map.put("refillUrl", entry.getRefillUrl());
+        return map;
+    }
+}
@@ -1,67 +1,121 @@
 package com.medicinerefill.smartmedicine.controller;
 
+import com.medicinerefill.smartmedicine.dto.ForecastRequest;
+import com.medicinerefill.smartmedicine.dto.MedicineListView;
 import com.medicinerefill.smartmedicine.dto.MedicineRequest;
 import com.medicinerefill.smartmedicine.dto.MedicineResponse;
+import com.medicinerefill.smartmedicine.model.DosingSchedule;
 import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.MedicineCatalogEntry;
+import com.medicinerefill.smartmedicine.model.Profile;
+import com.medicinerefill.smartmedicine.model.RefillForecaster;
 import com.medicinerefill.smartmedicine.model.User;
 import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import com.medicinerefill.smartmedicine.service.DoseWriteBuffer;
+import com.medicinerefill.smartmedicine.service.MedicineArchive;
+import com.medicinerefill.smartmedicine.service.MedicineCatalogService;
+import com.medicinerefill.smartmedicine.service.MedicineStatusCounters;
+import com.medicinerefill.smartmedicine.service.OptimisticRetry;
+import com.medicinerefill.smartmedicine.service.ProfileAccess;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/medicines")
 public class MedicineController {
     
+    private static final int MAX_FORECAST_SCENARIOS = 100;
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+    private static final int MAX_HISTORY_PAGE_SIZE = 200;
+    
     @Autowired
     private MedicineRepository medicineRepository;
     
+    @Autowired
+    private MedicineCatalogService medicineCatalogService;
+    
+    @Autowired
+    private DoseWriteBuffer doseWriteBuffer;
+    
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    
+    @Autowired
+    private MedicineStatusCounters medicineStatusCounters;
+    
+    @Autowired
+    private ProfileAccess profileAccess;
+    
+    @Autowired
+    private MedicineArchive medicineArchive;
+    
+    @Transactional(readOnly = true)
     @GetMapping
-    public ResponseEntity<List<MedicineResponse>> getAllMedicines(Authentication authentication) {
+    public ResponseEntity<MedicineListView> getAllMedicines(@RequestParam(required = false) Long profileId,
+                                                           Authentication authentication) {
         User currentUser = (User) authentication.getPrincipal();
-        List<Medicine> medicines = medicineRepository.findByUserOrderByRefillDateAsc(currentUser);
-        
-        List<MedicineResponse> response = medicines.stream()
-                .map(MedicineResponse::new)
-                .collect(Collectors.toList());
+        List<Medicine> medicines;
+        if (profileId == null) {
+            medicines = medicineRepository.findByUserOrderByRefillDateAsc(currentUser);
+        } else if (profileAccess.find(profileId) != null) {
+            medicines = medicineRepository.findByProfileIdOrderByRefillDateAsc(profileId);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(new MedicineListView(medicines, medicineCatalogService::getRefillUrl));
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<MedicineResponse> getMedicineById(@PathVariable Long id, Authentication authentication) {
-        User currentUser = (User) authentication.getPrincipal();
         Medicine medicine = medicineRepository.findById(id)
-                .filter(m -> m.getUser().getId().equals(currentUser.getId()))
+                .filter(profileAccess::canAccess)
                 .orElse(null);
         
         if (medicine == null) {
             return ResponseEntity.notFound().build();
         }
         
-        return ResponseEntity.ok(new MedicineResponse(medicine));
+        return ResponseEntity.ok(toResponse(medicine));
     }
     
     @PostMapping
-    public ResponseEntity<MedicineResponse> createMedicine(@Valid @RequestBody MedicineRequest request, 
-                                                         Authentication authentication) {
-        User currentUser = (User) authentication.getPrincipal();
+    public ResponseEntity<?> createMedicine(@Valid @RequestBody MedicineRequest request,
+                                            Authentication authentication) {
+        DosingSchedule schedule;
+        try {
+            schedule = request.getSchedule() != null ? request.getSchedule().toSchedule() : null;
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+        // Without a profileId the medicine is for the account holder
+        Profile profile = request.getProfileId() != null
+                ? profileAccess.find(request.getProfileId()) : profileAccess.defaultProfile();
+        if (profile == null) {
+            return badRequest("Unknown profile");
+        }
         
         Medicine medicine = new Medicine(
                 request.getMedicineName(),
                 request.getDosagePerDay(),
                 request.getTotalQuantity(),
                 request.getStartDate(),
-                currentUser
+                profile
         );
+        medicine.setSchedule(schedule);
         
         if (request.getCurrentQuantity() != null) {
             medicine.setCurrentQuantity(request.getCurrentQuantity());
@@ -75,58 +129,91 @@ public class MedicineController {
             medicine.setLowStockThreshold(request.getLowStockThreshold());
         }
         
+        medicine.setCatalogId(catalogIdFor(request.getMedicineName()));
+        
         Medicine savedMedicine = medicineRepository.save(medicine);
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(new MedicineResponse(savedMedicine));
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(savedMedicine));
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<MedicineResponse> updateMedicine(@PathVariable Long id,
-                                                         @Valid @RequestBody MedicineRequest request,
-                                                         Authentication authentication) {
-        User currentUser = (User) authentication.getPrincipal();
-        Medicine medicine = medicineRepository.findById(id)
-                .filter(m -> m.getUser().getId().equals(currentUser.getId()))
-                .orElse(null);
-        
-        if (medicine == null) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<?> updateMedicine(@PathVariable Long id,
+                                            @Valid @RequestBody MedicineRequest request,
+                                            Authentication authentication) {
+        DosingSchedule schedule;
+        try {
+            schedule = request.getSchedule() != null ? request.getSchedule().toSchedule() : null;
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
         }
-        
-        medicine.setMedicineName(request.getMedicineName());
-        medicine.setDosagePerDay(request.getDosagePerDay());
-        medicine.setTotalQuantity(request.getTotalQuantity());
-        medicine.setStartDate(request.getStartDate());
-        
-        if (request.getCurrentQuantity() != null) {
-            medicine.setCurrentQuantity(request.getCurrentQuantity());
+        Profile profile = request.getProfileId() != null ? profileAccess.find(request.getProfileId()) : null;
+        if (request.getProfileId() != null && profile == null) {
+            return badRequest("Unknown profile");
         }
-        
-        if (request.getNotificationsEnabled() != null) {
-            medicine.setNotificationsEnabled(request.getNotificationsEnabled());
-        }
-        
-        if (request.getLowStockThreshold() != null) {
-            medicine.setLowStockThreshold(request.getLowStockThreshold());
+        Long catalogId = catalogIdFor(request.getMedicineName());
+        
+        doseWriteBuffer.flush(id);
+        Medicine updatedMedicine = optimisticRetry.run(() -> {
+            Medicine medicine = medicineRepository.findById(id)
+                    .filter(profileAccess::canAccess)
+                    .orElse(null);
+            
+            if (medicine == null) {
+                return null;
+            }
+            
+            if (profile != null) {
+                medicine.setProfile(profile);
+            }
+            
+            medicine.setMedicineName(request.getMedicineName());
+            medicine.setCatalogId(catalogId);
+            medicine.setDosagePerDay(request.getDosagePerDay());
+            medicine.setTotalQuantity(request.getTotalQuantity());
+            medicine.setStartDate(request.getStartDate());
+            medicine.setSchedule(schedule);
+            
+            if (request.getCurrentQuantity() != null) {
+                medicine.setCurrentQuantity(request.getCurrentQuantity());
+            }
+            
+            if (request.getNotificationsEnabled() != null) {
+                medicine.setNotificationsEnabled(request.getNotificationsEnabled());
+            }
+            
+            if (request.getLowStockThreshold() != null) {
+                medicine.setLowStockThreshold(request.getLowStockThreshold());
+            }
+            
+            return medicineRepository.save(medicine);
+        });
+        
+        if (updatedMedicine == null) {
+            return ResponseEntity.notFound().build();
         }
+        doseWriteBuffer.evict(id);
         
-        Medicine updatedMedicine = medicineRepository.save(medicine);
-        
-        return ResponseEntity.ok(new MedicineResponse(updatedMedicine));
+        return ResponseEntity.ok(toResponse(updatedMedicine));
     }
     
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteMedicine(@PathVariable Long id, Authentication authentication) {
-        User currentUser = (User) authentication.getPrincipal();
-        Medicine medicine = medicineRepository.findById(id)
-                .filter(m -> m.getUser().getId().equals(currentUser.getId()))
-                .orElse(null);
-        
-        if (medicine == null) {
+        doseWriteBuffer.flush(id);
+        boolean deleted = optimisticRetry.run(() -> {
+            Medicine medicine = medicineRepository.findById(id)
+                    .filter(profileAccess::canAccess)
+                    .orElse(null);
+            if (medicine == null) {
+                return false;
+            }
+            medicineRepository.delete(medicine);
+            return true;
+        });
+        
+        if (!deleted) {
             return ResponseEntity.notFound().build();
         }
-        
-        medicineRepository.delete(medicine);
+        doseWriteBuffer.evict(id);
         
         Map<String, String> response = new HashMap<>();
         response.put("message", "Medicine deleted successfully");
@@ -137,73 +224,252 @@ public class MedicineController {
     @PostMapping("/{id}/take-dose")
     public ResponseEntity<MedicineResponse> takeDose(@PathVariable Long id, Authentication authentication) {
         User currentUser = (User) authentication.getPrincipal();
-        Medicine medicine = medicineRepository.findById(id)
-                .filter(m -> m.getUser().getId().equals(currentUser.getId()))
-                .orElse(null);
         
-        if (medicine == null) {
-            return ResponseEntity.notFound().build();
+        if (doseWriteBuffer.isWriteBehind()) {
+            // Acknowledged with the projected quantity; the decrement is stored on the next flush
+            return doseWriteBuffer.takeDose(id, currentUser.getId(), this::toResponse)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
         }
         
-        medicine.takeDose();
-        Medicine updatedMedicine = medicineRepository.save(medicine);
+        Medicine updatedMedicine = optimisticRetry.run(() -> {
+            Medicine medicine = medicineRepository.findById(id)
+                    .filter(profileAccess::canAccess)
+                    .orElse(null);
+            if (medicine == null) {
+                return null;
+            }
+            medicine.takeDose();
+            return medicineRepository.save(medicine);
+        });
+        
+        if (updatedMedicine == null) {
+            return ResponseEntity.notFound().build();
+        }
         
-        return ResponseEntity.ok(new MedicineResponse(updatedMedicine));
+        return ResponseEntity.ok(toResponse(updatedMedicine));
     }
     
     @PostMapping("/{id}/refill")
     public ResponseEntity<MedicineResponse> refillMedicine(@PathVariable Long id,
                                                          @RequestParam int quantity,
                                                          Authentication authentication) {
-        User currentUser = (User) authentication.getPrincipal();
-        Medicine medicine = medicineRepository.findById(id)
-                .filter(m -> m.getUser().getId().equals(currentUser.getId()))
-                .orElse(null);
-        
-        if (medicine == null) {
+        doseWriteBuffer.flush(id);
+        Medicine updatedMedicine = optimisticRetry.run(() -> {
+            Medicine medicine = medicineRepository.findById(id).orElse(null);
+            if (medicine == null) {
+                // Refilling an archived medicine moves it back first; a concurrent refill may have done so already
+                restore(id, (User) authentication.getPrincipal());
+                medicine = medicineRepository.findById(id).orElse(null);
+            }
+            
+            if (medicine == null || !profileAccess.canAccess(medicine)) {
+                return null;
+            }
+            
+            medicine.refillMedicine(quantity);
+            return medicineRepository.save(medicine);
+        });
+        
+        if (updatedMedicine == null) {
             return ResponseEntity.notFound().build();
         }
+        doseWriteBuffer.evict(id);
         
-        medicine.refillMedicine(quantity);
-        Medicine updatedMedicine = medicineRepository.save(medicine);
+        return ResponseEntity.ok(toResponse(updatedMedicine));
+    }
+    
+    /**
+     * Run-out dates for up to 100 what-if scenarios, e.g. a different quantity or a new taper
+     * for an existing medicine. Results are in request order; nothing is saved.
+     */
+    @Transactional(readOnly = true)
+    @PostMapping("/forecast")
+    public ResponseEntity<?> forecast(@RequestBody List<ForecastRequest> scenarios, Authentication authentication) {
+        if (scenarios.size() > MAX_FORECAST_SCENARIOS) {
+            return badRequest("At most " + MAX_FORECAST_SCENARIOS + " scenarios per request");
+        }
         
-        return ResponseEntity.ok(new MedicineResponse(updatedMedicine));
+        List<Long> ids = scenarios.stream()
+                .map(ForecastRequest::getMedicineId)
+                .filter(id -> id != null)
+                .distinct()
+                .toList();
+        Map<Long, Medicine> medicines = medicineRepository.findAllById(ids).stream()
+                .filter(profileAccess::canAccess)
+                .collect(Collectors.toMap(Medicine::getId, Function.identity()));
+        
+        LocalDate today = LocalDate.now();
+        List<Map<String, Object>> results = new ArrayList<>(scenarios.size());
+        for (ForecastRequest scenario : scenarios) {
+            results.add(forecast(scenario, medicines, today));
+        }
+        return ResponseEntity.ok(results);
     }
     
+    @Transactional(readOnly = true)
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<MedicineResponse>> getMedicinesByStatus(@PathVariable Medicine.MedicineStatus status,
-                                                                     Authentication authentication) {
+    public ResponseEntity<MedicineListView> getMedicinesByStatus(@PathVariable Medicine.MedicineStatus status,
+                                                                 Authentication authentication) {
         User currentUser = (User) authentication.getPrincipal();
         List<Medicine> medicines = medicineRepository.findByUserAndStatus(currentUser, status);
         
-        List<MedicineResponse> response = medicines.stream()
-                .map(MedicineResponse::new)
-                .collect(Collectors.toList());
+        return ResponseEntity.ok(new MedicineListView(medicines, medicineCatalogService::getRefillUrl));
+    }
+    
+    /**
+     * Archived medicines (see {@link MedicineArchive}), most recently archived first. Refilling one
+     * moves it back to the active list.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<Map<String, Object>> getHistory(@RequestParam(required = false) Long profileId,
+                                                          @RequestParam(defaultValue = "0") int page,
+                                                          @RequestParam(required = false) Integer size,
+                                                          Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        if (profileId != null && profileAccess.find(profileId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        int pageSize = Math.max(1, Math.min(size != null ? size : DEFAULT_HISTORY_PAGE_SIZE, MAX_HISTORY_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        
+        // One extra row tells whether another page follows
+        List<MedicineArchive.ArchivedMedicine> archived = medicineArchive.findHistory(currentUser.getId(), profileId,
+                pageNumber, pageSize + 1);
+        boolean hasMore = archived.size() > pageSize;
+        List<Map<String, Object>> medicines = new ArrayList<>();
+        for (MedicineArchive.ArchivedMedicine medicine : archived.subList(0, Math.min(archived.size(), pageSize))) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("id", medicine.getId());
+            entry.put("profileId", medicine.getProfileId());
+            entry.put("medicineName", medicine.getMedicineName());
+            entry.put("dosagePerDay", medicine.getDosagePerDay());
+            entry.put("totalQuantity", medicine.getTotalQuantity());
+            entry.put("startDate", medicine.getStartDate());
+            entry.put("refillDate", medicine.getRefillDate());
+            entry.put("currentQuantity", medicine.getCurrentQuantity());
+            entry.put("status", medicine.getStatus());
+            entry.put("createdAt", medicine.getCreatedAt());
+            entry.put("updatedAt", medicine.getUpdatedAt());
+            entry.put("archivedAt", medicine.getArchivedAt());
+            entry.put("refillUrl", medicineCatalogService.getRefillUrl(medicine.getCatalogId(),
+                    medicine.getMedicineName()));
+            medicines.add(entry);
+        }
         
+        Map<String, Object> response = new HashMap<>();
+        response.put("medicines", medicines);
+        response.put("page", pageNumber);
+        response.put("size", pageSize);
+        response.put("hasMore", hasMore);
         return ResponseEntity.ok(response);
     }
     
+    @Transactional(readOnly = true)
     @GetMapping("/dashboard-summary")
     public ResponseEntity<Map<String, Object>> getDashboardSummary(Authentication authentication) {
         User currentUser = (User) authentication.getPrincipal();
         
-        List<Medicine> allMedicines = medicineRepository.findByUser(currentUser);
-        long refillNeededCount = medicineRepository.countRefillNeededByUser(currentUser);
-        long lowStockCount = medicineRepository.countLowStockByUser(currentUser);
-        
         Map<String, Object> summary = new HashMap<>();
-        summary.put("totalMedicines", allMedicines.size());
-        summary.put("refillNeeded", refillNeededCount);
-        summary.put("lowStock", lowStockCount);
-        summary.put("ok", allMedicines.size() - refillNeededCount - lowStockCount);
-        
-        List<MedicineResponse> recentMedicines = allMedicines.stream()
-                .limit(5)
-                .map(MedicineResponse::new)
-                .collect(Collectors.toList());
+        MedicineStatusCounters.Counts counts = medicineStatusCounters.find(currentUser.getId());
+        if (counts != null) {
+            summary.put("totalMedicines", counts.getTotal());
+            summary.put("refillNeeded", counts.getRefillNeeded());
+            summary.put("lowStock", counts.getLow());
+            summary.put("ok", counts.getOk());
+        } else {
+            // No counter row until reconciliation creates it
+            long total = medicineRepository.countByUser(currentUser);
+            long refillNeededCount = medicineRepository.countRefillNeededByUser(currentUser);
+            long lowStockCount = medicineRepository.countLowStockByUser(currentUser);
+            summary.put("totalMedicines", total);
+            summary.put("refillNeeded", refillNeededCount);
+            summary.put("lowStock", lowStockCount);
+            summary.put("ok", total - refillNeededCount - lowStockCount);
+        }
         
-        summary.put("recentMedicines", recentMedicines);
+        summary.put("recentMedicines", new MedicineListView(medicineRepository.findTop5ByUserOrderByIdAsc(currentUser),
+                medicineCatalogService::getRefillUrl));
         
         return ResponseEntity.ok(summary);
     }
+    
+    private Map<String, Object> forecast(ForecastRequest scenario, Map<Long, Medicine> medicines, LocalDate today) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("medicineId", scenario.getMedicineId());
+        
+        Medicine medicine = null;
+        if (scenario.getMedicineId() != null) {
+            medicine = medicines.get(scenario.getMedicineId());
+            if (medicine == null) {
+                result.put("error", "Medicine not found");
+                return result;
+            }
+        }
+        
+        DosingSchedule schedule;
+        try {
+            schedule = scenario.getSchedule() != null ? scenario.getSchedule().toSchedule()
+                    : medicine != null ? medicine.getSchedule() : null;
+        } catch (IllegalArgumentException e) {
+            result.put("error", e.getMessage());
+            return result;
+        }
+        Integer quantity = scenario.getCurrentQuantity() != null ? scenario.getCurrentQuantity()
+                : medicine != null ? medicine.getCurrentQuantity() : null;
+        Integer dosagePerDay = scenario.getDosagePerDay() != null ? scenario.getDosagePerDay()
+                : medicine != null ? medicine.getDosagePerDay() : null;
+        if (quantity == null || quantity < 0) {
+            result.put("error", "currentQuantity must be zero or more");
+            return result;
+        }
+        if ((dosagePerDay == null || dosagePerDay <= 0) && (schedule == null || schedule.getDoses() == null)) {
+            result.put("error", "dosagePerDay must be positive when the schedule has no dose pattern");
+            return result;
+        }
+        
+        LocalDate from = scenario.getFrom() != null ? scenario.getFrom() : today;
+        LocalDate anchor = scenario.getStartDate() != null ? scenario.getStartDate()
+                : medicine != null ? medicine.getStartDate() : from;
+        LocalDate runOutDate = RefillForecaster.runOutDate(quantity, dosagePerDay != null ? dosagePerDay : 0,
+                schedule, anchor, from);
+        
+        // Both null when the schedule tapers off before the supply runs out
+        result.put("runOutDate", runOutDate);
+        result.put("daysLeft", runOutDate != null ? runOutDate.toEpochDay() - from.toEpochDay() : null);
+        return result;
+    }
+    
+    private ResponseEntity<Map<String, String>> badRequest(String message) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", message);
+        return ResponseEntity.badRequest().body(response);
+    }
+    
+    /**
+     * Moves archived medicine {@code id} of {@code user} back, into its profile if that still
+     * exists and else into the default profile.
+     */
+    private void restore(Long id, User user) {
+        MedicineArchive.ArchivedMedicine archived = medicineArchive.find(id, user.getId());
+        if (archived == null) {
+            return;
+        }
+        Profile profile = profileAccess.find(archived.getProfileId());
+        if (profile == null) {
+            profile = profileAccess.defaultProfile();
+        }
+        if (profile != null) {
+            medicineArchive.restore(id, user.getId(), profile.getId());
+        }
+    }
+    
+    private Long catalogIdFor(String medicineName) {
+        MedicineCatalogEntry entry = medicineCatalogService.resolve(medicineName);
+        return entry != null ? entry.getId() : null;
+    }
+    
+    private MedicineResponse toResponse(Medicine medicine) {
+        return new MedicineResponse(medicine, medicineCatalogService.getRefillUrl(medicine));
+    }
 }
\ No newline at end of file
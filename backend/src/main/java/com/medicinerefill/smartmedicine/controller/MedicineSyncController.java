@@ -0,0 +1,164 @@
+package com.medicinerefill.smartmedicine.controller;
+
+import com.medicinerefill.smartmedicine.dto.DoseEventBatchRequest;
+import com.medicinerefill.smartmedicine.dto.DoseEventRequest;
+import com.medicinerefill.smartmedicine.dto.MedicineListView;
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import com.medicinerefill.smartmedicine.service.DoseEventService;
+import com.medicinerefill.smartmedicine.service.DoseWriteBuffer;
+import com.medicinerefill.smartmedicine.service.MedicineCatalogService;
+import com.medicinerefill.smartmedicine.service.MedicineChangeLog;
+import com.medicinerefill.smartmedicine.service.OptimisticRetry;
+import com.medicinerefill.smartmedicine.service.ProfileAccess;
+import com.medicinerefill.smartmedicine.service.SyncToken;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta sync for offline-first clients: medicines changed since a sync token, and batch upload of
+ * dose events queued while offline.
+ */
+@RestController
+@RequestMapping("/api/medicines")
+public class MedicineSyncController {
+    
+    private static final int DEFAULT_PAGE_SIZE = 200;
+    private static final int MAX_PAGE_SIZE = 1000;
+    
+    @Autowired
+    private MedicineRepository medicineRepository;
+    
+    @Autowired
+    private MedicineChangeLog medicineChangeLog;
+    
+    @Autowired
+    private MedicineCatalogService medicineCatalogService;
+    
+    @Autowired
+    private DoseEventService doseEventService;
+    
+    @Autowired
+    private DoseWriteBuffer doseWriteBuffer;
+    
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    
+    @Autowired
+    private ProfileAccess profileAccess;
+    
+    /**
+     * Medicines created or updated and ids deleted since {@code since}, oldest change first, with
+     * the token to pass next time. Without a token, or with one older than the tombstone retention,
+     * returns every medicine with {@code reset: true} and the client replaces its copy. While
+     * {@code hasMore} is true the client should request again right away with the new token.
+     */
+    @Transactional(readOnly = true)
+    @GetMapping("/changes")
+    public ResponseEntity<Map<String, Object>> getChanges(@RequestParam(required = false) String since,
+                                                          @RequestParam(required = false) Integer limit,
+                                                          Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        Instant now = Instant.now();
+        
+        long sinceSeq = 0;
+        boolean reset = true;
+        if (since != null) {
+            SyncToken token;
+            try {
+                token = SyncToken.parse(since);
+            } catch (IllegalArgumentException e) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", e.getMessage());
+                return ResponseEntity.badRequest().body(response);
+            }
+            if (!token.isOlderThan(medicineChangeLog.getRetention(), now)) {
+                sinceSeq = token.getSeq();
+                reset = false;
+            }
+        }
+        int pageSize = Math.max(1, Math.min(limit != null ? limit : DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE));
+        
+        // Read before the changes: everything up to this value has committed, see MedicineChangeLog. Later
+        // values may belong to a write whose predecessor was not visible to one of the two queries, so they
+        // are left for the next request
+        long currentSeq = medicineChangeLog.currentSeq(currentUser.getId());
+        List<Medicine> updated = new ArrayList<>(medicineRepository.findChangedSince(currentUser.getId(), sinceSeq,
+                PageRequest.of(0, pageSize + 1)));
+        updated.removeIf(medicine -> medicine.getChangeSeq() > currentSeq);
+        // A client without a copy has nothing to delete
+        List<MedicineChangeLog.Tombstone> tombstones = reset ? new ArrayList<>()
+                : medicineChangeLog.findTombstones(currentUser.getId(), sinceSeq, pageSize + 1);
+        tombstones.removeIf(tombstone -> tombstone.getChangeSeq() > currentSeq);
+        
+        // Merge both by sequence value and cut at the page size
+        List<Medicine> changes = new ArrayList<>();
+        List<Map<String, Object>> deleted = new ArrayList<>();
+        int u = 0;
+        int t = 0;
+        long lastSeq = sinceSeq;
+        while (changes.size() + deleted.size() < pageSize && (u < updated.size() || t < tombstones.size())) {
+            if (t >= tombstones.size()
+                    || (u < updated.size() && updated.get(u).getChangeSeq() < tombstones.get(t).getChangeSeq())) {
+                Medicine medicine = updated.get(u++);
+                changes.add(medicine);
+                lastSeq = medicine.getChangeSeq();
+            } else {
+                MedicineChangeLog.Tombstone tombstone = tombstones.get(t++);
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("id", tombstone.getMedicineId());
+                entry.put("profileId", tombstone.getProfileId());
+                entry.put("deletedAt", tombstone.getDeletedAt());
+                deleted.add(entry);
+                lastSeq = tombstone.getChangeSeq();
+            }
+        }
+        boolean hasMore = u < updated.size() || t < tombstones.size();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("changes", new MedicineListView(changes, medicineCatalogService::getRefillUrl));
+        response.put("deleted", deleted);
+        response.put("reset", reset);
+        response.put("hasMore", hasMore);
+        response.put("token", new SyncToken(hasMore ? lastSeq : Math.max(sinceSeq, currentSeq), now).encode());
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Applies dose events recorded offline, in order. Each event reports {@code applied},
+     * {@code duplicate} (already uploaded), {@code out_of_stock} or {@code not_found}; the
+     * medicines that changed are returned with their new quantities.
+     */
+    @PostMapping("/dose-events")
+    public ResponseEntity<Map<String, Object>> uploadDoseEvents(@Valid @RequestBody DoseEventBatchRequest request,
+                                                                Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        request.getEvents().stream()
+                .map(DoseEventRequest::getMedicineId)
+                .distinct()
+                .forEach(doseWriteBuffer::flush);
+        // Each attempt is its own transaction, so a conflict also rolls back the recorded event ids
+        DoseEventService.Result result = optimisticRetry.run(() -> doseEventService.apply(
+                currentUser.getId(), request.getEvents(), profileAccess::canAccess));
+        for (Medicine medicine : result.getChanged()) {
+            doseWriteBuffer.evict(medicine.getId());
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("results", result.getOutcomes());
+        response.put("medicines", new MedicineListView(result.getChanged(), medicineCatalogService::getRefillUrl));
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,15 +1,26 @@
 package com.medicinerefill.smartmedicine.controller;
 
+import com.medicinerefill.smartmedicine.dto.NotificationPreferencesRequest;
 import com.medicinerefill.smartmedicine.model.Medicine;
 import com.medicinerefill.smartmedicine.model.User;
 import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import com.medicinerefill.smartmedicine.repository.UserRepository;
+import com.medicinerefill.smartmedicine.service.NotificationPipeline;
 import com.medicinerefill.smartmedicine.service.NotificationSchedulerService;
+import com.medicinerefill.smartmedicine.service.ProfileAccess;
+import com.medicinerefill.smartmedicine.service.ReminderJob;
+import com.medicinerefill.smartmedicine.service.ReminderJobService;
+import com.medicinerefill.smartmedicine.service.WebhookNotificationChannel;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -19,24 +30,70 @@ public class NotificationController {
     @Autowired
     private NotificationSchedulerService notificationSchedulerService;
     
+    @Autowired
+    private ReminderJobService reminderJobService;
+    
     @Autowired
     private MedicineRepository medicineRepository;
     
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private NotificationPipeline notificationPipeline;
+    
+    @Autowired
+    private WebhookNotificationChannel webhookNotificationChannel;
+    
+    @Autowired
+    private ProfileAccess profileAccess;
+    
+    // Runs the global daily job, so admin only; poll the returned job id for progress
+    @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/trigger-reminder-check")
     public ResponseEntity<Map<String, String>> triggerManualReminderCheck() {
-        try {
-            notificationSchedulerService.triggerManualReminderCheck();
-            
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "Manual reminder check triggered successfully");
-            
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
+        return submitJob(NotificationSchedulerService.DAILY_REMINDER_JOB);
+    }
+    
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/jobs/{jobType}")
+    public ResponseEntity<Map<String, String>> startJob(@PathVariable String jobType) {
+        if (!ReminderJobService.JOB_TYPES.contains(jobType)) {
             Map<String, String> response = new HashMap<>();
-            response.put("error", "Failed to trigger reminder check: " + e.getMessage());
-            
-            return ResponseEntity.internalServerError().body(response);
+            response.put("error", "Unknown job type: " + jobType);
+            return ResponseEntity.badRequest().body(response);
+        }
+        return submitJob(jobType);
+    }
+    
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/jobs")
+    public ResponseEntity<List<ReminderJob>> getJobs() {
+        return ResponseEntity.ok(reminderJobService.getJobs());
+    }
+    
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ReminderJob> getJob(@PathVariable String jobId) {
+        ReminderJob job = reminderJobService.getJob(jobId);
+        
+        if (job == null) {
+            return ResponseEntity.notFound().build();
         }
+        
+        return ResponseEntity.ok(job);
+    }
+    
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/jobs/{jobId}/cancel")
+    public ResponseEntity<ReminderJob> cancelJob(@PathVariable String jobId) {
+        ReminderJob job = reminderJobService.cancel(jobId);
+        
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        return ResponseEntity.accepted().body(job);
     }
     
     @PostMapping("/send-immediate-reminder/{medicineId}")
@@ -45,7 +102,7 @@ public class NotificationController {
         try {
             User currentUser = (User) authentication.getPrincipal();
             Medicine medicine = medicineRepository.findById(medicineId)
-                    .filter(m -> m.getUser().getId().equals(currentUser.getId()))
+                    .filter(profileAccess::canAccess)
                     .orElse(null);
             
             if (medicine == null) {
@@ -54,10 +111,20 @@ public class NotificationController {
                 return ResponseEntity.notFound().build();
             }
             
-            notificationSchedulerService.sendImmediateReminder(currentUser, medicine);
+            NotificationPipeline.DispatchResult result =
+                    notificationSchedulerService.sendImmediateReminder(currentUser, medicine);
             
             Map<String, String> response = new HashMap<>();
-            response.put("message", "Immediate reminder sent successfully for " + medicine.getMedicineName());
+            if (result.getQueued().isEmpty()) {
+                if (!result.getRejected().isEmpty()) {
+                    response.put("error", "Notification queue is full, try again later");
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+                }
+                response.put("error", "No notification channel is available for this account");
+                return ResponseEntity.badRequest().body(response);
+            }
+            response.put("message", "Immediate reminder queued for " + medicine.getMedicineName()
+                    + " on " + String.join(", ", result.getQueued()));
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -68,13 +135,91 @@ public class NotificationController {
         }
     }
     
+    @GetMapping("/preferences")
+    public ResponseEntity<Map<String, Object>> getPreferences(Authentication authentication) {
+        return ResponseEntity.ok(buildPreferences((User) authentication.getPrincipal()));
+    }
+    
+    @PutMapping("/preferences")
+    public ResponseEntity<Map<String, Object>> updatePreferences(@RequestBody NotificationPreferencesRequest request,
+                                                                 Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        if (request.getChannels() != null) {
+            for (String channel : request.getChannels()) {
+                // Same set as availableChannels: a disabled channel would never deliver
+                if (!notificationPipeline.isEnabled(channel)) {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("error", "Unknown or disabled notification channel: " + channel);
+                    return ResponseEntity.badRequest().body(response);
+                }
+            }
+        }
+        String webhookUrl = StringUtils.hasText(request.getWebhookUrl()) ? request.getWebhookUrl().trim() : null;
+        if (webhookUrl != null && !webhookNotificationChannel.isAllowedUserUrl(webhookUrl)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Webhook URL is not allowed");
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        User user = userRepository.findById(currentUser.getId()).orElseThrow();
+        user.setNotificationChannels(request.getChannels() != null
+                ? String.join(",", request.getChannels().stream().distinct().toList()) : null);
+        user.setWebhookUrl(webhookUrl);
+        return ResponseEntity.ok(buildPreferences(userRepository.save(user)));
+    }
+    
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/channels")
+    public ResponseEntity<Map<String, Map<String, Object>>> getChannelStats() {
+        return ResponseEntity.ok(notificationPipeline.getStats());
+    }
+    
     @GetMapping("/status")
-    public ResponseEntity<Map<String, String>> getNotificationStatus() {
-        Map<String, String> response = new HashMap<>();
+    public ResponseEntity<Map<String, Object>> getNotificationStatus() {
+        Map<String, Object> response = new HashMap<>();
         response.put("status", "Notification service is active");
-        response.put("dailyReminders", "Scheduled at 9:00 AM daily");
-        response.put("weeklyReminders", "Scheduled at 10:00 AM every Monday");
+        response.put("dailyReminders", buildJobStatus(NotificationSchedulerService.DAILY_REMINDER_JOB,
+                "Scheduled at 9:00 AM daily"));
+        response.put("weeklyReminders", buildJobStatus(NotificationSchedulerService.WEEKLY_SUMMARY_JOB,
+                "Sent with the 9:00 AM run every Monday"));
         
         return ResponseEntity.ok(response);
     }
+    
+    private ResponseEntity<Map<String, String>> submitJob(String jobType) {
+        ReminderJobService.Submission submission = reminderJobService.submit(jobType, ReminderJob.Trigger.MANUAL);
+        ReminderJob job = submission.getJob();
+        
+        Map<String, String> response = new HashMap<>();
+        response.put("jobId", job.getId());
+        response.put("status", job.getStatus().name());
+        
+        if (!submission.isCreated()) {
+            response.put("error", "A " + jobType + " run is already in progress");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        
+        response.put("message", "Reminder run queued");
+        return ResponseEntity.accepted().body(response);
+    }
+    
+    private Map<String, Object> buildPreferences(User user) {
+        Map<String, Object> preferences = new HashMap<>();
+        preferences.put("channels", notificationPipeline.channelsFor(user));
+        preferences.put("webhookUrl", user.getWebhookUrl());
+        preferences.put("availableChannels", notificationPipeline.getChannelNames().stream()
+                .filter(notificationPipeline::isEnabled)
+                .toList());
+        return preferences;
+    }
+    
+    private Map<String, Object> buildJobStatus(String job, String schedule) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("schedule", schedule);
+        status.put("nextRun", notificationSchedulerService.getNextRun(job));
+        status.put("lastRun", notificationSchedulerService.getLastRun(job));
+        ReminderJob active = reminderJobService.getActiveJob(job);
+        status.put("activeJobId", active != null ? active.getId() : null);
+        return status;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package com.medicinerefill.smartmedicine.controller;
+
+import com.medicinerefill.smartmedicine.dto.ProfileRequest;
+import com.medicinerefill.smartmedicine.model.Profile;
+import com.medicinerefill.smartmedicine.model.User;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import com.medicinerefill.smartmedicine.repository.ProfileRepository;
+import com.medicinerefill.smartmedicine.service.ProfileAccess;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Household profiles of the current account: the people whose medicines it manages.
+ */
+@RestController
+@RequestMapping("/api/profiles")
+public class ProfileController {
+    
+    private static final int MAX_PROFILES = 20;
+    
+    @Autowired
+    private ProfileRepository profileRepository;
+    
+    @Autowired
+    private MedicineRepository medicineRepository;
+    
+    @Autowired
+    private ProfileAccess profileAccess;
+    
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> getProfiles() {
+        List<Map<String, Object>> profiles = new ArrayList<>();
+        for (Profile profile : profileAccess.profiles()) {
+            profiles.add(toResponse(profile));
+        }
+        return ResponseEntity.ok(profiles);
+    }
+    
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> createProfile(@Valid @RequestBody ProfileRequest request,
+                                                             Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        if (profileRepository.countByUserId(currentUser.getId()) >= MAX_PROFILES) {
+            return error(HttpStatus.BAD_REQUEST, "At most " + MAX_PROFILES + " profiles per account");
+        }
+        
+        Profile profile = new Profile(currentUser, request.getName(), false);
+        apply(profile, request);
+        Profile savedProfile = profileRepository.save(profile);
+        profileAccess.invalidate();
+        
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(savedProfile));
+    }
+    
+    @PutMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> updateProfile(@PathVariable Long id,
+                                                             @Valid @RequestBody ProfileRequest request) {
+        Profile profile = profileAccess.find(id);
+        if (profile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        profile.setName(request.getName());
+        apply(profile, request);
+        Profile updatedProfile = profileRepository.save(profile);
+        profileAccess.invalidate();
+        
+        return ResponseEntity.ok(toResponse(updatedProfile));
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> deleteProfile(@PathVariable Long id) {
+        Profile profile = profileAccess.find(id);
+        if (profile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (profile.isDefaultProfile()) {
+            return error(HttpStatus.BAD_REQUEST, "The account holder's profile cannot be deleted");
+        }
+        if (medicineRepository.existsByProfileId(id)) {
+            return error(HttpStatus.CONFLICT, "Move or delete the profile's medicines first");
+        }
+        
+        profileRepository.delete(profile);
+        profileAccess.invalidate();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Profile deleted successfully");
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Dashboard counts of every profile in the household, from one grouped query, with totals
+     * for the whole account.
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<Map<String, Object>> getHouseholdDashboard(Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        
+        List<Map<String, Object>> profiles = new ArrayList<>();
+        long total = 0;
+        long ok = 0;
+        long lowStock = 0;
+        long refillNeeded = 0;
+        for (ProfileRepository.Summary summary : profileRepository.summarizeByUserId(currentUser.getId())) {
+            Map<String, Object> profile = new HashMap<>();
+            profile.put("id", summary.getId());
+            profile.put("name", summary.getName());
+            profile.put("color", summary.getColor());
+            profile.put("shape", summary.getShape());
+            profile.put("avatarEmoji", summary.getAvatarEmoji());
+            profile.put("defaultProfile", summary.getDefaultProfile());
+            profile.put("totalMedicines", summary.getTotalMedicines());
+            profile.put("ok", summary.getOk());
+            profile.put("lowStock", summary.getLowStock());
+            profile.put("refillNeeded", summary.getRefillNeeded());
+            profile.put("nextRefillDate", summary.getNextRefillDate());
+            profiles.add(profile);
+            
+            total += summary.getTotalMedicines();
+            ok += summary.getOk();
+            lowStock += summary.getLowStock();
+            refillNeeded += summary.getRefillNeeded();
+        }
+        
+        Map<String, Object> dashboard = new HashMap<>();
+        dashboard.put("profiles", profiles);
+        dashboard.put("totalMedicines", total);
+        dashboard.put("ok", ok);
+        dashboard.put("lowStock", lowStock);
+        dashboard.put("refillNeeded", refillNeeded);
+        return ResponseEntity.ok(dashboard);
+    }
+    
+    private void apply(Profile profile, ProfileRequest request) {
+        if (request.getColor() != null) {
+            profile.setColor(request.getColor());
+        }
+        if (request.getShape() != null) {
+            profile.setShape(request.getShape());
+        }
+        profile.setAvatarEmoji(request.getAvatarEmoji());
+    }
+    
+    private Map<String, Object> toResponse(Profile profile) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", profile.getId());
+        response.put("name", profile.getName());
+        response.put("color", profile.getColor());
+        response.put("shape", profile.getShape());
+        response.put("avatarEmoji", profile.getAvatarEmoji());
+        response.put("defaultProfile", profile.isDefaultProfile());
+        return response;
+    }
+    
+    private ResponseEntity<Map<String, Object>> error(HttpStatus status, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", message);
+        return ResponseEntity.status(status).body(response);
+    }
+}
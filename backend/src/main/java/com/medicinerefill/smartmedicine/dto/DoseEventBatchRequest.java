@@ -0,0 +1,26 @@
+package com.medicinerefill.smartmedicine.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class DoseEventBatchRequest {
+    
+    @NotEmpty
+    @Size(max = 500)
+    @Valid
+    private List<DoseEventRequest> events;
+    
+    public DoseEventBatchRequest() {}
+    
+    // Getters and setters
+    public List<DoseEventRequest> getEvents() {
+        return events;
+    }
+    
+    public void setEvents(List<DoseEventRequest> events) {
+        this.events = events;
+    }
+}
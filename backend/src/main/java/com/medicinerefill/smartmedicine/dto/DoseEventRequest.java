@@ -0,0 +1,57 @@
+package com.medicinerefill.smartmedicine.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+
+/**
+ * A dose taken while the device was offline, uploaded later in a batch.
+ */
+public class DoseEventRequest {
+    
+    // Generated on the device; a re-uploaded event with the same id is ignored
+    @NotBlank
+    @Size(max = 64)
+    private String eventId;
+    
+    @NotNull
+    private Long medicineId;
+    
+    // Device time the dose was taken; informational, the dose is applied when received
+    private LocalDateTime takenAt;
+    
+    public DoseEventRequest() {}
+    
+    public DoseEventRequest(String eventId, Long medicineId, LocalDateTime takenAt) {
+        this.eventId = eventId;
+        this.medicineId = medicineId;
+        this.takenAt = takenAt;
+    }
+    
+    // Getters and setters
+    public String getEventId() {
+        return eventId;
+    }
+    
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+    
+    public Long getMedicineId() {
+        return medicineId;
+    }
+    
+    public void setMedicineId(Long medicineId) {
+        this.medicineId = medicineId;
+    }
+    
+    public LocalDateTime getTakenAt() {
+        return takenAt;
+    }
+    
+    public void setTakenAt(LocalDateTime takenAt) {
+        this.takenAt = takenAt;
+    }
+}
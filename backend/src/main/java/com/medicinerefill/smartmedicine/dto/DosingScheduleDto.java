@@ -0,0 +1,105 @@
+package com.medicinerefill.smartmedicine.dto;
+
+import com.medicinerefill.smartmedicine.model.DosingSchedule;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JSON form of a DosingSchedule, used in medicine requests, responses and forecasts.
+ * Weekdays are day names ("MONDAY"); an empty or missing list means every day.
+ */
+public class DosingScheduleDto {
+    
+    private List<Integer> dosePattern;
+    private List<DayOfWeek> weekdays;
+    private Integer taperStep;
+    private Integer taperEveryDays;
+    private Integer taperFloor;
+    
+    public DosingScheduleDto() {}
+    
+    public static DosingScheduleDto from(DosingSchedule schedule) {
+        if (schedule == null) {
+            return null;
+        }
+        DosingScheduleDto dto = new DosingScheduleDto();
+        if (schedule.getDoses() != null) {
+            dto.dosePattern = Arrays.stream(schedule.getDoses()).boxed().toList();
+        }
+        if (schedule.getWeekdayMask() != null) {
+            dto.weekdays = new ArrayList<>();
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if ((schedule.getWeekdayMask() & (1 << (day.getValue() - 1))) != 0) {
+                    dto.weekdays.add(day);
+                }
+            }
+        }
+        dto.taperStep = schedule.getTaperStep();
+        dto.taperEveryDays = schedule.getTaperEveryDays();
+        dto.taperFloor = schedule.getTaperFloor();
+        return dto;
+    }
+    
+    /**
+     * Builds the validated schedule, or null if nothing is set. Throws IllegalArgumentException.
+     */
+    public DosingSchedule toSchedule() {
+        boolean everyDay = weekdays == null || weekdays.isEmpty() || weekdays.containsAll(List.of(DayOfWeek.values()));
+        if (dosePattern == null && everyDay && taperStep == null && taperEveryDays == null && taperFloor == null) {
+            return null;
+        }
+        if (dosePattern != null && dosePattern.contains(null)) {
+            throw new IllegalArgumentException("Dose pattern cannot contain null doses");
+        }
+        DosingSchedule schedule = new DosingSchedule(
+                dosePattern != null ? dosePattern.stream().mapToInt(Integer::intValue).toArray() : null,
+                everyDay ? null : DosingSchedule.weekdayMask(weekdays),
+                taperStep, taperEveryDays, taperFloor);
+        schedule.validate();
+        return schedule;
+    }
+    
+    // Getters and setters
+    public List<Integer> getDosePattern() {
+        return dosePattern;
+    }
+    
+    public void setDosePattern(List<Integer> dosePattern) {
+        this.dosePattern = dosePattern;
+    }
+    
+    public List<DayOfWeek> getWeekdays() {
+        return weekdays;
+    }
+    
+    public void setWeekdays(List<DayOfWeek> weekdays) {
+        this.weekdays = weekdays;
+    }
+    
+    public Integer getTaperStep() {
+        return taperStep;
+    }
+    
+    public void setTaperStep(Integer taperStep) {
+        this.taperStep = taperStep;
+    }
+    
+    public Integer getTaperEveryDays() {
+        return taperEveryDays;
+    }
+    
+    public void setTaperEveryDays(Integer taperEveryDays) {
+        this.taperEveryDays = taperEveryDays;
+    }
+    
+    public Integer getTaperFloor() {
+        return taperFloor;
+    }
+    
+    public void setTaperFloor(Integer taperFloor) {
+        this.taperFloor = taperFloor;
+    }
+}
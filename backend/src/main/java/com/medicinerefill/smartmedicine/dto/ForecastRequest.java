@@ -0,0 +1,72 @@
+package com.medicinerefill.smartmedicine.dto;
+
+import java.time.LocalDate;
+
+/**
+ * One what-if scenario for POST /api/medicines/forecast. With a medicineId the stored medicine
+ * is the baseline and any field set here overrides it; without one, currentQuantity and either
+ * dosagePerDay or a schedule dose pattern are required. Nothing is saved.
+ */
+public class ForecastRequest {
+    
+    private Long medicineId;
+    private Integer currentQuantity;
+    private Integer dosagePerDay;
+    // Replaces the medicine's schedule; an empty object means dosagePerDay every day
+    private DosingScheduleDto schedule;
+    // Anchor of the dose pattern and taper; defaults to the medicine's start date, then to from
+    private LocalDate startDate;
+    // Day the forecast counts from; defaults to today
+    private LocalDate from;
+    
+    public ForecastRequest() {}
+    
+    // Getters and setters
+    public Long getMedicineId() {
+        return medicineId;
+    }
+    
+    public void setMedicineId(Long medicineId) {
+        this.medicineId = medicineId;
+    }
+    
+    public Integer getCurrentQuantity() {
+        return currentQuantity;
+    }
+    
+    public void setCurrentQuantity(Integer currentQuantity) {
+        this.currentQuantity = currentQuantity;
+    }
+    
+    public Integer getDosagePerDay() {
+        return dosagePerDay;
+    }
+    
+    public void setDosagePerDay(Integer dosagePerDay) {
+        this.dosagePerDay = dosagePerDay;
+    }
+    
+    public DosingScheduleDto getSchedule() {
+        return schedule;
+    }
+    
+    public void setSchedule(DosingScheduleDto schedule) {
+        this.schedule = schedule;
+    }
+    
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+    
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+    
+    public LocalDate getFrom() {
+        return from;
+    }
+    
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+}
@@ -4,10 +4,15 @@ public class JwtAuthenticationResponse {
     
     private String accessToken;
     private String tokenType = "Bearer";
+    // Seconds until the access token expires
+    private long expiresIn;
+    private String refreshToken;
     private UserSummary user;
     
-    public JwtAuthenticationResponse(String accessToken, UserSummary user) {
+    public JwtAuthenticationResponse(String accessToken, long expiresIn, String refreshToken, UserSummary user) {
         this.accessToken = accessToken;
+        this.expiresIn = expiresIn;
+        this.refreshToken = refreshToken;
         this.user = user;
     }
     
@@ -28,6 +33,22 @@ public class JwtAuthenticationResponse {
         this.tokenType = tokenType;
     }
     
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+    
+    public void setExpiresIn(long expiresIn) {
+        this.expiresIn = expiresIn;
+    }
+    
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+    
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+    
     public UserSummary getUser() {
         return user;
     }
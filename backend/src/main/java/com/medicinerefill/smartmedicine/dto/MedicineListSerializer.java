@@ -0,0 +1,250 @@
+package com.medicinerefill.smartmedicine.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.medicinerefill.smartmedicine.model.DosingSchedule;
+import com.medicinerefill.smartmedicine.model.Medicine;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes a MedicineListView field by field to the generator, without building a
+ * MedicineResponse per row. Output matches the MedicineResponse JSON field for field; for CBOR
+ * the rows are the compact maps of docs/medicine-api.cddl instead.
+ */
+public class MedicineListSerializer extends StdSerializer<MedicineListView> {
+    
+    // Compact row keys, fixed by docs/medicine-api.cddl: only ever add new ones
+    private static final int KEY_ID = 0;
+    private static final int KEY_MEDICINE_NAME = 1;
+    private static final int KEY_DOSAGE_PER_DAY = 2;
+    private static final int KEY_TOTAL_QUANTITY = 3;
+    private static final int KEY_START_DATE = 4;
+    private static final int KEY_REFILL_DATE = 5;
+    private static final int KEY_CURRENT_QUANTITY = 6;
+    private static final int KEY_NOTIFICATIONS_ENABLED = 7;
+    private static final int KEY_LOW_STOCK_THRESHOLD = 8;
+    private static final int KEY_STATUS = 9;
+    private static final int KEY_CREATED_AT = 10;
+    private static final int KEY_UPDATED_AT = 11;
+    private static final int KEY_PROFILE_ID = 12;
+    private static final int KEY_DAYS_LEFT = 13;
+    private static final int KEY_REMAINING_DOSES = 14;
+    private static final int KEY_CATALOG_ID = 15;
+    private static final int KEY_SCHEDULE = 16;
+    
+    private static final int KEY_DOSE_PATTERN = 0;
+    private static final int KEY_WEEKDAY_MASK = 1;
+    private static final int KEY_TAPER_STEP = 2;
+    private static final int KEY_TAPER_EVERY_DAYS = 3;
+    private static final int KEY_TAPER_FLOOR = 4;
+    
+    public MedicineListSerializer() {
+        super(MedicineListView.class);
+    }
+    
+    @Override
+    public void serialize(MedicineListView view, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (gen instanceof CBORGenerator) {
+            serializeCompact(view, gen);
+            return;
+        }
+        LocalDate today = view.getToday();
+        boolean datesAsTimestamps = provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        // Scratch space for formatting dates without intermediate Strings
+        char[] buffer = new char[32];
+        
+        gen.writeStartArray(view, view.getMedicines().size());
+        for (Medicine medicine : view.getMedicines()) {
+            gen.writeStartObject(medicine);
+            writeNumber(gen, "id", medicine.getId());
+            gen.writeStringField("medicineName", medicine.getMedicineName());
+            writeNumber(gen, "dosagePerDay", medicine.getDosagePerDay());
+            writeNumber(gen, "totalQuantity", medicine.getTotalQuantity());
+            writeDate(gen, provider, datesAsTimestamps, buffer, "startDate", medicine.getStartDate());
+            writeDate(gen, provider, datesAsTimestamps, buffer, "refillDate", medicine.getRefillDate());
+            writeNumber(gen, "currentQuantity", medicine.getCurrentQuantity());
+            if (medicine.getNotificationsEnabled() == null) {
+                gen.writeNullField("notificationsEnabled");
+            } else {
+                gen.writeBooleanField("notificationsEnabled", medicine.getNotificationsEnabled());
+            }
+            writeNumber(gen, "lowStockThreshold", medicine.getLowStockThreshold());
+            gen.writeStringField("status", medicine.getStatus() != null ? medicine.getStatus().name() : null);
+            writeDateTime(gen, provider, datesAsTimestamps, buffer, "createdAt", medicine.getCreatedAt());
+            writeDateTime(gen, provider, datesAsTimestamps, buffer, "updatedAt", medicine.getUpdatedAt());
+            writeNumber(gen, "profileId", MedicineResponse.profileIdOf(medicine));
+            
+            // Calculated fields
+            writeNumber(gen, "daysLeft", medicine.getDaysLeft(today));
+            gen.writeNumberField("remainingDoses", medicine.getRemainingDoses());
+            gen.writeStringField("refillUrl", view.getRefillUrl(medicine));
+            if (medicine.getSchedule() == null) {
+                gen.writeNullField("schedule");
+            } else {
+                provider.defaultSerializeField("schedule", DosingScheduleDto.from(medicine.getSchedule()), gen);
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+    
+    /**
+     * Integer keys, dates as epoch days, timestamps as epoch seconds of the server's local time and
+     * the status as its index; null fields are left out. The refill URL is replaced by the catalog
+     * id, resolved through /medicine-catalog/{id}, or derived from the name when there is none.
+     */
+    private static void serializeCompact(MedicineListView view, JsonGenerator gen) throws IOException {
+        LocalDate today = view.getToday();
+        gen.writeStartArray(view, view.getMedicines().size());
+        for (Medicine medicine : view.getMedicines()) {
+            gen.writeStartObject(medicine);
+            writeCompact(gen, KEY_ID, medicine.getId());
+            if (medicine.getMedicineName() != null) {
+                gen.writeFieldId(KEY_MEDICINE_NAME);
+                gen.writeString(medicine.getMedicineName());
+            }
+            writeCompact(gen, KEY_DOSAGE_PER_DAY, medicine.getDosagePerDay());
+            writeCompact(gen, KEY_TOTAL_QUANTITY, medicine.getTotalQuantity());
+            if (medicine.getStartDate() != null) {
+                writeCompact(gen, KEY_START_DATE, medicine.getStartDate().toEpochDay());
+            }
+            if (medicine.getRefillDate() != null) {
+                writeCompact(gen, KEY_REFILL_DATE, medicine.getRefillDate().toEpochDay());
+            }
+            writeCompact(gen, KEY_CURRENT_QUANTITY, medicine.getCurrentQuantity());
+            if (medicine.getNotificationsEnabled() != null) {
+                gen.writeFieldId(KEY_NOTIFICATIONS_ENABLED);
+                gen.writeBoolean(medicine.getNotificationsEnabled());
+            }
+            writeCompact(gen, KEY_LOW_STOCK_THRESHOLD, medicine.getLowStockThreshold());
+            if (medicine.getStatus() != null) {
+                writeCompact(gen, KEY_STATUS, medicine.getStatus().ordinal());
+            }
+            if (medicine.getCreatedAt() != null) {
+                writeCompact(gen, KEY_CREATED_AT, medicine.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+            }
+            if (medicine.getUpdatedAt() != null) {
+                writeCompact(gen, KEY_UPDATED_AT, medicine.getUpdatedAt().toEpochSecond(ZoneOffset.UTC));
+            }
+            writeCompact(gen, KEY_PROFILE_ID, MedicineResponse.profileIdOf(medicine));
+            writeCompact(gen, KEY_DAYS_LEFT, medicine.getDaysLeft(today));
+            writeCompact(gen, KEY_REMAINING_DOSES, medicine.getRemainingDoses());
+            writeCompact(gen, KEY_CATALOG_ID, medicine.getCatalogId());
+            DosingSchedule schedule = medicine.getSchedule();
+            if (schedule != null) {
+                gen.writeFieldId(KEY_SCHEDULE);
+                gen.writeStartObject(schedule);
+                int[] doses = schedule.getDoses();
+                if (doses != null) {
+                    gen.writeFieldId(KEY_DOSE_PATTERN);
+                    gen.writeArray(doses, 0, doses.length);
+                }
+                writeCompact(gen, KEY_WEEKDAY_MASK, schedule.getWeekdayMask());
+                writeCompact(gen, KEY_TAPER_STEP, schedule.getTaperStep());
+                writeCompact(gen, KEY_TAPER_EVERY_DAYS, schedule.getTaperEveryDays());
+                writeCompact(gen, KEY_TAPER_FLOOR, schedule.getTaperFloor());
+                gen.writeEndObject();
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+    
+    private static void writeCompact(JsonGenerator gen, int key, Number value) throws IOException {
+        if (value != null) {
+            gen.writeFieldId(key);
+            gen.writeNumber(value.longValue());
+        }
+    }
+    
+    private static void writeNumber(JsonGenerator gen, String name, Number value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else if (value instanceof Long) {
+            gen.writeNumber(value.longValue());
+        } else {
+            gen.writeNumber(value.intValue());
+        }
+    }
+    
+    private static void writeDate(JsonGenerator gen, SerializerProvider provider, boolean asTimestamp, char[] buffer,
+                                  String name, LocalDate value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(name);
+        } else if (asTimestamp) {
+            provider.defaultSerializeField(name, value, gen);
+        } else {
+            gen.writeFieldName(name);
+            int length = appendDate(buffer, 0, value);
+            if (length < 0) {
+                gen.writeString(value.toString());
+            } else {
+                gen.writeString(buffer, 0, length);
+            }
+        }
+    }
+    
+    private static void writeDateTime(JsonGenerator gen, SerializerProvider provider, boolean asTimestamp,
+                                      char[] buffer, String name, LocalDateTime value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(name);
+        } else if (asTimestamp) {
+            provider.defaultSerializeField(name, value, gen);
+        } else {
+            gen.writeFieldName(name);
+            int length = appendDate(buffer, 0, value.toLocalDate());
+            if (length < 0) {
+                gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+                return;
+            }
+            // Same text as ISO_LOCAL_DATE_TIME: seconds always, fraction without trailing zeros
+            buffer[length++] = 'T';
+            length = appendTwoDigits(buffer, length, value.getHour());
+            buffer[length++] = ':';
+            length = appendTwoDigits(buffer, length, value.getMinute());
+            buffer[length++] = ':';
+            length = appendTwoDigits(buffer, length, value.getSecond());
+            int nano = value.getNano();
+            if (nano > 0) {
+                buffer[length++] = '.';
+                int divisor = 100_000_000;
+                while (nano > 0) {
+                    buffer[length++] = (char) ('0' + nano / divisor);
+                    nano %= divisor;
+                    divisor /= 10;
+                }
+            }
+            gen.writeString(buffer, 0, length);
+        }
+    }
+    
+    /** Writes yyyy-MM-dd, or returns -1 for years that ISO formats with a sign or extra digits. */
+    private static int appendDate(char[] buffer, int offset, LocalDate date) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            return -1;
+        }
+        buffer[offset++] = (char) ('0' + year / 1000);
+        buffer[offset++] = (char) ('0' + year / 100 % 10);
+        offset = appendTwoDigits(buffer, offset, year % 100);
+        buffer[offset++] = '-';
+        offset = appendTwoDigits(buffer, offset, date.getMonthValue());
+        buffer[offset++] = '-';
+        return appendTwoDigits(buffer, offset, date.getDayOfMonth());
+    }
+    
+    private static int appendTwoDigits(char[] buffer, int offset, int value) {
+        buffer[offset++] = (char) ('0' + value / 10);
+        buffer[offset++] = (char) ('0' + value % 10);
+        return offset;
+    }
+}
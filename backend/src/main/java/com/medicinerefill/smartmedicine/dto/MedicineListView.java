@@ -0,0 +1,43 @@
+package com.medicinerefill.smartmedicine.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.medicinerefill.smartmedicine.model.Medicine;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A list of medicines rendered with the same JSON shape as a List of MedicineResponse,
+ * but written straight from the entities by MedicineListSerializer.
+ */
+@JsonSerialize(using = MedicineListSerializer.class)
+public class MedicineListView {
+    
+    private final List<Medicine> medicines;
+    private final Function<Medicine, String> refillUrls;
+    private final LocalDate today;
+    
+    public MedicineListView(List<Medicine> medicines) {
+        this(medicines, medicine -> RefillLinks.forMedicine(medicine.getMedicineName()));
+    }
+    
+    public MedicineListView(List<Medicine> medicines, Function<Medicine, String> refillUrls) {
+        this.medicines = medicines;
+        this.refillUrls = refillUrls;
+        // Fixed once so every row's daysLeft is computed against the same date
+        this.today = LocalDate.now();
+    }
+    
+    public List<Medicine> getMedicines() {
+        return medicines;
+    }
+    
+    public LocalDate getToday() {
+        return today;
+    }
+    
+    public String getRefillUrl(Medicine medicine) {
+        return refillUrls.apply(medicine);
+    }
+}
@@ -28,6 +28,12 @@ public class MedicineRequest {
     
     private Integer lowStockThreshold = 5;
     
+    // Optional; without it dosagePerDay is taken every day
+    private DosingScheduleDto schedule;
+    
+    // Household profile the medicine is for; defaults to the account holder on create, unchanged on update
+    private Long profileId;
+    
     public MedicineRequest() {}
     
     public MedicineRequest(String medicineName, Integer dosagePerDay, Integer totalQuantity, LocalDate startDate) {
@@ -94,4 +100,20 @@ public class MedicineRequest {
     public void setLowStockThreshold(Integer lowStockThreshold) {
         this.lowStockThreshold = lowStockThreshold;
     }
+    
+    public DosingScheduleDto getSchedule() {
+        return schedule;
+    }
+    
+    public void setSchedule(DosingScheduleDto schedule) {
+        this.schedule = schedule;
+    }
+    
+    public Long getProfileId() {
+        return profileId;
+    }
+    
+    public void setProfileId(Long profileId) {
+        this.profileId = profileId;
+    }
 }
\ No newline at end of file
@@ -19,15 +19,21 @@ public class MedicineResponse {
     private Medicine.MedicineStatus status;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long profileId;
     
     // Calculated fields
-    private int daysLeft;
+    private Integer daysLeft;
     private int remainingDoses;
     private String refillUrl;
+    private DosingScheduleDto schedule;
     
     public MedicineResponse() {}
     
     public MedicineResponse(Medicine medicine) {
+        this(medicine, RefillLinks.forMedicine(medicine.getMedicineName()));
+    }
+    
+    public MedicineResponse(Medicine medicine, String refillUrl) {
         this.id = medicine.getId();
         this.medicineName = medicine.getMedicineName();
         this.dosagePerDay = medicine.getDosagePerDay();
@@ -40,11 +46,20 @@ public class MedicineResponse {
         this.status = medicine.getStatus();
         this.createdAt = medicine.getCreatedAt();
         this.updatedAt = medicine.getUpdatedAt();
+        this.profileId = profileIdOf(medicine);
         
         // Calculate derived fields
         this.daysLeft = medicine.getDaysLeft();
         this.remainingDoses = medicine.getRemainingDoses();
-        this.refillUrl = "https://www.1mg.com/search/all?name=" + medicine.getMedicineName().replace(" ", "%20");
+        this.refillUrl = refillUrl;
+        this.schedule = DosingScheduleDto.from(medicine.getSchedule());
+    }
+    
+    /**
+     * Id of the medicine's profile, read from the lazy proxy without loading it.
+     */
+    public static Long profileIdOf(Medicine medicine) {
+        return medicine.getProfile() != null ? medicine.getProfile().getId() : null;
     }
     
     // Getters and setters
@@ -144,11 +159,19 @@ public class MedicineResponse {
         this.updatedAt = updatedAt;
     }
     
-    public int getDaysLeft() {
+    public Long getProfileId() {
+        return profileId;
+    }
+    
+    public void setProfileId(Long profileId) {
+        this.profileId = profileId;
+    }
+    
+    public Integer getDaysLeft() {
         return daysLeft;
     }
     
-    public void setDaysLeft(int daysLeft) {
+    public void setDaysLeft(Integer daysLeft) {
         this.daysLeft = daysLeft;
     }
     
@@ -167,4 +190,12 @@ public class MedicineResponse {
     public void setRefillUrl(String refillUrl) {
         this.refillUrl = refillUrl;
     }
+    
+    public DosingScheduleDto getSchedule() {
+        return schedule;
+    }
+    
+    public void setSchedule(DosingScheduleDto schedule) {
+        this.schedule = schedule;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.medicinerefill.smartmedicine.dto;
+
+import java.util.List;
+
+public class NotificationPreferencesRequest {
+    
+    // Channel names, e.g. ["email", "webhook"]; null resets to the default channels
+    private List<String> channels;
+    
+    // Personal webhook; must match app.notifications.channels.webhook.allowed-url-prefixes
+    private String webhookUrl;
+    
+    public NotificationPreferencesRequest() {}
+    
+    // Getters and setters
+    public List<String> getChannels() {
+        return channels;
+    }
+    
+    public void setChannels(List<String> channels) {
+        this.channels = channels;
+    }
+    
+    public String getWebhookUrl() {
+        return webhookUrl;
+    }
+    
+    public void setWebhookUrl(String webhookUrl) {
+        this.webhookUrl = webhookUrl;
+    }
+}
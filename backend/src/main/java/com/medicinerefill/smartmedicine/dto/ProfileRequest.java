@@ -0,0 +1,57 @@
+package com.medicinerefill.smartmedicine.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+public class ProfileRequest {
+    
+    @NotBlank
+    @Size(max = 50)
+    private String name;
+    
+    // CSS color of the avatar, e.g. "#4CAF50"
+    @Size(max = 20)
+    private String color;
+    
+    @Pattern(regexp = "circle|square|hex")
+    private String shape;
+    
+    @Size(max = 16)
+    private String avatarEmoji;
+    
+    public ProfileRequest() {}
+    
+    // Getters and setters
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getColor() {
+        return color;
+    }
+    
+    public void setColor(String color) {
+        this.color = color;
+    }
+    
+    public String getShape() {
+        return shape;
+    }
+    
+    public void setShape(String shape) {
+        this.shape = shape;
+    }
+    
+    public String getAvatarEmoji() {
+        return avatarEmoji;
+    }
+    
+    public void setAvatarEmoji(String avatarEmoji) {
+        this.avatarEmoji = avatarEmoji;
+    }
+}
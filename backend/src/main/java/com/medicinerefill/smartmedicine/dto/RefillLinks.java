@@ -0,0 +1,33 @@
+package com.medicinerefill.smartmedicine.dto;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds the pharmacy search link for a medicine name. Names repeat heavily across users,
+ * so encoded links are cached; the cache is simply dropped when it reaches its bound.
+ */
+public final class RefillLinks {
+    
+    private static final String SEARCH_URL = "https://www.1mg.com/search/all?name=";
+    private static final int MAX_CACHED_NAMES = 4096;
+    
+    private static final Map<String, String> cache = new ConcurrentHashMap<>();
+    
+    private RefillLinks() {}
+    
+    public static String forMedicine(String medicineName) {
+        String link = cache.get(medicineName);
+        if (link == null) {
+            if (cache.size() >= MAX_CACHED_NAMES) {
+                cache.clear();
+            }
+            // URLEncoder produces form encoding; spaces must be %20 in a query string link
+            link = SEARCH_URL + URLEncoder.encode(medicineName, StandardCharsets.UTF_8).replace("+", "%20");
+            cache.put(medicineName, link);
+        }
+        return link;
+    }
+}
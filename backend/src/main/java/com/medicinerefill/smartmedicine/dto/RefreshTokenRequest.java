@@ -0,0 +1,20 @@
+package com.medicinerefill.smartmedicine.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class RefreshTokenRequest {
+    
+    @NotBlank
+    private String refreshToken;
+    
+    public RefreshTokenRequest() {}
+    
+    // Getters and setters
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+    
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
@@ -0,0 +1,153 @@
+package com.medicinerefill.smartmedicine.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Transient;
+
+import java.time.DayOfWeek;
+import java.util.Arrays;
+
+/**
+ * Variable dosing for a medicine: a repeating per-day dose pattern anchored at the start date,
+ * an optional weekday mask and an optional taper. A medicine without a schedule takes
+ * dosagePerDay every day. See RefillForecaster for how run-out dates are computed.
+ */
+@Embeddable
+public class DosingSchedule {
+    
+    public static final int ALL_WEEKDAYS = 0x7F;
+    public static final int MAX_PATTERN_DAYS = 28;
+    
+    // Comma-separated doses for consecutive days, e.g. "2,0" for two doses every other day
+    @Column(name = "dose_pattern")
+    private String dosePattern;
+    
+    // Bit 0 = Monday .. bit 6 = Sunday; null means every day
+    @Column(name = "weekday_mask")
+    private Integer weekdayMask;
+    
+    @Column(name = "taper_step")
+    private Integer taperStep;
+    
+    @Column(name = "taper_every_days")
+    private Integer taperEveryDays;
+    
+    @Column(name = "taper_floor")
+    private Integer taperFloor;
+    
+    @Transient
+    private int[] parsedPattern;
+    
+    public DosingSchedule() {}
+    
+    public DosingSchedule(int[] doses, Integer weekdayMask, Integer taperStep, Integer taperEveryDays,
+                          Integer taperFloor) {
+        setDoses(doses);
+        this.weekdayMask = weekdayMask;
+        this.taperStep = taperStep;
+        this.taperEveryDays = taperEveryDays;
+        this.taperFloor = taperFloor;
+    }
+    
+    public static int weekdayMask(Iterable<DayOfWeek> days) {
+        int mask = 0;
+        for (DayOfWeek day : days) {
+            mask |= 1 << (day.getValue() - 1);
+        }
+        return mask;
+    }
+    
+    /**
+     * Rejects schedules the forecaster cannot work with. Throws IllegalArgumentException.
+     */
+    public void validate() {
+        int[] doses = getDoses();
+        if (doses != null) {
+            if (doses.length == 0 || doses.length > MAX_PATTERN_DAYS) {
+                throw new IllegalArgumentException("Dose pattern must have 1 to " + MAX_PATTERN_DAYS + " days");
+            }
+            if (Arrays.stream(doses).anyMatch(d -> d < 0)) {
+                throw new IllegalArgumentException("Dose pattern cannot contain negative doses");
+            }
+            if (Arrays.stream(doses).allMatch(d -> d == 0)) {
+                throw new IllegalArgumentException("Dose pattern must contain at least one dose");
+            }
+        }
+        if (weekdayMask != null && (weekdayMask <= 0 || weekdayMask > ALL_WEEKDAYS)) {
+            throw new IllegalArgumentException("Weekday mask must select at least one day");
+        }
+        if ((taperStep == null) != (taperEveryDays == null)) {
+            throw new IllegalArgumentException("Taper needs both a step and an interval");
+        }
+        if (taperStep != null && (taperStep <= 0 || taperEveryDays <= 0)) {
+            throw new IllegalArgumentException("Taper step and interval must be positive");
+        }
+        if (taperFloor != null && taperFloor < 0) {
+            throw new IllegalArgumentException("Taper floor cannot be negative");
+        }
+    }
+    
+    public boolean isTapering() {
+        return taperStep != null && taperEveryDays != null;
+    }
+    
+    /** The dose pattern as numbers, or null if the medicine's dosagePerDay applies every day. */
+    public int[] getDoses() {
+        if (parsedPattern == null && dosePattern != null && !dosePattern.isBlank()) {
+            parsedPattern = Arrays.stream(dosePattern.split(","))
+                    .map(String::trim)
+                    .mapToInt(Integer::parseInt)
+                    .toArray();
+        }
+        return parsedPattern;
+    }
+    
+    public void setDoses(int[] doses) {
+        this.parsedPattern = doses != null ? doses.clone() : null;
+        this.dosePattern = doses != null
+                ? String.join(",", Arrays.stream(doses).mapToObj(String::valueOf).toArray(String[]::new))
+                : null;
+    }
+    
+    // Getters and setters
+    public String getDosePattern() {
+        return dosePattern;
+    }
+    
+    public void setDosePattern(String dosePattern) {
+        this.dosePattern = dosePattern;
+        this.parsedPattern = null;
+    }
+    
+    public Integer getWeekdayMask() {
+        return weekdayMask;
+    }
+    
+    public void setWeekdayMask(Integer weekdayMask) {
+        this.weekdayMask = weekdayMask;
+    }
+    
+    public Integer getTaperStep() {
+        return taperStep;
+    }
+    
+    public void setTaperStep(Integer taperStep) {
+        this.taperStep = taperStep;
+    }
+    
+    public Integer getTaperEveryDays() {
+        return taperEveryDays;
+    }
+    
+    public void setTaperEveryDays(Integer taperEveryDays) {
+        this.taperEveryDays = taperEveryDays;
+    }
+    
+    public Integer getTaperFloor() {
+        return taperFloor;
+    }
+    
+    public void setTaperFloor(Integer taperFloor) {
+        this.taperFloor = taperFloor;
+    }
+}
@@ -1,5 +1,8 @@
 package com.medicinerefill.smartmedicine.model;
 
+import com.medicinerefill.smartmedicine.service.MedicineChangeListener;
+import com.medicinerefill.smartmedicine.service.MedicineSnapshotListener;
+import com.medicinerefill.smartmedicine.service.MedicineStatusCounterListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -11,6 +14,7 @@ import java.time.temporal.ChronoUnit;
 
 @Entity
 @Table(name = "medicines")
+@EntityListeners({MedicineSnapshotListener.class, MedicineStatusCounterListener.class, MedicineChangeListener.class})
 public class Medicine {
     
     @Id
@@ -57,9 +61,45 @@ public class Medicine {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
+    // Household member the medicine is for; always one of the user's profiles
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "profile_id", nullable = false)
+    private Profile profile;
+    
+    // Plain id rather than an association: the catalog is served from MedicineCatalogService's in-memory index
+    @Column(name = "catalog_id")
+    private Long catalogId;
+    
+    // Null when dosagePerDay is taken every day
+    @Embedded
+    private DosingSchedule schedule;
+    
     @Enumerated(EnumType.STRING)
     private MedicineStatus status;
     
+    // State of the last refill reminder, used to suppress unchanged reminders; cleared on refill
+    @Column(name = "last_notified_on")
+    private LocalDate lastNotifiedOn;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "last_notified_status", length = 20)
+    private MedicineStatus lastNotifiedStatus;
+    
+    @Column(name = "last_notified_bucket")
+    private Integer lastNotifiedBucket;
+    
+    // Per-user change sequence for delta sync, assigned on every write by MedicineChangeListener
+    @Column(name = "change_seq", nullable = false)
+    private long changeSeq;
+    
+    // Checked and bumped on every write, so a save based on a stale read fails instead of overwriting
+    @Version
+    private Long version;
+    
+    // Status as last read from or written to the database, for the per-user status counters
+    @Transient
+    private MedicineStatus persistedStatus;
+    
     public enum MedicineStatus {
         OK,
         LOW,
@@ -68,13 +108,15 @@ public class Medicine {
     
     public Medicine() {}
     
-    public Medicine(String medicineName, Integer dosagePerDay, Integer totalQuantity, LocalDate startDate, User user) {
+    public Medicine(String medicineName, Integer dosagePerDay, Integer totalQuantity, LocalDate startDate,
+                    Profile profile) {
         this.medicineName = medicineName;
         this.dosagePerDay = dosagePerDay;
         this.totalQuantity = totalQuantity;
         this.currentQuantity = totalQuantity;
         this.startDate = startDate;
-        this.user = user;
+        this.profile = profile;
+        this.user = profile.getUser();
         calculateRefillDate();
         updateStatus();
     }
@@ -97,10 +139,19 @@ public class Medicine {
         updateStatus();
     }
     
+    // Entity callbacks run after the listeners, which see the previous persistedStatus
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    protected void onStored() {
+        persistedStatus = status;
+    }
+    
     public void calculateRefillDate() {
         if (dosagePerDay != null && currentQuantity != null && currentQuantity > 0) {
-            int daysUntilEmpty = currentQuantity / dosagePerDay;
-            this.refillDate = LocalDate.now().plusDays(daysUntilEmpty);
+            // Null when a taper ends before the supply does
+            this.refillDate = RefillForecaster.runOutDate(currentQuantity, dosagePerDay, schedule, startDate,
+                    LocalDate.now());
         } else {
             this.refillDate = LocalDate.now();
         }
@@ -109,6 +160,8 @@ public class Medicine {
     public void updateStatus() {
         if (currentQuantity == null || currentQuantity <= 0) {
             this.status = MedicineStatus.REFILL_NEEDED;
+        } else if (refillDate == null) {
+            this.status = MedicineStatus.OK;
         } else {
             long daysLeft = ChronoUnit.DAYS.between(LocalDate.now(), refillDate);
             if (daysLeft <= 0) {
@@ -121,11 +174,19 @@ public class Medicine {
         }
     }
     
-    public int getDaysLeft() {
+    public Integer getDaysLeft() {
+        return getDaysLeft(LocalDate.now());
+    }
+    
+    /**
+     * Days until the refill date, 0 once it has passed; null when there is none because the
+     * schedule tapers off before the supply runs out.
+     */
+    public Integer getDaysLeft(LocalDate today) {
         if (refillDate == null) {
-            return 0;
+            return null;
         }
-        long days = ChronoUnit.DAYS.between(LocalDate.now(), refillDate);
+        long days = refillDate.toEpochDay() - today.toEpochDay();
         return Math.max(0, (int) days);
     }
     
@@ -150,6 +211,10 @@ public class Medicine {
         totalQuantity = currentQuantity; // Update total quantity on refill
         calculateRefillDate();
         updateStatus();
+        // A new supply starts a new reminder cycle
+        lastNotifiedOn = null;
+        lastNotifiedStatus = null;
+        lastNotifiedBucket = null;
     }
     
     // Getters and setters
@@ -253,6 +318,35 @@ public class Medicine {
         this.user = user;
     }
     
+    public Profile getProfile() {
+        return profile;
+    }
+    
+    /**
+     * Moves the medicine to another profile of the same account.
+     */
+    public void setProfile(Profile profile) {
+        this.profile = profile;
+    }
+    
+    public Long getCatalogId() {
+        return catalogId;
+    }
+    
+    public void setCatalogId(Long catalogId) {
+        this.catalogId = catalogId;
+    }
+    
+    public DosingSchedule getSchedule() {
+        return schedule;
+    }
+    
+    public void setSchedule(DosingSchedule schedule) {
+        this.schedule = schedule;
+        calculateRefillDate();
+        updateStatus();
+    }
+    
     public MedicineStatus getStatus() {
         return status;
     }
@@ -260,4 +354,44 @@ public class Medicine {
     public void setStatus(MedicineStatus status) {
         this.status = status;
     }
-}
\ No newline at end of file
+    
+    public LocalDate getLastNotifiedOn() {
+        return lastNotifiedOn;
+    }
+    
+    public void setLastNotifiedOn(LocalDate lastNotifiedOn) {
+        this.lastNotifiedOn = lastNotifiedOn;
+    }
+    
+    public MedicineStatus getLastNotifiedStatus() {
+        return lastNotifiedStatus;
+    }
+    
+    public void setLastNotifiedStatus(MedicineStatus lastNotifiedStatus) {
+        this.lastNotifiedStatus = lastNotifiedStatus;
+    }
+    
+    public Integer getLastNotifiedBucket() {
+        return lastNotifiedBucket;
+    }
+    
+    public void setLastNotifiedBucket(Integer lastNotifiedBucket) {
+        this.lastNotifiedBucket = lastNotifiedBucket;
+    }
+    
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public MedicineStatus getPersistedStatus() {
+        return persistedStatus;
+    }
+}
@@ -0,0 +1,80 @@
+package com.medicinerefill.smartmedicine.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "medicine_catalog")
+public class MedicineCatalogEntry {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "display_name", nullable = false)
+    private String displayName;
+    
+    @Column(name = "normalized_name", nullable = false, unique = true)
+    private String normalizedName;
+    
+    @Column(name = "refill_url", nullable = false, length = 2048)
+    private String refillUrl;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    public MedicineCatalogEntry() {}
+    
+    public MedicineCatalogEntry(String displayName, String normalizedName, String refillUrl) {
+        this.displayName = displayName;
+        this.normalizedName = normalizedName;
+        this.refillUrl = refillUrl;
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getNormalizedName() {
+        return normalizedName;
+    }
+    
+    public void setNormalizedName(String normalizedName) {
+        this.normalizedName = normalizedName;
+    }
+    
+    public String getRefillUrl() {
+        return refillUrl;
+    }
+    
+    public void setRefillUrl(String refillUrl) {
+        this.refillUrl = refillUrl;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,129 @@
+package com.medicinerefill.smartmedicine.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.time.LocalDateTime;
+
+/**
+ * A household member whose medicines an account manages. Every account has one default profile
+ * for the account holder; medicines belong to a profile and, through it, to the account.
+ */
+@Entity
+@Table(name = "profiles")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "profiles")
+public class Profile {
+    
+    public static final String DEFAULT_COLOR = "#4CAF50";
+    public static final String DEFAULT_SHAPE = "circle";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+    
+    @NotBlank
+    @Size(max = 50)
+    private String name;
+    
+    // Avatar shown by the family switcher
+    @Column(length = 20)
+    private String color = DEFAULT_COLOR;
+    
+    @Column(length = 10)
+    private String shape = DEFAULT_SHAPE;
+    
+    @Column(name = "avatar_emoji", length = 16)
+    private String avatarEmoji;
+    
+    // The account holder's own profile; cannot be deleted
+    @Column(name = "default_profile", nullable = false)
+    private boolean defaultProfile;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    public Profile() {}
+    
+    public Profile(User user, String name, boolean defaultProfile) {
+        this.user = user;
+        this.name = name;
+        this.defaultProfile = defaultProfile;
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public User getUser() {
+        return user;
+    }
+    
+    public void setUser(User user) {
+        this.user = user;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getColor() {
+        return color;
+    }
+    
+    public void setColor(String color) {
+        this.color = color;
+    }
+    
+    public String getShape() {
+        return shape;
+    }
+    
+    public void setShape(String shape) {
+        this.shape = shape;
+    }
+    
+    public String getAvatarEmoji() {
+        return avatarEmoji;
+    }
+    
+    public void setAvatarEmoji(String avatarEmoji) {
+        this.avatarEmoji = avatarEmoji;
+    }
+    
+    public boolean isDefaultProfile() {
+        return defaultProfile;
+    }
+    
+    public void setDefaultProfile(boolean defaultProfile) {
+        this.defaultProfile = defaultProfile;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
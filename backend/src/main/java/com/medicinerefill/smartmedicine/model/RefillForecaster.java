@@ -0,0 +1,112 @@
+package com.medicinerefill.smartmedicine.model;
+
+import java.time.LocalDate;
+
+/**
+ * Computes when a supply runs out under a dosing schedule. The run-out date is the first day
+ * whose dose can no longer be covered by the remaining quantity, which for a constant daily dose
+ * is {@code from + quantity / dosagePerDay} as before.
+ *
+ * Instead of simulating day by day, the forecast works in blocks of lcm(pattern length, 7) days,
+ * over which both the dose pattern and the weekday mask repeat. Within a taper level every block
+ * consumes the same amount, so whole blocks are skipped with one division and at most one block
+ * is walked day by day per level. The cost depends on the pattern length and the number of taper
+ * levels, not on the size of the supply.
+ */
+public final class RefillForecaster {
+    
+    // 1970-01-01 (epoch day 0) was a Thursday, index 3 when Monday is 0
+    private static final int EPOCH_DAY_OF_WEEK = 3;
+    
+    private RefillForecaster() {}
+    
+    /**
+     * Returns the run-out date for {@code quantity} doses counted from {@code from}, or null if
+     * the schedule tapers off before the supply is used up.
+     *
+     * @param anchor first day of the dose pattern and the taper (the medicine's start date);
+     *               {@code from} is used when null
+     */
+    public static LocalDate runOutDate(int quantity, int dosagePerDay, DosingSchedule schedule,
+                                       LocalDate anchor, LocalDate from) {
+        if (quantity <= 0) {
+            return from;
+        }
+        int[] pattern = schedule != null && schedule.getDoses() != null
+                ? schedule.getDoses()
+                : new int[] {dosagePerDay};
+        int mask = schedule != null && schedule.getWeekdayMask() != null
+                ? schedule.getWeekdayMask()
+                : DosingSchedule.ALL_WEEKDAYS;
+        boolean tapering = schedule != null && schedule.isTapering();
+        int step = tapering ? schedule.getTaperStep() : 0;
+        int every = tapering ? schedule.getTaperEveryDays() : 0;
+        int floor = tapering && schedule.getTaperFloor() != null ? schedule.getTaperFloor() : 0;
+        
+        int maxDose = 0;
+        for (int dose : pattern) {
+            maxDose = Math.max(maxDose, dose);
+        }
+        int period = mask == DosingSchedule.ALL_WEEKDAYS ? pattern.length : lcm(pattern.length, 7);
+        long anchorDay = (anchor != null ? anchor : from).toEpochDay();
+        long day = from.toEpochDay();
+        long remaining = quantity;
+        
+        while (true) {
+            int level = tapering ? (int) Math.max(0, Math.floorDiv(day - anchorDay, every)) : 0;
+            // Past the last taper level the doses stay the same forever
+            boolean lastLevel = !tapering || (long) maxDose - (long) step * level <= floor;
+            long levelEnd = lastLevel ? Long.MAX_VALUE : anchorDay + (long) (level + 1) * every;
+            
+            long blockDoses = 0;
+            for (long d = day; d < day + period; d++) {
+                blockDoses += dose(pattern, mask, anchorDay, d, level, step, floor);
+            }
+            if (blockDoses == 0) {
+                if (lastLevel) {
+                    return null;
+                }
+                day = levelEnd;
+                continue;
+            }
+            
+            long blocks = remaining / blockDoses;
+            if (!lastLevel) {
+                blocks = Math.min(blocks, (levelEnd - day) / period);
+            }
+            remaining -= blocks * blockDoses;
+            day += blocks * period;
+            
+            long limit = Math.min(levelEnd, day + period);
+            for (; day < limit; day++) {
+                int dose = dose(pattern, mask, anchorDay, day, level, step, floor);
+                if (dose > remaining) {
+                    return LocalDate.ofEpochDay(day);
+                }
+                remaining -= dose;
+            }
+        }
+    }
+    
+    private static int dose(int[] pattern, int mask, long anchorDay, long day, int level, int step, int floor) {
+        if ((mask & (1 << Math.floorMod(day + EPOCH_DAY_OF_WEEK, 7))) == 0) {
+            return 0;
+        }
+        int base = pattern[(int) Math.floorMod(day - anchorDay, (long) pattern.length)];
+        if (base == 0 || level == 0) {
+            return base;
+        }
+        return (int) Math.max(Math.min(base, floor), (long) base - (long) step * level);
+    }
+    
+    private static int lcm(int a, int b) {
+        int x = a;
+        int y = b;
+        while (y != 0) {
+            int t = x % y;
+            x = y;
+            y = t;
+        }
+        return a / x * b;
+    }
+}
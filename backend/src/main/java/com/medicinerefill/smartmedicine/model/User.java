@@ -1,21 +1,37 @@
 package com.medicinerefill.smartmedicine.model;
 
+import com.medicinerefill.smartmedicine.service.MedicineSnapshotListener;
+import com.medicinerefill.smartmedicine.service.MedicineStatusCounterListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 @Entity
 @Table(name = "users")
+// Read on every authenticated request, written rarely; regions are sized in ehcache.xml
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-by-email")
+@EntityListeners({MedicineSnapshotListener.class, MedicineStatusCounterListener.class})
 public class User implements UserDetails {
     
+    public static final String ROLE_USER = "USER";
+    public static final String ROLE_ADMIN = "ADMIN";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -28,6 +44,7 @@ public class User implements UserDetails {
     @Size(max = 50)
     @Email
     @Column(unique = true)
+    @NaturalId
     private String email;
     
     @NotBlank
@@ -43,9 +60,26 @@ public class User implements UserDetails {
     @Column(name = "email_notifications_enabled")
     private Boolean emailNotificationsEnabled = true;
     
+    @Column(nullable = false, length = 20)
+    private String role = ROLE_USER;
+    
+    // Comma-separated channel names; null means the configured default channels
+    @Column(name = "notification_channels")
+    private String notificationChannels;
+    
+    @Column(name = "webhook_url", length = 2048)
+    private String webhookUrl;
+    
+    // Day the last reminder digest was queued; a user gets at most one digest per day
+    @Column(name = "last_digest_sent_on")
+    private LocalDate lastDigestSentOn;
+    
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Medicine> medicines;
     
+    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    private List<Profile> profiles = new ArrayList<>();
+    
     public User() {}
     
     public User(String name, String email, String password) {
@@ -54,6 +88,8 @@ public class User implements UserDetails {
         this.password = password;
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
+        // Every account starts with a profile for the account holder, saved with it
+        this.profiles.add(new Profile(this, name, true));
     }
     
     @PrePersist
@@ -70,7 +106,7 @@ public class User implements UserDetails {
     // UserDetails implementation
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Collections.emptyList(); // No roles for now
+        return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role));
     }
     
     @Override
@@ -156,6 +192,38 @@ public class User implements UserDetails {
         this.emailNotificationsEnabled = emailNotificationsEnabled;
     }
     
+    public String getRole() {
+        return role;
+    }
+    
+    public void setRole(String role) {
+        this.role = role;
+    }
+    
+    public String getNotificationChannels() {
+        return notificationChannels;
+    }
+    
+    public void setNotificationChannels(String notificationChannels) {
+        this.notificationChannels = notificationChannels;
+    }
+    
+    public String getWebhookUrl() {
+        return webhookUrl;
+    }
+    
+    public void setWebhookUrl(String webhookUrl) {
+        this.webhookUrl = webhookUrl;
+    }
+    
+    public LocalDate getLastDigestSentOn() {
+        return lastDigestSentOn;
+    }
+    
+    public void setLastDigestSentOn(LocalDate lastDigestSentOn) {
+        this.lastDigestSentOn = lastDigestSentOn;
+    }
+    
     public List<Medicine> getMedicines() {
         return medicines;
     }
@@ -163,4 +231,19 @@ public class User implements UserDetails {
     public void setMedicines(List<Medicine> medicines) {
         this.medicines = medicines;
     }
+    
+    public List<Profile> getProfiles() {
+        return profiles;
+    }
+    
+    public void setProfiles(List<Profile> profiles) {
+        this.profiles = profiles;
+    }
+    
+    /**
+     * Default profile of a user created in this session; loaded users have to query it.
+     */
+    public Profile getDefaultProfile() {
+        return profiles.stream().filter(Profile::isDefaultProfile).findFirst().orElse(null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.medicinerefill.smartmedicine.repository;
+
+import com.medicinerefill.smartmedicine.model.MedicineCatalogEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface MedicineCatalogRepository extends JpaRepository<MedicineCatalogEntry, Long> {
+    Optional<MedicineCatalogEntry> findByNormalizedName(String normalizedName);
+}
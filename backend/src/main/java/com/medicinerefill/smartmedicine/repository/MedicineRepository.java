@@ -2,33 +2,73 @@ package com.medicinerefill.smartmedicine.repository;
 
 import com.medicinerefill.smartmedicine.model.Medicine;
 import com.medicinerefill.smartmedicine.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface MedicineRepository extends JpaRepository<Medicine, Long> {
+public interface MedicineRepository extends JpaRepository<Medicine, Long>, MedicineRepositoryCustom {
     
     List<Medicine> findByUser(User user);
     
     List<Medicine> findByUserOrderByRefillDateAsc(User user);
     
+    List<Medicine> findTop5ByUserOrderByIdAsc(User user);
+    
+    List<Medicine> findByProfileIdOrderByRefillDateAsc(Long profileId);
+    
+    boolean existsByProfileId(Long profileId);
+    
+    // Delta sync: medicines written after a change sequence value, oldest change first
+    @Query("SELECT m FROM Medicine m WHERE m.user.id = :userId AND m.changeSeq > :sinceSeq ORDER BY m.changeSeq")
+    List<Medicine> findChangedSince(@Param("userId") Long userId, @Param("sinceSeq") long sinceSeq, Pageable pageable);
+    
+    long countByUser(User user);
+    
     @Query("SELECT m FROM Medicine m WHERE m.user = :user AND m.status = :status")
     List<Medicine> findByUserAndStatus(@Param("user") User user, @Param("status") Medicine.MedicineStatus status);
     
-    @Query("SELECT m FROM Medicine m WHERE m.refillDate <= :date AND m.notificationsEnabled = true AND m.user.emailNotificationsEnabled = true")
+    // Reminder scans run on the read pool and fetch the user so results can be grouped outside a session
+    @Transactional(readOnly = true)
+    @Query("SELECT m FROM Medicine m JOIN FETCH m.user u WHERE m.refillDate <= :date AND m.notificationsEnabled = true AND u.emailNotificationsEnabled = true")
     List<Medicine> findMedicinesNeedingRefillReminder(@Param("date") LocalDate date);
     
-    @Query("SELECT m FROM Medicine m WHERE m.refillDate BETWEEN :startDate AND :endDate AND m.notificationsEnabled = true AND m.user.emailNotificationsEnabled = true")
+    @Transactional(readOnly = true)
+    @Query("SELECT m FROM Medicine m JOIN FETCH m.user u WHERE m.refillDate BETWEEN :startDate AND :endDate AND m.notificationsEnabled = true AND u.emailNotificationsEnabled = true")
     List<Medicine> findMedicinesNeedingRefillReminderBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
     
+    // Hits of a MedicineSnapshot scan
+    @Transactional(readOnly = true)
+    @Query("SELECT m FROM Medicine m JOIN FETCH m.user u WHERE m.id IN :ids")
+    List<Medicine> findWithUserByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Dashboard counts come from MedicineStatusCounters; these are the fallback for users without a counter row
     @Query("SELECT COUNT(m) FROM Medicine m WHERE m.user = :user AND m.status = 'REFILL_NEEDED'")
     long countRefillNeededByUser(@Param("user") User user);
     
     @Query("SELECT COUNT(m) FROM Medicine m WHERE m.user = :user AND m.status = 'LOW'")
     long countLowStockByUser(@Param("user") User user);
-}
\ No newline at end of file
+    
+    @Query("SELECT DISTINCT m.medicineName FROM Medicine m WHERE m.catalogId IS NULL")
+    List<String> findUncataloguedMedicineNames();
+    
+    // Reminder state after a delivery, one statement per bucket and status; dueBy is day + bucket. Bypasses
+    // @Version, so rows changed since the run loaded them (a refill moves the refill date past dueBy or changes
+    // the status) are left alone rather than marked, and the new supply still gets its first reminder
+    @Transactional
+    @Modifying
+    @Query("UPDATE Medicine m SET m.lastNotifiedOn = :day, m.lastNotifiedBucket = :bucket, m.lastNotifiedStatus = :status"
+            + " WHERE m.id IN :ids AND m.status = :status"
+            + " AND m.refillDate BETWEEN :day AND :dueBy"
+            + " AND (m.lastNotifiedOn IS NULL OR m.lastNotifiedOn < :day)")
+    int markNotified(@Param("ids") Collection<Long> ids, @Param("day") LocalDate day, @Param("bucket") int bucket,
+                     @Param("status") Medicine.MedicineStatus status, @Param("dueBy") LocalDate dueBy);
+}
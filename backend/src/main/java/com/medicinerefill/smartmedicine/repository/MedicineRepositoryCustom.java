@@ -0,0 +1,20 @@
+package com.medicinerefill.smartmedicine.repository;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface MedicineRepositoryCustom {
+    
+    /**
+     * Reminder candidates with a refill date between {@code today} and {@code endDate} that are not
+     * suppressed: never reminded, reminded more than the largest milestone ago, now in a different
+     * days-left bucket than at the last reminder, or (with {@code onStatusChange}) in a different
+     * status. Medicines beyond the largest milestone are left out.
+     *
+     * @param milestones ascending, distinct, not empty
+     */
+    List<Medicine> findUnsuppressedReminderCandidates(LocalDate today, LocalDate endDate, List<Integer> milestones,
+                                                      boolean onStatusChange);
+}
@@ -0,0 +1,53 @@
+package com.medicinerefill.smartmedicine.repository;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Suppression filter for the reminder scan. The days-left bucket is computed in the query with a
+ * CASE over the milestone dates, so suppressed rows never leave the database.
+ */
+public class MedicineRepositoryImpl implements MedicineRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<Medicine> findUnsuppressedReminderCandidates(LocalDate today, LocalDate endDate,
+                                                             List<Integer> milestones, boolean onStatusChange) {
+        int largest = milestones.get(milestones.size() - 1);
+        LocalDate lastDay = today.plusDays(largest).isBefore(endDate) ? today.plusDays(largest) : endDate;
+        
+        StringBuilder bucket = new StringBuilder("CASE");
+        for (int i = 0; i < milestones.size(); i++) {
+            // Milestones are integers from configuration, safe to inline
+            bucket.append(" WHEN m.refillDate <= :milestone").append(i).append(" THEN ").append(milestones.get(i));
+        }
+        bucket.append(" ELSE -1 END");
+        
+        String jpql = "SELECT m FROM Medicine m JOIN FETCH m.user u"
+                + " WHERE m.refillDate BETWEEN :today AND :lastDay"
+                + " AND m.notificationsEnabled = true AND u.emailNotificationsEnabled = true"
+                + " AND (m.lastNotifiedOn IS NULL OR m.lastNotifiedBucket IS NULL"
+                + " OR m.lastNotifiedOn < :staleBefore"
+                + " OR " + bucket + " <> m.lastNotifiedBucket"
+                + (onStatusChange ? " OR m.status <> m.lastNotifiedStatus" : "")
+                + ")";
+        TypedQuery<Medicine> query = entityManager.createQuery(jpql, Medicine.class)
+                .setParameter("today", today)
+                .setParameter("lastDay", lastDay)
+                // Older state belongs to an earlier supply
+                .setParameter("staleBefore", today.minusDays(largest));
+        for (int i = 0; i < milestones.size(); i++) {
+            query.setParameter("milestone" + i, today.plusDays(milestones.get(i)));
+        }
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.medicinerefill.smartmedicine.repository;
+
+import com.medicinerefill.smartmedicine.model.Profile;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ProfileRepository extends JpaRepository<Profile, Long> {
+    
+    // Read on every medicine write (ProfileAccess). Cached ids stay valid until any profile is written,
+    // which Hibernate tracks per table; the summary query below joins medicines and is not cached
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "profile-queries")
+    })
+    List<Profile> findByUserIdOrderByIdAsc(Long userId);
+    
+    long countByUserId(Long userId);
+    
+    // Household dashboard: every profile of the account with its medicine counts, in one grouped query
+    @Transactional(readOnly = true)
+    @Query("SELECT p.id AS id, p.name AS name, p.color AS color, p.shape AS shape, p.avatarEmoji AS avatarEmoji,"
+            + " p.defaultProfile AS defaultProfile, COUNT(m.id) AS totalMedicines,"
+            + " COALESCE(SUM(CASE WHEN m.status = 'OK' THEN 1 ELSE 0 END), 0) AS ok,"
+            + " COALESCE(SUM(CASE WHEN m.status = 'LOW' THEN 1 ELSE 0 END), 0) AS lowStock,"
+            + " COALESCE(SUM(CASE WHEN m.status = 'REFILL_NEEDED' THEN 1 ELSE 0 END), 0) AS refillNeeded,"
+            + " MIN(m.refillDate) AS nextRefillDate"
+            + " FROM Profile p LEFT JOIN Medicine m ON m.profile = p"
+            + " WHERE p.user.id = :userId"
+            + " GROUP BY p.id, p.name, p.color, p.shape, p.avatarEmoji, p.defaultProfile"
+            + " ORDER BY p.id")
+    List<Summary> summarizeByUserId(@Param("userId") Long userId);
+    
+    /**
+     * One row of {@link #summarizeByUserId}.
+     */
+    interface Summary {
+        Long getId();
+        String getName();
+        String getColor();
+        String getShape();
+        String getAvatarEmoji();
+        Boolean getDefaultProfile();
+        Long getTotalMedicines();
+        Long getOk();
+        Long getLowStock();
+        Long getRefillNeeded();
+        LocalDate getNextRefillDate();
+    }
+}
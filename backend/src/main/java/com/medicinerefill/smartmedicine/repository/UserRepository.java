@@ -2,12 +2,29 @@ package com.medicinerefill.smartmedicine.repository;
 
 import com.medicinerefill.smartmedicine.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+    
+    // Bulk updates evict the whole users cache region, so cached principals never keep an old value
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.role = :role WHERE LOWER(u.email) IN :emails AND u.role <> :role")
+    int updateRoleByEmailIn(@Param("emails") Collection<String> emails, @Param("role") String role);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.lastDigestSentOn = :day WHERE u.id IN :ids")
+    int markDigestSent(@Param("ids") Collection<Long> ids, @Param("day") LocalDate day);
+}
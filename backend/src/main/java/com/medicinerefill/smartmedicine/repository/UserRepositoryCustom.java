@@ -0,0 +1,14 @@
+package com.medicinerefill.smartmedicine.repository;
+
+import com.medicinerefill.smartmedicine.model.User;
+
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+    
+    /**
+     * User by the natural id email, through the second-level cache: a repeated lookup reads neither
+     * the email-to-id resolution nor the user row from the database.
+     */
+    Optional<User> findByNaturalEmail(String email);
+}
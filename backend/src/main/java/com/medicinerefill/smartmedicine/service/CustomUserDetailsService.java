@@ -2,23 +2,57 @@ package com.medicinerefill.smartmedicine.service;
 
 import com.medicinerefill.smartmedicine.model.User;
 import com.medicinerefill.smartmedicine.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.annotation.PostConstruct;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
     
+    private static final Logger logger = LoggerFactory.getLogger(CustomUserDetailsService.class);
+    
     @Autowired
     private UserRepository userRepository;
     
+    // Comma-separated; these accounts get the ADMIN role at signup and on startup
+    @Value("${app.security.admin-emails:}")
+    private String adminEmailList;
+    
+    private Set<String> adminEmails;
+    
+    @PostConstruct
+    void promoteConfiguredAdmins() {
+        adminEmails = Stream.of(adminEmailList.split(","))
+                .map(email -> email.trim().toLowerCase(Locale.ROOT))
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        if (!adminEmails.isEmpty()) {
+            int promoted = userRepository.updateRoleByEmailIn(adminEmails, User.ROLE_ADMIN);
+            logger.info("{} admin account(s) configured, {} promoted", adminEmails.size(), promoted);
+        }
+    }
+    
+    public String roleFor(String email) {
+        return adminEmails.contains(email.toLowerCase(Locale.ROOT)) ? User.ROLE_ADMIN : User.ROLE_USER;
+    }
+    
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
+        // Runs for every authenticated request (JWT filter); served from the second-level cache after the first
+        User user = userRepository.findByNaturalEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email : " + email));
         
         return user;
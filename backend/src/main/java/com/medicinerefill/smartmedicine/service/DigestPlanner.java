@@ -0,0 +1,124 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides what each user receives from a reminder run. The daily reminder covers refills due within
+ * {@link #REMINDER_DAYS} days and the weekly summary everything due within {@link #SUMMARY_DAYS};
+ * when both apply the candidates are fetched once with the wider window and every user gets one
+ * digest with the due medicines and the rest of the summary, instead of two overlapping messages.
+ * Users who already got a digest today, or whose digest is still being delivered, are left out.
+ */
+public final class DigestPlanner {
+    
+    public static final int REMINDER_DAYS = 7;
+    public static final int SUMMARY_DAYS = 14;
+    
+    // The daily run folds in the weekly summary on this day
+    public static final DayOfWeek SUMMARY_DAY = DayOfWeek.MONDAY;
+    
+    private static final Comparator<Medicine> BY_REFILL_DATE = Comparator.comparing(Medicine::getRefillDate)
+            .thenComparing(Medicine::getMedicineName);
+    
+    private DigestPlanner() {}
+    
+    /**
+     * Last refill date the candidate query has to cover.
+     */
+    public static LocalDate windowEnd(LocalDate today, boolean includeSummary) {
+        return today.plusDays(includeSummary ? SUMMARY_DAYS : REMINDER_DAYS);
+    }
+    
+    /**
+     * Groups {@code candidates} (medicines with a refill date between today and
+     * {@link #windowEnd}) into one digest per user, in a single pass, skipping {@code pendingUserIds}.
+     */
+    public static Plan plan(List<Medicine> candidates, LocalDate today, boolean includeSummary,
+                            Set<Long> pendingUserIds) {
+        LocalDate reminderEnd = today.plusDays(REMINDER_DAYS);
+        Map<Long, UserDigest> digests = new LinkedHashMap<>();
+        int alreadySent = 0;
+        for (Medicine medicine : candidates) {
+            User user = medicine.getUser();
+            if (today.equals(user.getLastDigestSentOn()) || pendingUserIds.contains(user.getId())) {
+                alreadySent++;
+                continue;
+            }
+            boolean dueSoon = !medicine.getRefillDate().isAfter(reminderEnd);
+            if (!dueSoon && !includeSummary) {
+                continue;
+            }
+            UserDigest digest = digests.computeIfAbsent(user.getId(), id -> new UserDigest(user));
+            (dueSoon ? digest.dueSoon : digest.upcoming).add(medicine);
+        }
+        for (UserDigest digest : digests.values()) {
+            digest.dueSoon.sort(BY_REFILL_DATE);
+            digest.upcoming.sort(BY_REFILL_DATE);
+        }
+        return new Plan(new ArrayList<>(digests.values()), alreadySent);
+    }
+    
+    /**
+     * Digests to send, and how many candidate medicines were skipped because their user already
+     * got today's digest or is still getting it.
+     */
+    public static class Plan {
+        
+        private final List<UserDigest> digests;
+        private final int skippedAlreadySent;
+        
+        Plan(List<UserDigest> digests, int skippedAlreadySent) {
+            this.digests = digests;
+            this.skippedAlreadySent = skippedAlreadySent;
+        }
+        
+        public List<UserDigest> getDigests() {
+            return digests;
+        }
+        
+        public int getSkippedAlreadySent() {
+            return skippedAlreadySent;
+        }
+    }
+    
+    /**
+     * One user's digest: refills due within the reminder window, and the rest of the summary window
+     * (empty unless the summary is included).
+     */
+    public static class UserDigest {
+        
+        private final User user;
+        private final List<Medicine> dueSoon = new ArrayList<>();
+        private final List<Medicine> upcoming = new ArrayList<>();
+        
+        UserDigest(User user) {
+            this.user = user;
+        }
+        
+        public User getUser() {
+            return user;
+        }
+        
+        public List<Medicine> getDueSoon() {
+            return dueSoon;
+        }
+        
+        public List<Medicine> getUpcoming() {
+            return upcoming;
+        }
+        
+        public int getMedicineCount() {
+            return dueSoon.size() + upcoming.size();
+        }
+    }
+}
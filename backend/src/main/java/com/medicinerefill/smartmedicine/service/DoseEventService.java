@@ -0,0 +1,133 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.dto.DoseEventRequest;
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Applies dose events queued on a device while it was offline. A batch is one transaction: the
+ * medicines are loaded with one query, each event takes one dose, and the event ids are recorded
+ * so an upload retried after a lost response does not take the doses twice.
+ */
+@Service
+public class DoseEventService {
+    
+    public static final String APPLIED = "applied";
+    public static final String DUPLICATE = "duplicate";
+    public static final String OUT_OF_STOCK = "out_of_stock";
+    public static final String NOT_FOUND = "not_found";
+    
+    @Autowired
+    private MedicineRepository medicineRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Applies {@code events} in order to the medicines of {@code userId} that pass
+     * {@code canAccess}. Returns the outcome of every event and the medicines that changed.
+     */
+    @Transactional
+    public Result apply(Long userId, List<DoseEventRequest> events, Predicate<Medicine> canAccess) {
+        Set<String> seen = findRecorded(userId, events.stream().map(DoseEventRequest::getEventId).distinct().toList());
+        Map<Long, Medicine> medicines = new HashMap<>();
+        for (Medicine medicine : medicineRepository.findAllById(
+                events.stream().map(DoseEventRequest::getMedicineId).collect(Collectors.toSet()))) {
+            if (canAccess.test(medicine)) {
+                medicines.put(medicine.getId(), medicine);
+            }
+        }
+        
+        List<Map<String, String>> outcomes = new ArrayList<>(events.size());
+        Map<Long, Medicine> changed = new LinkedHashMap<>();
+        List<Object[]> recorded = new ArrayList<>();
+        Timestamp receivedAt = Timestamp.valueOf(LocalDateTime.now());
+        for (DoseEventRequest event : events) {
+            if (!seen.add(event.getEventId())) {
+                outcomes.add(outcome(event, DUPLICATE));
+                continue;
+            }
+            Medicine medicine = medicines.get(event.getMedicineId());
+            if (medicine == null) {
+                // Not recorded, so the event can be re-sent once the medicine exists
+                seen.remove(event.getEventId());
+                outcomes.add(outcome(event, NOT_FOUND));
+                continue;
+            }
+            if (medicine.getCurrentQuantity() == null || medicine.getCurrentQuantity() <= 0) {
+                outcomes.add(outcome(event, OUT_OF_STOCK));
+            } else {
+                medicine.takeDose();
+                changed.put(medicine.getId(), medicine);
+                outcomes.add(outcome(event, APPLIED));
+            }
+            recorded.add(new Object[] {userId, event.getEventId(), medicine.getId(),
+                    event.getTakenAt() != null ? Timestamp.valueOf(event.getTakenAt()) : null, receivedAt});
+        }
+        
+        if (!recorded.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO dose_events (user_id, event_id, medicine_id, taken_at, received_at)"
+                    + " VALUES (?, ?, ?, ?, ?)", recorded);
+        }
+        // Flushed on commit: one UPDATE per changed medicine, sent as a JDBC batch
+        return new Result(outcomes, new ArrayList<>(changed.values()));
+    }
+    
+    private static Map<String, String> outcome(DoseEventRequest event, String status) {
+        Map<String, String> outcome = new HashMap<>();
+        outcome.put("eventId", event.getEventId());
+        outcome.put("status", status);
+        return outcome;
+    }
+    
+    private Set<String> findRecorded(Long userId, List<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(eventIds.size(), "?"));
+        List<Object> args = new ArrayList<>(eventIds.size() + 1);
+        args.add(userId);
+        args.addAll(eventIds);
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT event_id FROM dose_events WHERE user_id = ?"
+                + " AND event_id IN (" + placeholders + ")", String.class, args.toArray()));
+    }
+    
+    /**
+     * Outcome of every event ({@code eventId}, {@code status}) in upload order, and the medicines whose quantity changed.
+     */
+    public static class Result {
+        
+        private final List<Map<String, String>> outcomes;
+        private final List<Medicine> changed;
+        
+        Result(List<Map<String, String>> outcomes, List<Medicine> changed) {
+            this.outcomes = outcomes;
+            this.changed = changed;
+        }
+        
+        public List<Map<String, String>> getOutcomes() {
+            return outcomes;
+        }
+        
+        public List<Medicine> getChanged() {
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Coalesces take-dose writes. In write-behind mode each tap is applied to an in-memory copy of
+ * the medicine and acknowledged with the projected quantity; decrements per medicine accumulate
+ * in lock-striped buckets and are flushed as one batched UPDATE per medicine on a fixed interval
+ * and on shutdown.
+ *
+ * Durability: taps acknowledged within the last flush interval are lost if the process is killed
+ * without a shutdown. A flush that loses a version race with a direct write (refill, update) re-reads
+ * the medicine and applies its doses again, so stored doses are never overwritten; only the projected
+ * quantity returned to clients can briefly lag writes made through other instances.
+ */
+@Service
+public class DoseWriteBuffer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DoseWriteBuffer.class);
+    
+    public static final String MODE_SYNC = "sync";
+    public static final String MODE_WRITE_BEHIND = "write-behind";
+    
+    @Autowired
+    private MedicineRepository medicineRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.doses.write-mode:" + MODE_SYNC + "}")
+    private String writeMode;
+    
+    @Value("${app.doses.flush-interval:250ms}")
+    private Duration flushInterval;
+    
+    @Value("${app.doses.stripes:16}")
+    private int stripeCount;
+    
+    private Stripe[] stripes;
+    private ScheduledExecutorService flushExecutor;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    @PostConstruct
+    void start() {
+        if (!isWriteBehind()) {
+            return;
+        }
+        // Round up to a power of two so the stripe is a mask of the id hash
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        // Own thread rather than the shared @Scheduled pool, which long reminder runs can occupy
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("dose-flush-"));
+        flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        logger.info("Dose writes coalesced in write-behind mode ({} stripes, flush every {} ms)",
+                count, flushInterval.toMillis());
+    }
+    
+    @PreDestroy
+    void stop() {
+        if (flushExecutor == null) {
+            return;
+        }
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+    
+    public boolean isWriteBehind() {
+        return MODE_WRITE_BEHIND.equalsIgnoreCase(writeMode);
+    }
+    
+    /**
+     * Records one dose and returns the projected state rendered by {@code view}, or empty if the
+     * medicine does not exist or belongs to another user.
+     */
+    public <T> Optional<T> takeDose(Long medicineId, Long userId, Function<Medicine, T> view) {
+        Stripe stripe = stripeFor(medicineId);
+        
+        stripe.lock.lock();
+        try {
+            PendingDoses pending = stripe.entries.get(medicineId);
+            if (pending != null && pending.snapshot != null) {
+                return Optional.ofNullable(pending.userId.equals(userId) ? pending.apply(view) : null);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        
+        // First tap since the last flush: load outside the stripe lock
+        Medicine loaded = medicineRepository.findById(medicineId)
+                .filter(m -> m.getUser().getId().equals(userId))
+                .orElse(null);
+        if (loaded == null) {
+            return Optional.empty();
+        }
+        
+        stripe.lock.lock();
+        try {
+            PendingDoses pending = stripe.entries.get(medicineId);
+            if (pending == null) {
+                pending = new PendingDoses(userId, loaded);
+                stripe.entries.put(medicineId, pending);
+            } else if (pending.snapshot == null) {
+                // Invalidated by a direct write; re-project doses that are not yet stored
+                pending.snapshot = loaded;
+                for (int i = 0; i < pending.pending + pending.inFlight; i++) {
+                    loaded.takeDose();
+                }
+            }
+            return Optional.ofNullable(pending.apply(view));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    /**
+     * Writes all pending decrements: on the flush interval, on shutdown and before the archive moves
+     * medicines.
+     */
+    public void flush() {
+        if (!isWriteBehind()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            store(drain());
+            evictIdle();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Writes the pending decrements of one medicine. Called before a direct write to it so the write
+     * sees every acknowledged dose; it only takes that medicine's stripe and row, so direct writes
+     * neither queue behind nor fail with other medicines' doses.
+     */
+    public void flush(Long medicineId) {
+        if (!isWriteBehind()) {
+            return;
+        }
+        store(drain(medicineId));
+    }
+    
+    private void store(Map<Long, Integer> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean stored = false;
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            optimisticRetry.run(() -> transaction.execute(status -> {
+                List<Medicine> medicines = medicineRepository.findAllById(batch.keySet());
+                for (Medicine medicine : medicines) {
+                    int doses = batch.get(medicine.getId());
+                    for (int i = 0; i < doses; i++) {
+                        medicine.takeDose();
+                    }
+                }
+                // One UPDATE per medicine, sent as a JDBC batch
+                return medicineRepository.saveAll(medicines);
+            }));
+            stored = true;
+        } finally {
+            settle(batch, stored);
+            sample.stop(meterRegistry.timer("dose.flush", "outcome", stored ? "success" : "failure"));
+        }
+        meterRegistry.counter("dose.flushed").increment(batch.values().stream().mapToInt(Integer::intValue).sum());
+    }
+    
+    /**
+     * Drops the cached projection after a direct write (refill, update, delete) to the medicine.
+     */
+    public void evict(Long medicineId) {
+        if (!isWriteBehind()) {
+            return;
+        }
+        Stripe stripe = stripeFor(medicineId);
+        stripe.lock.lock();
+        try {
+            PendingDoses pending = stripe.entries.get(medicineId);
+            if (pending != null) {
+                if (pending.pending == 0 && pending.inFlight == 0) {
+                    stripe.entries.remove(medicineId);
+                } else {
+                    pending.snapshot = null;
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Dose flush failed; pending doses kept for the next attempt", e);
+        }
+    }
+    
+    private Map<Long, Integer> drain() {
+        Map<Long, Integer> batch = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (Map.Entry<Long, PendingDoses> entry : stripe.entries.entrySet()) {
+                    PendingDoses pending = entry.getValue();
+                    if (pending.pending > 0) {
+                        batch.put(entry.getKey(), pending.pending);
+                        pending.inFlight += pending.pending;
+                        pending.pending = 0;
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return batch;
+    }
+    
+    private Map<Long, Integer> drain(Long medicineId) {
+        Stripe stripe = stripeFor(medicineId);
+        stripe.lock.lock();
+        try {
+            PendingDoses pending = stripe.entries.get(medicineId);
+            if (pending == null || pending.pending == 0) {
+                return Map.of();
+            }
+            Map<Long, Integer> batch = Map.of(medicineId, pending.pending);
+            pending.inFlight += pending.pending;
+            pending.pending = 0;
+            return batch;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    private void settle(Map<Long, Integer> batch, boolean stored) {
+        for (Map.Entry<Long, Integer> entry : batch.entrySet()) {
+            Stripe stripe = stripeFor(entry.getKey());
+            stripe.lock.lock();
+            try {
+                PendingDoses pending = stripe.entries.get(entry.getKey());
+                pending.inFlight -= entry.getValue();
+                if (!stored) {
+                    // Merge back so the next flush retries them
+                    pending.pending += entry.getValue();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+    
+    private void evictIdle() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                Iterator<PendingDoses> it = stripe.entries.values().iterator();
+                while (it.hasNext()) {
+                    PendingDoses pending = it.next();
+                    if (pending.pending == 0 && pending.inFlight == 0) {
+                        it.remove();
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+    
+    private Stripe stripeFor(Long medicineId) {
+        return stripes[Long.hashCode(medicineId) & (stripes.length - 1)];
+    }
+    
+    private static class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<Long, PendingDoses> entries = new HashMap<>();
+    }
+    
+    private static class PendingDoses {
+        final Long userId;
+        // Detached copy carrying the projected quantity; null after a direct write invalidates it
+        Medicine snapshot;
+        int pending;
+        int inFlight;
+        
+        PendingDoses(Long userId, Medicine snapshot) {
+            this.userId = userId;
+            this.snapshot = snapshot;
+        }
+        
+        <T> T apply(Function<Medicine, T> view) {
+            // Doses on an empty supply are not stored by takeDose either, so they are not counted
+            if (snapshot.getCurrentQuantity() != null && snapshot.getCurrentQuantity() > 0) {
+                snapshot.takeDose();
+                pending++;
+            }
+            return view.apply(snapshot);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.medicinerefill.smartmedicine.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends the HTML rendering of each notification by email. A batch goes out over one SMTP
+ * connection; only the messages the server did not accept are retried.
+ */
+@Component
+public class EmailNotificationChannel implements NotificationChannel {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EmailNotificationChannel.class);
+    
+    public static final String NAME = "email";
+    
+    @Autowired
+    private EmailService emailService;
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public boolean canDeliver(Notification notification) {
+        return notification.getEmail() != null;
+    }
+    
+    @Override
+    public List<Notification> deliver(List<Notification> batch) {
+        Map<MimeMessage, Notification> messages = new IdentityHashMap<>();
+        for (Notification notification : batch) {
+            try {
+                messages.put(emailService.createHtmlMessage(notification.getEmail(), notification.getSubject(),
+                        notification.getHtml()), notification);
+            } catch (MessagingException e) {
+                // Malformed address or content; retrying will not help
+                logger.error("Could not build email for notification {} to user {}", notification.getId(),
+                        notification.getUserId(), e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return List.of();
+        }
+        
+        List<Notification> failed = new ArrayList<>();
+        for (MimeMessage message : emailService.sendHtmlEmails(new ArrayList<>(messages.keySet()))) {
+            failed.add(messages.get(message));
+        }
+        return failed;
+    }
+}
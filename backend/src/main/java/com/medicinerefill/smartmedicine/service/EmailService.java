@@ -2,18 +2,29 @@ package com.medicinerefill.smartmedicine.service;
 
 import com.medicinerefill.smartmedicine.model.Medicine;
 import com.medicinerefill.smartmedicine.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 public class EmailService {
@@ -23,10 +34,43 @@ public class EmailService {
     @Autowired
     private JavaMailSender mailSender;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private MedicineCatalogService medicineCatalogService;
+    
     @Value("${spring.mail.username}")
     private String fromEmail;
     
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+    
+    @Value("${app.mail.transport-threads:4}")
+    private int transportThreads;
+    
+    // Jakarta Mail's SMTPTransport holds a monitor for the whole SMTP exchange, which would pin the
+    // carrier of a virtual thread. In virtual-thread mode the transport runs on these platform threads.
+    private ExecutorService transportExecutor;
+    
+    @PostConstruct
+    void startTransportExecutor() {
+        if (virtualThreadsEnabled) {
+            transportExecutor = Executors.newFixedThreadPool(transportThreads,
+                    new CustomizableThreadFactory("mail-transport-"));
+        }
+    }
+    
+    @PreDestroy
+    void stopTransportExecutor() {
+        if (transportExecutor != null) {
+            transportExecutor.shutdown();
+        }
+    }
+    
     public void sendSimpleEmail(String to, String subject, String text) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
         try {
             SimpleMailMessage message = new SimpleMailMessage();
             message.setFrom(fromEmail);
@@ -34,30 +78,101 @@ public class EmailService {
             message.setSubject(subject);
             message.setText(text);
             
-            mailSender.send(message);
-            logger.info("Email sent successfully to: {}", to);
+            deliver(() -> mailSender.send(message));
+            outcome = "success";
+            logger.debug("Email sent successfully to: {}", to);
         } catch (Exception e) {
             logger.error("Failed to send email to: {}", to, e);
+        } finally {
+            stopSendTimer(sample, "text", outcome);
         }
     }
     
     public void sendHtmlEmail(String to, String subject, String htmlContent) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setFrom(fromEmail);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true);
+            MimeMessage message = createHtmlMessage(to, subject, htmlContent);
             
-            mailSender.send(message);
-            logger.info("HTML Email sent successfully to: {}", to);
+            deliver(() -> mailSender.send(message));
+            outcome = "success";
+            logger.debug("HTML Email sent successfully to: {}", to);
         } catch (MessagingException e) {
             logger.error("Failed to send HTML email to: {}", to, e);
+        } finally {
+            stopSendTimer(sample, "html", outcome);
         }
     }
     
+    public MimeMessage createHtmlMessage(String to, String subject, String htmlContent) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        
+        helper.setFrom(fromEmail);
+        helper.setTo(to);
+        helper.setSubject(subject);
+        helper.setText(htmlContent, true);
+        return message;
+    }
+    
+    /**
+     * Sends the messages over one SMTP connection and returns the ones that were not sent.
+     */
+    public List<MimeMessage> sendHtmlEmails(List<MimeMessage> messages) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            deliver(() -> mailSender.send(messages.toArray(new MimeMessage[0])));
+            outcome = "success";
+            logger.debug("Sent batch of {} HTML emails", messages.size());
+            return List.of();
+        } catch (MailSendException e) {
+            // Per-message failures are keyed by the original message; none means the connection failed
+            List<MimeMessage> failed = e.getFailedMessages().keySet().stream()
+                    .filter(MimeMessage.class::isInstance)
+                    .map(MimeMessage.class::cast)
+                    .toList();
+            logger.error("Failed to send {} of {} emails in batch", failed.isEmpty() ? messages.size() : failed.size(),
+                    messages.size(), e);
+            return failed.isEmpty() ? messages : failed;
+        } catch (MailException e) {
+            logger.error("Failed to send batch of {} emails", messages.size(), e);
+            return messages;
+        } finally {
+            stopSendTimer(sample, "batch", outcome);
+        }
+    }
+    
+    private void deliver(Runnable send) {
+        if (transportExecutor == null) {
+            send.run();
+            return;
+        }
+        
+        Future<?> delivery = transportExecutor.submit(send);
+        try {
+            delivery.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MailException mailException) {
+                throw mailException;
+            }
+            throw new MailSendException("Failed to send mail", e.getCause());
+        } catch (InterruptedException e) {
+            delivery.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while sending mail", e);
+        }
+    }
+    
+    private void stopSendTimer(Timer.Sample sample, String type, String outcome) {
+        sample.stop(Timer.builder("email.send")
+                .description("SMTP send latency")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+    
     public void sendRefillReminder(User user, Medicine medicine) {
         String subject = "Medicine Refill Reminder - " + medicine.getMedicineName();
         
@@ -74,7 +189,7 @@ public class EmailService {
         sendHtmlEmail(user.getEmail(), subject, htmlContent);
     }
     
-    private String buildRefillReminderHtml(User user, Medicine medicine) {
+    String buildRefillReminderHtml(User user, Medicine medicine) {
         StringBuilder html = new StringBuilder();
         
         html.append("<!DOCTYPE html>")
@@ -107,7 +222,7 @@ public class EmailService {
             .append("<p><strong>Refill Date:</strong> ").append(medicine.getRefillDate()).append("</p>")
             .append("</div>")
             .append("<p>Don't run out of your important medication!</p>")
-            .append("<a href='https://www.1mg.com/search/all?name=").append(medicine.getMedicineName().replace(" ", "%20"))
+            .append("<a href='").append(medicineCatalogService.getRefillUrl(medicine))
             .append("' class='refill-button' target='_blank'>Refill Now</a>")
             .append("<p>You can also manage your medicines by logging into your Smart Medicine Refill System dashboard.</p>")
             .append("<p>Best regards,<br>Smart Medicine Refill System</p>")
@@ -118,7 +233,7 @@ public class EmailService {
         return html.toString();
     }
     
-    private String buildMultipleRefillReminderHtml(User user, List<Medicine> medicines) {
+    String buildMultipleRefillReminderHtml(User user, List<Medicine> medicines) {
         StringBuilder html = new StringBuilder();
         
         html.append("<!DOCTYPE html>")
@@ -151,7 +266,7 @@ public class EmailService {
                 .append(medicine.getStatus().toString().toLowerCase().replace("_", "-")).append("'>")
                 .append(medicine.getStatus().toString().replace("_", " ")).append("</span> | ")
                 .append("<strong>Refill Date:</strong> ").append(medicine.getRefillDate()).append("</p>")
-                .append("<a href='https://www.1mg.com/search/all?name=").append(medicine.getMedicineName().replace(" ", "%20"))
+                .append("<a href='").append(medicineCatalogService.getRefillUrl(medicine))
                 .append("' class='refill-button' target='_blank'>Refill Now</a>")
                 .append("</div>");
         }
@@ -0,0 +1,385 @@
+package com.medicinerefill.smartmedicine.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Dedup store for Idempotency-Key requests. Completed responses are kept in a bounded in-memory
+ * map for the configured TTL; concurrent requests with the same key wait for the first execution.
+ * With {@code app.idempotency.jdbc-enabled} keys are also claimed in the idempotency_keys table so
+ * that retries landing on another node are deduplicated too.
+ */
+@Service
+public class IdempotencyStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+    
+    private static final long POLL_INTERVAL_MS = 100;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.idempotency.ttl:24h}")
+    private Duration ttl;
+    
+    @Value("${app.idempotency.max-entries:10000}")
+    private int maxEntries;
+    
+    @Value("${app.idempotency.wait-timeout:10s}")
+    private Duration waitTimeout;
+    
+    @Value("${app.idempotency.lock-timeout:30s}")
+    private Duration lockTimeout;
+    
+    @Value("${app.idempotency.jdbc-enabled:false}")
+    private boolean jdbcEnabled;
+    
+    // Insertion order is expiry order because every entry has the same TTL
+    private final LinkedHashMap<String, StoredResponse> responses = new LinkedHashMap<>();
+    private final Map<String, Execution> executions = new ConcurrentHashMap<>();
+    
+    /**
+     * Claims {@code key} for the request identified by {@code fingerprint}. Blocks while another
+     * request with the same key is executing, up to the wait timeout.
+     */
+    public Claim claim(String key, String fingerprint) {
+        String keyHash = sha256(key);
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        
+        while (true) {
+            StoredResponse cached = cached(keyHash);
+            if (cached != null) {
+                return replay(cached, fingerprint);
+            }
+            
+            Execution mine = new Execution(fingerprint);
+            Execution running = executions.putIfAbsent(keyHash, mine);
+            if (running != null) {
+                if (!running.fingerprint.equals(fingerprint)) {
+                    return count(Claim.mismatch());
+                }
+                StoredResponse result = await(running, deadline);
+                if (result != null) {
+                    return replay(result, fingerprint);
+                }
+                if (System.nanoTime() >= deadline) {
+                    return count(Claim.inProgress());
+                }
+                // The first execution failed without a response to keep; try to run it here
+                continue;
+            }
+            
+            // Completed between the cache check and the claim
+            cached = cached(keyHash);
+            if (cached != null) {
+                release(keyHash, null);
+                return replay(cached, fingerprint);
+            }
+            
+            if (!jdbcEnabled) {
+                return count(Claim.execute(keyHash));
+            }
+            try {
+                Claim claim = claimRow(keyHash, fingerprint, deadline);
+                if (claim.getStatus() != Claim.Status.EXECUTE) {
+                    release(keyHash, claim.getResponse());
+                }
+                return count(claim);
+            } catch (RuntimeException e) {
+                release(keyHash, null);
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Stores the response of a claimed execution and hands it to any waiting duplicates.
+     */
+    public void complete(Claim claim, StoredResponse response) {
+        String keyHash = claim.getKeyHash();
+        put(keyHash, response);
+        try {
+            if (jdbcEnabled) {
+                jdbcTemplate.update("UPDATE idempotency_keys SET status_code = ?, content_type = ?, response_body = ? "
+                                + "WHERE key_hash = ?",
+                        response.getStatus(), response.getContentType(), response.getBody(), keyHash);
+            }
+        } finally {
+            release(keyHash, response);
+        }
+    }
+    
+    /**
+     * Releases a claimed execution without a stored response, so the key can be retried.
+     */
+    public void abandon(Claim claim) {
+        String keyHash = claim.getKeyHash();
+        try {
+            if (jdbcEnabled) {
+                jdbcTemplate.update("DELETE FROM idempotency_keys WHERE key_hash = ? AND status_code IS NULL", keyHash);
+            }
+        } finally {
+            release(keyHash, null);
+        }
+    }
+    
+    @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.MINUTES)
+    public void purgeExpired() {
+        synchronized (responses) {
+            evictExpired();
+        }
+        if (jdbcEnabled) {
+            int purged = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < ?",
+                    Timestamp.from(Instant.now()));
+            if (purged > 0) {
+                logger.debug("Purged {} expired idempotency keys", purged);
+            }
+        }
+    }
+    
+    private Claim claimRow(String keyHash, String fingerprint, long deadline) {
+        while (true) {
+            Instant now = Instant.now();
+            try {
+                jdbcTemplate.update("INSERT INTO idempotency_keys (key_hash, fingerprint, created_at, expires_at) "
+                                + "VALUES (?, ?, ?, ?)",
+                        keyHash, fingerprint, Timestamp.from(now), Timestamp.from(now.plus(ttl)));
+                return Claim.execute(keyHash);
+            } catch (DuplicateKeyException e) {
+                // Claimed before, possibly by another node
+            }
+            
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT fingerprint, status_code, content_type, response_body, created_at, expires_at "
+                            + "FROM idempotency_keys WHERE key_hash = ?", keyHash);
+            if (rows.isEmpty()) {
+                // Abandoned or purged meanwhile; claim again
+                continue;
+            }
+            Map<String, Object> row = rows.get(0);
+            Instant expiresAt = ((Timestamp) row.get("expires_at")).toInstant();
+            if (expiresAt.isBefore(now)) {
+                jdbcTemplate.update("DELETE FROM idempotency_keys WHERE key_hash = ? AND expires_at < ?",
+                        keyHash, Timestamp.from(now));
+                continue;
+            }
+            if (!fingerprint.equals(row.get("fingerprint"))) {
+                return Claim.mismatch();
+            }
+            if (row.get("status_code") != null) {
+                StoredResponse stored = new StoredResponse(fingerprint, ((Number) row.get("status_code")).intValue(),
+                        (String) row.get("content_type"), (byte[]) row.get("response_body"));
+                put(keyHash, stored);
+                return Claim.replay(stored);
+            }
+            
+            // Pending on another node; take it over if that node stopped responding
+            Instant claimedAt = ((Timestamp) row.get("created_at")).toInstant();
+            if (claimedAt.isBefore(now.minus(lockTimeout))) {
+                int taken = jdbcTemplate.update("UPDATE idempotency_keys SET created_at = ?, expires_at = ? "
+                                + "WHERE key_hash = ? AND status_code IS NULL AND created_at = ?",
+                        Timestamp.from(now), Timestamp.from(now.plus(ttl)), keyHash, row.get("created_at"));
+                if (taken == 1) {
+                    logger.warn("Took over stale idempotency key claimed at {}", claimedAt);
+                    return Claim.execute(keyHash);
+                }
+                continue;
+            }
+            if (System.nanoTime() >= deadline) {
+                return Claim.inProgress();
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Claim.inProgress();
+            }
+        }
+    }
+    
+    private StoredResponse await(Execution running, long deadline) {
+        try {
+            return running.result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    private void release(String keyHash, StoredResponse response) {
+        Execution execution = executions.remove(keyHash);
+        if (execution != null) {
+            execution.result.complete(response);
+        }
+    }
+    
+    private Claim replay(StoredResponse stored, String fingerprint) {
+        return count(stored.getFingerprint().equals(fingerprint) ? Claim.replay(stored) : Claim.mismatch());
+    }
+    
+    private Claim count(Claim claim) {
+        meterRegistry.counter("idempotency.requests", "outcome", claim.getStatus().name().toLowerCase()).increment();
+        return claim;
+    }
+    
+    private StoredResponse cached(String keyHash) {
+        synchronized (responses) {
+            evictExpired();
+            return responses.get(keyHash);
+        }
+    }
+    
+    private void put(String keyHash, StoredResponse response) {
+        synchronized (responses) {
+            responses.remove(keyHash);
+            responses.put(keyHash, response);
+            evictExpired();
+            Iterator<StoredResponse> it = responses.values().iterator();
+            while (responses.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+    
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<StoredResponse> it = responses.values().iterator();
+        while (it.hasNext() && it.next().getStoredAt() + ttl.toMillis() < now) {
+            it.remove();
+        }
+    }
+    
+    // Keys are scoped by the caller and may be long; both tiers keep only the hash
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static class Execution {
+        final String fingerprint;
+        final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+        
+        Execution(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+    
+    /**
+     * Outcome of {@link #claim}: run the request, replay a stored response, or reject it.
+     */
+    public static class Claim {
+        
+        public enum Status { EXECUTE, REPLAY, MISMATCH, IN_PROGRESS }
+        
+        private final Status status;
+        private final String keyHash;
+        private final StoredResponse response;
+        
+        private Claim(Status status, String keyHash, StoredResponse response) {
+            this.status = status;
+            this.keyHash = keyHash;
+            this.response = response;
+        }
+        
+        static Claim execute(String keyHash) {
+            return new Claim(Status.EXECUTE, keyHash, null);
+        }
+        
+        static Claim replay(StoredResponse response) {
+            return new Claim(Status.REPLAY, null, response);
+        }
+        
+        static Claim mismatch() {
+            return new Claim(Status.MISMATCH, null, null);
+        }
+        
+        static Claim inProgress() {
+            return new Claim(Status.IN_PROGRESS, null, null);
+        }
+        
+        public Status getStatus() {
+            return status;
+        }
+        
+        String getKeyHash() {
+            return keyHash;
+        }
+        
+        public StoredResponse getResponse() {
+            return response;
+        }
+    }
+    
+    /**
+     * Status, content type and body of a completed request.
+     */
+    public static class StoredResponse {
+        
+        private final String fingerprint;
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+        private final long storedAt = System.currentTimeMillis();
+        
+        public StoredResponse(String fingerprint, int status, String contentType, byte[] body) {
+            this.fingerprint = fingerprint;
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+        
+        public String getFingerprint() {
+            return fingerprint;
+        }
+        
+        public int getStatus() {
+            return status;
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+        
+        public byte[] getBody() {
+            return body;
+        }
+        
+        long getStoredAt() {
+            return storedAt;
+        }
+    }
+}
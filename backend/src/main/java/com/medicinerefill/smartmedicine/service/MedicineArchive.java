@@ -0,0 +1,349 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine.MedicineStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Archival tier for medicines that ran out and were not touched for app.archive.inactive-after.
+ * A nightly job moves them from medicines to medicines_archive in primary-key ranges of
+ * app.archive.batch-size, one transaction per range, so the tables and indexes every request reads
+ * only hold medicines in use. Each move updates the status counters, leaves a sync tombstone and
+ * drops the medicine from the reminder snapshot. Archived medicines are listed by
+ * GET /api/medicines/history and moved back by {@link #restore} when refilled.
+ */
+@Service
+public class MedicineArchive {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MedicineArchive.class);
+    
+    // Every column of medicines, named the same in both tables
+    private static final List<String> COLUMNS = List.of("id", "medicine_name", "dosage_per_day", "total_quantity",
+            "start_date", "refill_date", "current_quantity", "notifications_enabled", "low_stock_threshold", "status",
+            "created_at", "updated_at", "user_id", "profile_id", "catalog_id", "dose_pattern", "weekday_mask",
+            "taper_step", "taper_every_days", "taper_floor", "last_notified_on", "last_notified_status",
+            "last_notified_bucket", "change_seq", "version");
+    
+    private static final String HISTORY_COLUMNS = "id, user_id, profile_id, catalog_id, medicine_name, dosage_per_day,"
+            + " total_quantity, start_date, refill_date, current_quantity, status, created_at, updated_at, archived_at";
+    
+    private static final RowMapper<ArchivedMedicine> ARCHIVED_MEDICINE = (rs, rowNum) -> new ArchivedMedicine(
+            rs.getLong("id"), rs.getLong("user_id"), rs.getObject("profile_id", Long.class),
+            rs.getObject("catalog_id", Long.class), rs.getString("medicine_name"),
+            rs.getObject("dosage_per_day", Integer.class), rs.getObject("total_quantity", Integer.class),
+            rs.getObject("start_date", LocalDate.class), rs.getObject("refill_date", LocalDate.class),
+            rs.getObject("current_quantity", Integer.class), statusOf(rs.getString("status")),
+            rs.getObject("created_at", LocalDateTime.class), rs.getObject("updated_at", LocalDateTime.class),
+            rs.getObject("archived_at", LocalDateTime.class));
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private MedicineStatusCounters medicineStatusCounters;
+    
+    @Autowired
+    private MedicineChangeLog medicineChangeLog;
+    
+    @Autowired
+    private MedicineSnapshot medicineSnapshot;
+    
+    @Autowired
+    private DoseWriteBuffer doseWriteBuffer;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.archive.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.archive.inactive-after:90d}")
+    private Duration inactiveAfter;
+    
+    @Value("${app.archive.batch-size:500}")
+    private int batchSize;
+    
+    private final AtomicBoolean archiving = new AtomicBoolean();
+    
+    @Scheduled(cron = "${app.archive.cron:0 15 4 * * *}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archive();
+        }
+    }
+    
+    /**
+     * Archives every medicine with no quantity left whose last change is older than inactive-after,
+     * returning how many were moved. Medicines are locked range by range; a write that commits
+     * first bumps updated_at and keeps its medicine.
+     */
+    public int archive() {
+        if (!archiving.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            // Buffered doses must not be flushed into medicines that have moved
+            doseWriteBuffer.flush();
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(inactiveAfter));
+            Long minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM medicines", Long.class);
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM medicines", Long.class);
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            int archived = 0;
+            for (long from = minId != null ? minId : 1; maxId != null && from <= maxId; from += batchSize) {
+                long fromId = from;
+                archived += transaction.execute(status -> archiveRange(fromId, fromId + batchSize - 1, cutoff));
+            }
+            meterRegistry.counter("medicine.archive.archived").increment(archived);
+            logger.info("Archived {} medicines with no quantity left and unchanged since {}", archived, cutoff);
+            return archived;
+        } finally {
+            archiving.set(false);
+        }
+    }
+    
+    private int archiveRange(long fromId, long toId, Timestamp cutoff) {
+        List<Candidate> candidates = jdbcTemplate.query("SELECT id, user_id, profile_id, status FROM medicines"
+                        + " WHERE id BETWEEN ? AND ? AND COALESCE(current_quantity, 0) <= 0"
+                        + " AND COALESCE(updated_at, created_at) < ? FOR UPDATE",
+                (rs, rowNum) -> new Candidate(rs.getLong(1), rs.getLong(2), rs.getObject(3, Long.class),
+                        rs.getString(4)),
+                fromId, toId, cutoff);
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(LocalDateTime.now()));
+        candidates.forEach(c -> args.add(c.id));
+        String ids = String.join(", ", Collections.nCopies(candidates.size(), "?"));
+        String columns = String.join(", ", COLUMNS);
+        jdbcTemplate.update("INSERT INTO medicines_archive (" + columns + ", archived_at) SELECT " + columns
+                + ", ? FROM medicines WHERE id IN (" + ids + ")", args.toArray());
+        jdbcTemplate.update("DELETE FROM medicines WHERE id IN (" + ids + ")", args.subList(1, args.size()).toArray());
+        
+        // One counter update and one tombstone batch per user; users in ascending order, so concurrent
+        // runs lock their counter rows in the same order
+        Map<Long, List<Candidate>> byUser = candidates.stream()
+                .collect(Collectors.groupingBy(c -> c.userId, TreeMap::new, Collectors.toList()));
+        for (Map.Entry<Long, List<Candidate>> entry : byUser.entrySet()) {
+            int[] removed = new int[MedicineStatus.values().length];
+            Map<Long, Long> profileIds = new LinkedHashMap<>();
+            for (Candidate candidate : entry.getValue()) {
+                if (candidate.status != null) {
+                    removed[candidate.status.ordinal()]++;
+                }
+                profileIds.put(candidate.id, candidate.profileId);
+            }
+            medicineStatusCounters.add(entry.getKey(), -removed[MedicineStatus.OK.ordinal()],
+                    -removed[MedicineStatus.LOW.ordinal()], -removed[MedicineStatus.REFILL_NEEDED.ordinal()]);
+            medicineChangeLog.recordDeletions(entry.getKey(), profileIds);
+        }
+        
+        // The in-memory copies only drop the medicines once the move is durable; a rolled back range
+        // keeps them
+        List<Long> movedIds = candidates.stream().map(c -> c.id).toList();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                medicineSnapshot.medicinesArchived(movedIds);
+                movedIds.forEach(doseWriteBuffer::evict);
+            }
+        });
+        return candidates.size();
+    }
+    
+    /**
+     * Archived medicine {@code medicineId} of {@code userId}, or null if it is not archived.
+     */
+    public ArchivedMedicine find(Long medicineId, Long userId) {
+        List<ArchivedMedicine> rows = jdbcTemplate.query("SELECT " + HISTORY_COLUMNS + " FROM medicines_archive"
+                + " WHERE id = ? AND user_id = ?", ARCHIVED_MEDICINE, medicineId, userId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+    
+    /**
+     * One page of the archived medicines of {@code userId}, optionally of one profile, most recently
+     * archived first.
+     */
+    public List<ArchivedMedicine> findHistory(Long userId, Long profileId, int page, int size) {
+        List<Object> args = new ArrayList<>(List.of(userId));
+        String profileFilter = "";
+        if (profileId != null) {
+            profileFilter = " AND profile_id = ?";
+            args.add(profileId);
+        }
+        args.add(size);
+        args.add((long) page * size);
+        return jdbcTemplate.query("SELECT " + HISTORY_COLUMNS + " FROM medicines_archive WHERE user_id = ?"
+                + profileFilter + " ORDER BY archived_at DESC, id DESC LIMIT ? OFFSET ?", ARCHIVED_MEDICINE, args.toArray());
+    }
+    
+    /**
+     * Moves archived medicine {@code medicineId} of {@code userId} back into medicines under
+     * {@code profileId}, returning false if it is not archived (any more). Counts as a change for
+     * delta sync; the caller's following update puts it back into the reminder snapshot.
+     */
+    @Transactional
+    public boolean restore(Long medicineId, Long userId, Long profileId) {
+        // Locks the row, so a concurrent restore of the same medicine waits and then finds nothing
+        List<String> statuses = jdbcTemplate.queryForList("SELECT status FROM medicines_archive"
+                + " WHERE id = ? AND user_id = ? FOR UPDATE", String.class, medicineId, userId);
+        if (statuses.isEmpty()) {
+            return false;
+        }
+        
+        String values = String.join(", ", COLUMNS.stream()
+                .map(column -> column.equals("profile_id") || column.equals("change_seq") ? "?" : column)
+                .toList());
+        jdbcTemplate.update("INSERT INTO medicines (" + String.join(", ", COLUMNS) + ") SELECT " + values
+                + " FROM medicines_archive WHERE id = ?", profileId, medicineChangeLog.nextSeq(userId), medicineId);
+        jdbcTemplate.update("DELETE FROM medicines_archive WHERE id = ?", medicineId);
+        medicineStatusCounters.apply(userId, null, statusOf(statuses.get(0)));
+        meterRegistry.counter("medicine.archive.restored").increment();
+        return true;
+    }
+    
+    private static MedicineStatus statusOf(String status) {
+        return status != null ? MedicineStatus.valueOf(status) : null;
+    }
+    
+    private static class Candidate {
+        
+        private final long id;
+        private final long userId;
+        private final Long profileId;
+        private final MedicineStatus status;
+        
+        Candidate(long id, long userId, Long profileId, String status) {
+            this.id = id;
+            this.userId = userId;
+            this.profileId = profileId;
+            this.status = statusOf(status);
+        }
+    }
+    
+    /**
+     * A medicine in the archive, as listed by the history endpoint.
+     */
+    public static class ArchivedMedicine {
+        
+        private final Long id;
+        private final Long userId;
+        private final Long profileId;
+        private final Long catalogId;
+        private final String medicineName;
+        private final Integer dosagePerDay;
+        private final Integer totalQuantity;
+        private final LocalDate startDate;
+        private final LocalDate refillDate;
+        private final Integer currentQuantity;
+        private final MedicineStatus status;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+        private final LocalDateTime archivedAt;
+        
+        ArchivedMedicine(Long id, Long userId, Long profileId, Long catalogId, String medicineName,
+                         Integer dosagePerDay, Integer totalQuantity, LocalDate startDate, LocalDate refillDate,
+                         Integer currentQuantity, MedicineStatus status, LocalDateTime createdAt,
+                         LocalDateTime updatedAt, LocalDateTime archivedAt) {
+            this.id = id;
+            this.userId = userId;
+            this.profileId = profileId;
+            this.catalogId = catalogId;
+            this.medicineName = medicineName;
+            this.dosagePerDay = dosagePerDay;
+            this.totalQuantity = totalQuantity;
+            this.startDate = startDate;
+            this.refillDate = refillDate;
+            this.currentQuantity = currentQuantity;
+            this.status = status;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+            this.archivedAt = archivedAt;
+        }
+        
+        public Long getId() {
+            return id;
+        }
+        
+        public Long getUserId() {
+            return userId;
+        }
+        
+        public Long getProfileId() {
+            return profileId;
+        }
+        
+        public Long getCatalogId() {
+            return catalogId;
+        }
+        
+        public String getMedicineName() {
+            return medicineName;
+        }
+        
+        public Integer getDosagePerDay() {
+            return dosagePerDay;
+        }
+        
+        public Integer getTotalQuantity() {
+            return totalQuantity;
+        }
+        
+        public LocalDate getStartDate() {
+            return startDate;
+        }
+        
+        public LocalDate getRefillDate() {
+            return refillDate;
+        }
+        
+        public Integer getCurrentQuantity() {
+            return currentQuantity;
+        }
+        
+        public MedicineStatus getStatus() {
+            return status;
+        }
+        
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+        
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+        
+        public LocalDateTime getArchivedAt() {
+            return archivedAt;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.MedicineCatalogEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the catalog: entries sorted by normalized name for binary-search
+ * prefix lookups, plus an id lookup for refill links. Additions produce a new snapshot so
+ * readers never lock.
+ */
+final class MedicineCatalogIndex {
+    
+    static final MedicineCatalogIndex EMPTY = new MedicineCatalogIndex(new String[0], new MedicineCatalogEntry[0]);
+    
+    private final String[] keys;
+    private final MedicineCatalogEntry[] entries;
+    private final Map<Long, MedicineCatalogEntry> byId;
+    
+    private MedicineCatalogIndex(String[] keys, MedicineCatalogEntry[] entries) {
+        this.keys = keys;
+        this.entries = entries;
+        this.byId = new HashMap<>(entries.length * 2);
+        for (MedicineCatalogEntry entry : entries) {
+            byId.put(entry.getId(), entry);
+        }
+    }
+    
+    static MedicineCatalogIndex of(List<MedicineCatalogEntry> catalog) {
+        MedicineCatalogEntry[] sorted = catalog.toArray(new MedicineCatalogEntry[0]);
+        Arrays.sort(sorted, Comparator.comparing(MedicineCatalogEntry::getNormalizedName));
+        String[] keys = new String[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            keys[i] = sorted[i].getNormalizedName();
+        }
+        return new MedicineCatalogIndex(keys, sorted);
+    }
+    
+    int size() {
+        return entries.length;
+    }
+    
+    MedicineCatalogEntry get(Long id) {
+        return byId.get(id);
+    }
+    
+    MedicineCatalogEntry find(String normalizedName) {
+        int position = Arrays.binarySearch(keys, normalizedName);
+        return position >= 0 ? entries[position] : null;
+    }
+    
+    List<MedicineCatalogEntry> search(String normalizedPrefix, int limit) {
+        int position = Arrays.binarySearch(keys, normalizedPrefix);
+        int start = position >= 0 ? position : -position - 1;
+        if (start >= keys.length || !keys[start].startsWith(normalizedPrefix)) {
+            return Collections.emptyList();
+        }
+        List<MedicineCatalogEntry> matches = new ArrayList<>(Math.min(limit, 16));
+        for (int i = start; i < keys.length && matches.size() < limit && keys[i].startsWith(normalizedPrefix); i++) {
+            matches.add(entries[i]);
+        }
+        return matches;
+    }
+    
+    MedicineCatalogIndex with(MedicineCatalogEntry entry) {
+        int position = Arrays.binarySearch(keys, entry.getNormalizedName());
+        if (position >= 0) {
+            return this;
+        }
+        int insertAt = -position - 1;
+        String[] newKeys = new String[keys.length + 1];
+        MedicineCatalogEntry[] newEntries = new MedicineCatalogEntry[entries.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, insertAt);
+        System.arraycopy(entries, 0, newEntries, 0, insertAt);
+        newKeys[insertAt] = entry.getNormalizedName();
+        newEntries[insertAt] = entry;
+        System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+        System.arraycopy(entries, insertAt, newEntries, insertAt + 1, entries.length - insertAt);
+        return new MedicineCatalogIndex(newKeys, newEntries);
+    }
+}
@@ -0,0 +1,166 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.dto.RefillLinks;
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.MedicineCatalogEntry;
+import com.medicinerefill.smartmedicine.repository.MedicineCatalogRepository;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Shared catalog of medicine names. Names are normalized and deduplicated, each entry carries
+ * its precomputed refill link, and an in-memory sorted index serves autocomplete. The index
+ * is loaded at startup and extended as new names are resolved; lookups never lock.
+ */
+@Service
+public class MedicineCatalogService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MedicineCatalogService.class);
+    
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_NAME_LENGTH = 255;
+    
+    @Autowired
+    private MedicineCatalogRepository catalogRepository;
+    
+    @Autowired
+    private MedicineRepository medicineRepository;
+    
+    @Autowired
+    private MedicineChangeLog medicineChangeLog;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final AtomicReference<MedicineCatalogIndex> index = new AtomicReference<>(MedicineCatalogIndex.EMPTY);
+    
+    @PostConstruct
+    void loadCatalog() {
+        index.set(MedicineCatalogIndex.of(catalogRepository.findAll()));
+        
+        // Link medicines created before the catalog existed
+        List<String> uncatalogued = medicineRepository.findUncataloguedMedicineNames();
+        int linked = 0;
+        for (String name : uncatalogued) {
+            MedicineCatalogEntry entry = resolve(name);
+            if (entry != null) {
+                linked += linkToCatalog(name, entry.getId());
+            }
+        }
+        logger.info("Medicine catalog loaded with {} entries; linked {} existing medicines", index.get().size(), linked);
+    }
+    
+    /**
+     * Links the uncatalogued medicines named {@code name}, in one transaction per user. Every row takes
+     * its user's next change sequence value, so delta sync clients pick up the link, and a new version,
+     * so a save based on an earlier read conflicts instead of clearing it.
+     */
+    private int linkToCatalog(String name, Long catalogId) {
+        Map<Long, List<Long>> idsByUser = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, user_id FROM medicines WHERE catalog_id IS NULL AND medicine_name = ?",
+                rs -> {
+                    idsByUser.computeIfAbsent(rs.getLong(2), u -> new ArrayList<>()).add(rs.getLong(1));
+                }, name);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int linked = 0;
+        for (Map.Entry<Long, List<Long>> entry : idsByUser.entrySet()) {
+            List<Long> ids = entry.getValue();
+            linked += transaction.execute(status -> {
+                long seq = medicineChangeLog.nextSeq(entry.getKey(), ids.size()) - ids.size();
+                List<Object[]> rows = new ArrayList<>(ids.size());
+                for (Long id : ids) {
+                    rows.add(new Object[] {catalogId, ++seq, id});
+                }
+                int updated = 0;
+                for (int count : jdbcTemplate.batchUpdate("UPDATE medicines SET catalog_id = ?, change_seq = ?,"
+                        + " version = version + 1 WHERE id = ? AND catalog_id IS NULL", rows)) {
+                    updated += Math.max(count, 0);
+                }
+                return updated;
+            });
+        }
+        return linked;
+    }
+    
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String collapsed = WHITESPACE.matcher(Normalizer.normalize(name, Normalizer.Form.NFKC).trim()).replaceAll(" ");
+        return collapsed.toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Returns the catalog entry for a medicine name, adding it to the catalog if it is new.
+     */
+    public MedicineCatalogEntry resolve(String name) {
+        String normalized = normalize(name);
+        if (normalized.isEmpty() || normalized.length() > MAX_NAME_LENGTH || name.length() > MAX_NAME_LENGTH) {
+            return null;
+        }
+        MedicineCatalogEntry existing = index.get().find(normalized);
+        if (existing != null) {
+            return existing;
+        }
+        
+        // No lock: the unique key on normalized_name settles concurrent additions of one name
+        String displayName = WHITESPACE.matcher(name.trim()).replaceAll(" ");
+        MedicineCatalogEntry entry;
+        try {
+            entry = catalogRepository.save(new MedicineCatalogEntry(displayName, normalized,
+                    RefillLinks.forMedicine(displayName)));
+        } catch (DataIntegrityViolationException e) {
+            // Another request or instance added the same name first
+            entry = catalogRepository.findByNormalizedName(normalized).orElseThrow(() -> e);
+        }
+        MedicineCatalogEntry added = entry;
+        index.updateAndGet(current -> current.with(added));
+        return entry;
+    }
+    
+    public List<MedicineCatalogEntry> search(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        return index.get().search(normalized, limit);
+    }
+    
+    public MedicineCatalogEntry find(Long id) {
+        return index.get().get(id);
+    }
+    
+    public String getRefillUrl(Medicine medicine) {
+        return getRefillUrl(medicine.getCatalogId(), medicine.getMedicineName());
+    }
+    
+    public String getRefillUrl(Long catalogId, String medicineName) {
+        if (catalogId != null) {
+            MedicineCatalogEntry entry = index.get().get(catalogId);
+            if (entry != null) {
+                return entry.getRefillUrl();
+            }
+        }
+        return RefillLinks.forMedicine(medicineName);
+    }
+}
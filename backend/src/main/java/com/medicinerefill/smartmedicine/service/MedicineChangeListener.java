@@ -0,0 +1,31 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.dto.MedicineResponse;
+import com.medicinerefill.smartmedicine.model.Medicine;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Entity listener on Medicine that stamps every insert and update with the user's next change
+ * sequence value, and leaves a tombstone for every delete, for delta sync. Only a user's first write
+ * in a transaction reads the counter row; see {@link MedicineWriteDeltas}.
+ */
+public class MedicineChangeListener {
+    
+    @Autowired
+    private MedicineChangeLog medicineChangeLog;
+    
+    @PrePersist
+    @PreUpdate
+    void onWrite(Medicine medicine) {
+        medicine.setChangeSeq(medicineChangeLog.nextSeq(medicine.getUser().getId()));
+    }
+    
+    @PostRemove
+    void onRemove(Medicine medicine) {
+        medicineChangeLog.recordDeletion(medicine.getUser().getId(), medicine.getId(),
+                MedicineResponse.profileIdOf(medicine));
+    }
+}
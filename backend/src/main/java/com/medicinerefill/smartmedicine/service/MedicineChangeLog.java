@@ -0,0 +1,171 @@
+package com.medicinerefill.smartmedicine.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Change sequence and delete tombstones behind delta sync. Every medicine write takes the next
+ * value of its user's change_seq (on the user_medicine_counters row) in the writing transaction.
+ * The row stays locked until commit, so a user's writes commit in sequence order and a client that
+ * has seen everything up to a committed sequence value can never miss a lower one. Within a
+ * transaction only the first value comes from the row; see {@link MedicineWriteDeltas}.
+ *
+ * Tombstones and applied offline dose events are kept for the retention period; sync tokens older
+ * than that require a full resync.
+ */
+@Service
+public class MedicineChangeLog {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MedicineChangeLog.class);
+    
+    static final String INSERT_TOMBSTONE = "INSERT INTO medicine_tombstones (user_id, medicine_id, profile_id,"
+            + " change_seq, deleted_at) VALUES (?, ?, ?, ?, ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MedicineStatusCounters medicineStatusCounters;
+    
+    @Autowired
+    private MedicineWriteDeltas medicineWriteDeltas;
+    
+    @Value("${app.sync.retention:30d}")
+    private Duration retention;
+    
+    /**
+     * Next change sequence value of {@code userId}, on the caller's transaction.
+     */
+    public long nextSeq(Long userId) {
+        return nextSeq(userId, 1);
+    }
+    
+    /**
+     * Takes the next {@code count} change sequence values of {@code userId} and returns the highest.
+     */
+    public long nextSeq(Long userId, int count) {
+        Long reserved = medicineWriteDeltas.reserveSeq(userId, count);
+        if (reserved != null) {
+            return reserved;
+        }
+        if (increment(userId, count) == 0) {
+            medicineStatusCounters.createFromRecount(userId);
+            increment(userId, count);
+        }
+        long seq = currentSeq(userId);
+        medicineWriteDeltas.seqTaken(userId, seq);
+        return seq;
+    }
+    
+    /**
+     * Highest sequence value of {@code userId} visible to the caller; every change up to it has
+     * committed.
+     */
+    public long currentSeq(Long userId) {
+        List<Long> rows = jdbcTemplate.queryForList(
+                "SELECT change_seq FROM user_medicine_counters WHERE user_id = ?", Long.class, userId);
+        return rows.isEmpty() ? 0 : rows.get(0);
+    }
+    
+    public void recordDeletion(Long userId, Long medicineId, Long profileId) {
+        long seq = nextSeq(userId);
+        if (!medicineWriteDeltas.tombstone(userId, medicineId, profileId, seq)) {
+            jdbcTemplate.update(INSERT_TOMBSTONE, userId, medicineId, profileId, seq, Timestamp.valueOf(LocalDateTime.now()));
+        }
+    }
+    
+    /**
+     * Tombstones for several deleted medicines of {@code userId}, keyed by medicine id with their
+     * profile ids, taking consecutive sequence values and inserted as one batch.
+     */
+    public void recordDeletions(Long userId, Map<Long, Long> profileIdsByMedicineId) {
+        if (profileIdsByMedicineId.isEmpty()) {
+            return;
+        }
+        long seq = nextSeq(userId, profileIdsByMedicineId.size()) - profileIdsByMedicineId.size();
+        Timestamp deletedAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(profileIdsByMedicineId.size());
+        for (Map.Entry<Long, Long> entry : profileIdsByMedicineId.entrySet()) {
+            rows.add(new Object[] {userId, entry.getKey(), entry.getValue(), ++seq, deletedAt});
+        }
+        jdbcTemplate.batchUpdate(INSERT_TOMBSTONE, rows);
+    }
+    
+    /**
+     * Up to {@code limit} tombstones of {@code userId} after {@code sinceSeq}, in sequence order.
+     */
+    public List<Tombstone> findTombstones(Long userId, long sinceSeq, int limit) {
+        return jdbcTemplate.query("SELECT medicine_id, profile_id, change_seq, deleted_at FROM medicine_tombstones"
+                        + " WHERE user_id = ? AND change_seq > ? ORDER BY change_seq",
+                ps -> {
+                    ps.setLong(1, userId);
+                    ps.setLong(2, sinceSeq);
+                    ps.setMaxRows(limit);
+                },
+                (rs, rowNum) -> new Tombstone(rs.getLong(1), (Long) rs.getObject(2, Long.class), rs.getLong(3),
+                        rs.getTimestamp(4).toLocalDateTime()));
+    }
+    
+    public Duration getRetention() {
+        return retention;
+    }
+    
+    @Scheduled(cron = "${app.sync.purge-cron:0 45 3 * * *}")
+    public void purge() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(retention));
+        int tombstones = jdbcTemplate.update("DELETE FROM medicine_tombstones WHERE deleted_at < ?", cutoff);
+        int doseEvents = jdbcTemplate.update("DELETE FROM dose_events WHERE received_at < ?", cutoff);
+        logger.info("Purged {} medicine tombstones and {} dose events older than {}", tombstones, doseEvents, retention);
+    }
+    
+    private int increment(Long userId, int count) {
+        return jdbcTemplate.update("UPDATE user_medicine_counters SET change_seq = change_seq + ? WHERE user_id = ?",
+                count, userId);
+    }
+    
+    /**
+     * A deleted medicine.
+     */
+    public static class Tombstone {
+        
+        private final Long medicineId;
+        private final Long profileId;
+        private final long changeSeq;
+        private final LocalDateTime deletedAt;
+        
+        Tombstone(Long medicineId, Long profileId, long changeSeq, LocalDateTime deletedAt) {
+            this.medicineId = medicineId;
+            this.profileId = profileId;
+            this.changeSeq = changeSeq;
+            this.deletedAt = deletedAt;
+        }
+        
+        public Long getMedicineId() {
+            return medicineId;
+        }
+        
+        public Long getProfileId() {
+            return profileId;
+        }
+        
+        public long getChangeSeq() {
+            return changeSeq;
+        }
+        
+        public LocalDateTime getDeletedAt() {
+            return deletedAt;
+        }
+    }
+}
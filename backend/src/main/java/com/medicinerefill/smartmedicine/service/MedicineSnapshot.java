@@ -0,0 +1,467 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Optional in-process copy of the columns the reminder scan filters on, held as primitive arrays
+ * (one slot per medicine) so candidate selection is a parallel array scan instead of a query that
+ * hydrates every row in the window. Entities are then loaded only for the hits.
+ *
+ * Rebuilt from the database in bulk at startup and every {@code rebuild-interval}; in between,
+ * {@link MedicineSnapshotListener} applies committed Medicine and User writes, and the reminder
+ * job reports its bulk state updates. Writes made by other instances or by bulk statements show
+ * up with the next rebuild, and callers re-check loaded entities.
+ */
+@Service
+public class MedicineSnapshot {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MedicineSnapshot.class);
+    
+    static final int NO_DAY = Integer.MIN_VALUE;
+    static final byte NO_STATUS = -1;
+    static final int NO_BUCKET = Integer.MIN_VALUE;
+    
+    private static final byte MEDICINE_NOTIFICATIONS = 1;
+    private static final byte USER_NOTIFICATIONS = 2;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.medicine-snapshot.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${app.medicine-snapshot.rebuild-interval:1h}")
+    private Duration rebuildInterval;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns columns;
+    // Changes committed while a rebuild is loading, replayed in order on the new columns
+    private List<Consumer<Columns>> pendingChanges;
+    private ScheduledExecutorService rebuildExecutor;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        meterRegistry.gauge("medicine.snapshot.rows", this, MedicineSnapshot::size);
+        rebuildExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("medicine-snapshot-"));
+        rebuildExecutor.scheduleWithFixedDelay(this::rebuildQuietly, 0, rebuildInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    void stop() {
+        if (rebuildExecutor != null) {
+            rebuildExecutor.shutdownNow();
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /** True once the first load has finished; until then callers query the database. */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return columns != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return columns != null ? columns.size : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Reloads every medicine with one streaming query and swaps the new columns in.
+     */
+    public void rebuild() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        Columns loaded = new Columns(1024);
+        try {
+            loaded.usersWithoutNotifications.addAll(jdbcTemplate.queryForList(
+                    "SELECT id FROM users WHERE email_notifications_enabled IS NULL OR email_notifications_enabled = FALSE",
+                    Long.class));
+            jdbcTemplate.query("SELECT id, user_id, current_quantity, dosage_per_day, refill_date,"
+                    + " notifications_enabled, status, last_notified_on, last_notified_status, last_notified_bucket"
+                    + " FROM medicines", rs -> {
+                Row row = new Row();
+                row.id = rs.getLong(1);
+                row.userId = rs.getLong(2);
+                row.currentQuantity = rs.getInt(3);
+                row.dosagePerDay = rs.getInt(4);
+                row.refillDay = epochDay(rs.getDate(5));
+                row.notificationsEnabled = rs.getBoolean(6);
+                row.status = statusOrdinal(rs.getString(7));
+                row.lastNotifiedDay = epochDay(rs.getDate(8));
+                row.lastNotifiedStatus = statusOrdinal(rs.getString(9));
+                int bucket = rs.getInt(10);
+                row.lastNotifiedBucket = rs.wasNull() ? NO_BUCKET : bucket;
+                loaded.upsert(row);
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(change -> change.accept(loaded));
+            pendingChanges = null;
+            columns = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Medicine snapshot rebuilt: {} rows in {} ms", loaded.size,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+    
+    /**
+     * Ids of medicines with a refill date between {@code today} and {@code endDate} whose medicine
+     * and user notifications are on, scanned in parallel. With {@code milestones} (ascending) the
+     * reminder suppression of {@code MedicineRepository.findUnsuppressedReminderCandidates} applies.
+     */
+    public long[] findReminderCandidateIds(LocalDate today, LocalDate endDate, List<Integer> milestones,
+                                           boolean onStatusChange) {
+        int todayDay = (int) today.toEpochDay();
+        int lastDay = (int) endDate.toEpochDay();
+        int[] buckets = milestones != null ? milestones.stream().mapToInt(Integer::intValue).toArray() : null;
+        if (buckets != null && buckets.length > 0) {
+            lastDay = Math.min(lastDay, todayDay + buckets[buckets.length - 1]);
+        }
+        int last = lastDay;
+        int staleBefore = buckets != null && buckets.length > 0 ? todayDay - buckets[buckets.length - 1] : 0;
+        
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            if (c == null) {
+                throw new IllegalStateException("Medicine snapshot is not loaded");
+            }
+            return IntStream.range(0, c.size)
+                    .parallel()
+                    .filter(i -> c.flags[i] == (MEDICINE_NOTIFICATIONS | USER_NOTIFICATIONS)
+                            && c.refillDay[i] >= todayDay && c.refillDay[i] <= last
+                            && (buckets == null || !isSuppressed(c, i, todayDay, buckets, staleBefore, onStatusChange)))
+                    .mapToLong(i -> c.ids[i])
+                    .toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private static boolean isSuppressed(Columns c, int i, int todayDay, int[] buckets, int staleBefore,
+                                        boolean onStatusChange) {
+        if (c.lastNotifiedDay[i] == NO_DAY || c.lastNotifiedBucket[i] == NO_BUCKET
+                || c.lastNotifiedDay[i] < staleBefore) {
+            return false;
+        }
+        int daysLeft = c.refillDay[i] - todayDay;
+        int bucket = -1;
+        for (int milestone : buckets) {
+            if (daysLeft <= milestone) {
+                bucket = milestone;
+                break;
+            }
+        }
+        if (bucket != c.lastNotifiedBucket[i]) {
+            return false;
+        }
+        return !onStatusChange || c.lastNotifiedStatus[i] == NO_STATUS || c.status[i] == c.lastNotifiedStatus[i];
+    }
+    
+    // Change hooks, applied once the surrounding transaction commits
+    
+    void medicineSaved(Medicine medicine) {
+        Row row = Row.of(medicine);
+        afterCommit(c -> c.upsert(row));
+    }
+    
+    void medicineRemoved(Long medicineId) {
+        afterCommit(c -> c.remove(medicineId));
+    }
+    
+    /**
+     * Drops medicines the archive has moved. Applied at once: MedicineArchive calls it after the range
+     * transaction has committed, when a synchronization registered here would no longer run.
+     */
+    void medicinesArchived(Collection<Long> medicineIds) {
+        if (enabled) {
+            List<Long> copy = List.copyOf(medicineIds);
+            apply(c -> copy.forEach(c::remove));
+        }
+    }
+    
+    void userSaved(User user) {
+        Long userId = user.getId();
+        boolean notifications = Boolean.TRUE.equals(user.getEmailNotificationsEnabled());
+        afterCommit(c -> c.setUserNotifications(userId, notifications));
+    }
+    
+    /**
+     * Mirrors {@code MedicineRepository.markNotified}, which bypasses the entity listeners, including
+     * its guard against rows that changed since they were loaded.
+     */
+    public void markNotified(Collection<Long> ids, LocalDate day, int bucket, Medicine.MedicineStatus status) {
+        int notifiedDay = (int) day.toEpochDay();
+        byte notifiedStatus = (byte) status.ordinal();
+        List<Long> copy = List.copyOf(ids);
+        afterCommit(c -> {
+            for (Long id : copy) {
+                Integer slot = c.slots.get(id);
+                if (slot != null && c.status[slot] == notifiedStatus && c.refillDay[slot] >= notifiedDay
+                        && c.refillDay[slot] <= notifiedDay + bucket && c.lastNotifiedDay[slot] < notifiedDay) {
+                    c.lastNotifiedDay[slot] = notifiedDay;
+                    c.lastNotifiedBucket[slot] = bucket;
+                    c.lastNotifiedStatus[slot] = notifiedStatus;
+                }
+            }
+        });
+    }
+    
+    private void afterCommit(Consumer<Columns> change) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+    
+    private void apply(Consumer<Columns> change) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+            if (columns != null) {
+                change.accept(columns);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Medicine snapshot rebuild failed; reminder scans keep using {}",
+                    isReady() ? "the previous snapshot" : "the database", e);
+        }
+    }
+    
+    private static int epochDay(Date date) {
+        return date != null ? (int) date.toLocalDate().toEpochDay() : NO_DAY;
+    }
+    
+    private static byte statusOrdinal(String status) {
+        return status != null ? (byte) Medicine.MedicineStatus.valueOf(status).ordinal() : NO_STATUS;
+    }
+    
+    /**
+     * One medicine's scanned values, captured when the entity is written.
+     */
+    static class Row {
+        long id;
+        long userId;
+        int currentQuantity;
+        int dosagePerDay;
+        int refillDay;
+        boolean notificationsEnabled;
+        byte status;
+        int lastNotifiedDay;
+        byte lastNotifiedStatus;
+        int lastNotifiedBucket;
+        
+        static Row of(Medicine medicine) {
+            Row row = new Row();
+            row.id = medicine.getId();
+            // The id of a lazy user proxy is available without loading the user
+            row.userId = medicine.getUser().getId();
+            row.currentQuantity = medicine.getCurrentQuantity() != null ? medicine.getCurrentQuantity() : 0;
+            row.dosagePerDay = medicine.getDosagePerDay() != null ? medicine.getDosagePerDay() : 0;
+            row.refillDay = medicine.getRefillDate() != null ? (int) medicine.getRefillDate().toEpochDay() : NO_DAY;
+            row.notificationsEnabled = Boolean.TRUE.equals(medicine.getNotificationsEnabled());
+            row.status = medicine.getStatus() != null ? (byte) medicine.getStatus().ordinal() : NO_STATUS;
+            row.lastNotifiedDay = medicine.getLastNotifiedOn() != null
+                    ? (int) medicine.getLastNotifiedOn().toEpochDay() : NO_DAY;
+            row.lastNotifiedStatus = medicine.getLastNotifiedStatus() != null
+                    ? (byte) medicine.getLastNotifiedStatus().ordinal() : NO_STATUS;
+            row.lastNotifiedBucket = medicine.getLastNotifiedBucket() != null
+                    ? medicine.getLastNotifiedBucket() : NO_BUCKET;
+            return row;
+        }
+    }
+    
+    /**
+     * Dense parallel arrays; a removed slot is filled with the last row so scans need no holes.
+     */
+    static class Columns {
+        
+        int size;
+        long[] ids;
+        long[] userIds;
+        int[] currentQuantity;
+        int[] dosagePerDay;
+        int[] refillDay;
+        byte[] flags;
+        byte[] status;
+        int[] lastNotifiedDay;
+        byte[] lastNotifiedStatus;
+        int[] lastNotifiedBucket;
+        final Map<Long, Integer> slots = new HashMap<>();
+        final Set<Long> usersWithoutNotifications = new HashSet<>();
+        
+        Columns(int capacity) {
+            ids = new long[capacity];
+            userIds = new long[capacity];
+            currentQuantity = new int[capacity];
+            dosagePerDay = new int[capacity];
+            refillDay = new int[capacity];
+            flags = new byte[capacity];
+            status = new byte[capacity];
+            lastNotifiedDay = new int[capacity];
+            lastNotifiedStatus = new byte[capacity];
+            lastNotifiedBucket = new int[capacity];
+        }
+        
+        void upsert(Row row) {
+            Integer slot = slots.get(row.id);
+            int i;
+            if (slot != null) {
+                i = slot;
+            } else {
+                if (size == ids.length) {
+                    grow();
+                }
+                i = size++;
+                slots.put(row.id, i);
+            }
+            ids[i] = row.id;
+            userIds[i] = row.userId;
+            currentQuantity[i] = row.currentQuantity;
+            dosagePerDay[i] = row.dosagePerDay;
+            refillDay[i] = row.refillDay;
+            flags[i] = (byte) ((row.notificationsEnabled ? MEDICINE_NOTIFICATIONS : 0)
+                    | (usersWithoutNotifications.contains(row.userId) ? 0 : USER_NOTIFICATIONS));
+            status[i] = row.status;
+            lastNotifiedDay[i] = row.lastNotifiedDay;
+            lastNotifiedStatus[i] = row.lastNotifiedStatus;
+            lastNotifiedBucket[i] = row.lastNotifiedBucket;
+        }
+        
+        void remove(Long id) {
+            Integer slot = slots.remove(id);
+            if (slot == null) {
+                return;
+            }
+            int i = slot;
+            int last = --size;
+            if (i != last) {
+                ids[i] = ids[last];
+                userIds[i] = userIds[last];
+                currentQuantity[i] = currentQuantity[last];
+                dosagePerDay[i] = dosagePerDay[last];
+                refillDay[i] = refillDay[last];
+                flags[i] = flags[last];
+                status[i] = status[last];
+                lastNotifiedDay[i] = lastNotifiedDay[last];
+                lastNotifiedStatus[i] = lastNotifiedStatus[last];
+                lastNotifiedBucket[i] = lastNotifiedBucket[last];
+                slots.put(ids[i], i);
+            }
+        }
+        
+        void setUserNotifications(Long userId, boolean notifications) {
+            boolean changed = notifications
+                    ? usersWithoutNotifications.remove(userId)
+                    : usersWithoutNotifications.add(userId);
+            if (!changed) {
+                return;
+            }
+            // Rare, so a full pass beats keeping a per-user index
+            for (int i = 0; i < size; i++) {
+                if (userIds[i] == userId) {
+                    flags[i] = (byte) (notifications ? flags[i] | USER_NOTIFICATIONS : flags[i] & ~USER_NOTIFICATIONS);
+                }
+            }
+        }
+        
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            userIds = Arrays.copyOf(userIds, capacity);
+            currentQuantity = Arrays.copyOf(currentQuantity, capacity);
+            dosagePerDay = Arrays.copyOf(dosagePerDay, capacity);
+            refillDay = Arrays.copyOf(refillDay, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            status = Arrays.copyOf(status, capacity);
+            lastNotifiedDay = Arrays.copyOf(lastNotifiedDay, capacity);
+            lastNotifiedStatus = Arrays.copyOf(lastNotifiedStatus, capacity);
+            lastNotifiedBucket = Arrays.copyOf(lastNotifiedBucket, capacity);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Entity listener on Medicine and User that keeps {@link MedicineSnapshot} current. Created by
+ * Spring through Hibernate's bean container, so it can be injected.
+ */
+public class MedicineSnapshotListener {
+    
+    @Autowired
+    private MedicineSnapshot medicineSnapshot;
+    
+    @PostPersist
+    @PostUpdate
+    void onSave(Object entity) {
+        if (!medicineSnapshot.isEnabled()) {
+            return;
+        }
+        if (entity instanceof Medicine medicine) {
+            medicineSnapshot.medicineSaved(medicine);
+        } else if (entity instanceof User user) {
+            medicineSnapshot.userSaved(user);
+        }
+    }
+    
+    @PostRemove
+    void onRemove(Object entity) {
+        if (medicineSnapshot.isEnabled() && entity instanceof Medicine medicine) {
+            medicineSnapshot.medicineRemoved(medicine.getId());
+        }
+    }
+}
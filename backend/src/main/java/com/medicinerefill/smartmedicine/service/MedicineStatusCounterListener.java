@@ -0,0 +1,47 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Entity listener on Medicine and User that applies status changes to {@link MedicineStatusCounters}.
+ * Runs right after the row is written; the deltas are summed per transaction and written just before
+ * it commits ({@link MedicineWriteDeltas}), so the counters commit or roll back together with the
+ * medicines.
+ */
+public class MedicineStatusCounterListener {
+    
+    @Autowired
+    private MedicineStatusCounters medicineStatusCounters;
+    
+    @Autowired
+    private MedicineWriteDeltas medicineWriteDeltas;
+    
+    @PostPersist
+    void onPersist(Object entity) {
+        if (entity instanceof Medicine medicine) {
+            medicineWriteDeltas.statusChanged(medicine.getUser().getId(), null, medicine.getStatus());
+        } else if (entity instanceof User user) {
+            medicineStatusCounters.createFor(user.getId());
+        }
+    }
+    
+    @PostUpdate
+    void onUpdate(Object entity) {
+        if (entity instanceof Medicine medicine) {
+            medicineWriteDeltas.statusChanged(medicine.getUser().getId(), medicine.getPersistedStatus(),
+                    medicine.getStatus());
+        }
+    }
+    
+    @PostRemove
+    void onRemove(Object entity) {
+        if (entity instanceof Medicine medicine) {
+            medicineWriteDeltas.statusChanged(medicine.getUser().getId(), medicine.getPersistedStatus(), null);
+        }
+    }
+}
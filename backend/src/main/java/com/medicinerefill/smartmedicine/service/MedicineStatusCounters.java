@@ -0,0 +1,252 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine.MedicineStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-user medicine counts by status in the user_medicine_counters table. Every medicine insert,
+ * status change and delete applies a delta in the writing transaction (see
+ * {@link MedicineStatusCounterListener}), so the dashboard reads one row by primary key. A periodic
+ * recount repairs drift from writes that bypass the entity, such as manual SQL. The row also carries
+ * the user's delta-sync change sequence (see {@link MedicineChangeLog}).
+ */
+@Service
+public class MedicineStatusCounters {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MedicineStatusCounters.class);
+    
+    private static final String RECOUNT_COLUMNS = "COALESCE(SUM(CASE WHEN status = 'OK' THEN 1 ELSE 0 END), 0),"
+            + " COALESCE(SUM(CASE WHEN status = 'LOW' THEN 1 ELSE 0 END), 0),"
+            + " COALESCE(SUM(CASE WHEN status = 'REFILL_NEEDED' THEN 1 ELSE 0 END), 0)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.counters.reconcile-batch-size:1000}")
+    private int reconcileBatchSize;
+    
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+    
+    /**
+     * Counts of one user, or null if the user has no counter row yet or the row has drifted below
+     * zero; callers then count the medicines instead.
+     */
+    public Counts find(Long userId) {
+        List<Counts> rows = jdbcTemplate.query("SELECT ok_count, low_count, refill_needed_count"
+                        + " FROM user_medicine_counters WHERE user_id = ?",
+                (rs, rowNum) -> new Counts(rs.getInt(1), rs.getInt(2), rs.getInt(3)), userId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Counts counts = rows.get(0);
+        if (counts.ok < 0 || counts.low < 0 || counts.refillNeeded < 0) {
+            meterRegistry.counter("medicine.counters.negative").increment();
+            logger.warn("Medicine counters of user {} drifted below zero ({}); counting until reconciliation",
+                    userId, counts);
+            return null;
+        }
+        return counts;
+    }
+    
+    /**
+     * Creates the zero row of a new user.
+     */
+    public void createFor(Long userId) {
+        try {
+            jdbcTemplate.update("INSERT INTO user_medicine_counters (user_id) VALUES (?)", userId);
+        } catch (DuplicateKeyException e) {
+            // Already created by a concurrent medicine write
+        }
+    }
+    
+    /**
+     * Moves one medicine of {@code userId} from {@code from} to {@code to}; null means it did not
+     * exist before or no longer exists. Runs on the caller's transaction, so it commits or rolls back
+     * together with the medicine.
+     */
+    public void apply(Long userId, MedicineStatus from, MedicineStatus to) {
+        if (from == to) {
+            return;
+        }
+        add(userId, delta(MedicineStatus.OK, from, to), delta(MedicineStatus.LOW, from, to),
+                delta(MedicineStatus.REFILL_NEEDED, from, to));
+    }
+    
+    /**
+     * Adds the given deltas to the counts of {@code userId} in one statement, on the caller's
+     * transaction; for writes that change many medicines of a user at once.
+     */
+    public void add(Long userId, int ok, int low, int refillNeeded) {
+        int updated = jdbcTemplate.update("UPDATE user_medicine_counters SET ok_count = ok_count + ?,"
+                + " low_count = low_count + ?, refill_needed_count = refill_needed_count + ? WHERE user_id = ?",
+                ok, low, refillNeeded, userId);
+        if (updated == 0) {
+            // No row yet. A batched UPDATE of this medicine may not have been executed yet, in which case
+            // reconciliation corrects the row
+            createFromRecount(userId);
+        }
+    }
+    
+    /**
+     * Creates a missing row from the medicines table, on the caller's transaction. The change
+     * sequence continues after the highest value already given out, so sync tokens stay valid.
+     */
+    public boolean createFromRecount(Long userId) {
+        try {
+            return jdbcTemplate.update("INSERT INTO user_medicine_counters (user_id, ok_count, low_count,"
+                    + " refill_needed_count, change_seq) SELECT ?, " + RECOUNT_COLUMNS + ", GREATEST("
+                    + "COALESCE(MAX(change_seq), 0), COALESCE((SELECT MAX(t.change_seq) FROM medicine_tombstones t"
+                    + " WHERE t.user_id = ?), 0)) FROM medicines WHERE user_id = ?", userId, userId, userId) > 0;
+        } catch (DuplicateKeyException e) {
+            logger.warn("Counter row for user {} created concurrently; left to reconciliation", userId);
+            return false;
+        }
+    }
+    
+    @Scheduled(cron = "${app.counters.reconcile-cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+    
+    /**
+     * Recounts every user in id ranges of reconcile-batch-size and corrects rows that differ,
+     * returning how many were repaired. A correction only applies if the row still holds the value
+     * read before the recount, so a write committed in between is never overwritten; that user is
+     * picked up by the next run instead.
+     */
+    public int reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            Long maxUserId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM users", Long.class);
+            int repaired = 0;
+            long start = System.nanoTime();
+            for (long from = 1; maxUserId != null && from <= maxUserId; from += reconcileBatchSize) {
+                repaired += reconcileRange(from, from + reconcileBatchSize - 1);
+            }
+            meterRegistry.counter("medicine.counters.repaired").increment(repaired);
+            if (repaired > 0) {
+                logger.warn("Repaired {} medicine counter rows in {} ms", repaired, (System.nanoTime() - start) / 1_000_000);
+            } else {
+                logger.info("Medicine counters consistent ({} ms)", (System.nanoTime() - start) / 1_000_000);
+            }
+            return repaired;
+        } finally {
+            reconciling.set(false);
+        }
+    }
+    
+    private int reconcileRange(long fromUserId, long toUserId) {
+        // Read the stored rows before the recount, see reconcile()
+        Map<Long, Counts> stored = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, ok_count, low_count, refill_needed_count FROM user_medicine_counters"
+                        + " WHERE user_id BETWEEN ? AND ?",
+                rs -> {
+                    stored.put(rs.getLong(1), new Counts(rs.getInt(2), rs.getInt(3), rs.getInt(4)));
+                }, fromUserId, toUserId);
+        
+        Map<Long, Counts> actual = new HashMap<>();
+        jdbcTemplate.query("SELECT id FROM users WHERE id BETWEEN ? AND ?",
+                rs -> {
+                    actual.put(rs.getLong(1), new Counts(0, 0, 0));
+                }, fromUserId, toUserId);
+        jdbcTemplate.query("SELECT user_id, " + RECOUNT_COLUMNS + " FROM medicines WHERE user_id BETWEEN ? AND ?"
+                        + " GROUP BY user_id",
+                rs -> {
+                    actual.put(rs.getLong(1), new Counts(rs.getInt(2), rs.getInt(3), rs.getInt(4)));
+                }, fromUserId, toUserId);
+        
+        int repaired = 0;
+        for (Map.Entry<Long, Counts> entry : actual.entrySet()) {
+            Long userId = entry.getKey();
+            Counts counts = entry.getValue();
+            Counts current = stored.get(userId);
+            if (counts.equals(current)) {
+                continue;
+            }
+            boolean fixed;
+            if (current == null) {
+                fixed = createFromRecount(userId);
+            } else {
+                fixed = jdbcTemplate.update("UPDATE user_medicine_counters SET ok_count = ?, low_count = ?,"
+                        + " refill_needed_count = ? WHERE user_id = ? AND ok_count = ? AND low_count = ?"
+                        + " AND refill_needed_count = ?",
+                        counts.ok, counts.low, counts.refillNeeded, userId,
+                        current.ok, current.low, current.refillNeeded) > 0;
+            }
+            if (fixed) {
+                logger.debug("Medicine counters of user {} corrected from {} to {}", userId, current, counts);
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+    
+    static int delta(MedicineStatus status, MedicineStatus from, MedicineStatus to) {
+        return (to == status ? 1 : 0) - (from == status ? 1 : 0);
+    }
+    
+    /**
+     * Medicines of one user by status.
+     */
+    public static class Counts {
+        
+        private final int ok;
+        private final int low;
+        private final int refillNeeded;
+        
+        Counts(int ok, int low, int refillNeeded) {
+            this.ok = ok;
+            this.low = low;
+            this.refillNeeded = refillNeeded;
+        }
+        
+        public int getOk() {
+            return ok;
+        }
+        
+        public int getLow() {
+            return low;
+        }
+        
+        public int getRefillNeeded() {
+            return refillNeeded;
+        }
+        
+        public int getTotal() {
+            return getOk() + getLow() + getRefillNeeded();
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Counts other && ok == other.ok && low == other.low && refillNeeded == other.refillNeeded;
+        }
+        
+        @Override
+        public int hashCode() {
+            return (ok * 31 + low) * 31 + refillNeeded;
+        }
+        
+        @Override
+        public String toString() {
+            return "ok=" + ok + ", low=" + low + ", refillNeeded=" + refillNeeded;
+        }
+    }
+}
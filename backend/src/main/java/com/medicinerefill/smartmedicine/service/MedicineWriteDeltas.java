@@ -0,0 +1,164 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine.MedicineStatus;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-transaction totals of the bookkeeping behind medicine writes: status counter deltas, change
+ * sequence values and delete tombstones, added by the entity listeners. They are written once per
+ * transaction, one counter UPDATE per user and one tombstone batch, right after Hibernate's
+ * commit-time flush and before the commit. Spring's beforeCommit runs before that flush and would
+ * miss updates found by dirty checking.
+ *
+ * A user's first sequence value in a transaction is still taken from the counter row, which locks
+ * it until commit; the following ones are handed out from memory and added with the deltas.
+ */
+@Component
+public class MedicineWriteDeltas {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MedicineStatusCounters medicineStatusCounters;
+    
+    /**
+     * Moves one medicine of {@code userId} from {@code from} to {@code to} in the counters, at the
+     * end of the current JPA transaction, or right away outside one.
+     */
+    void statusChanged(Long userId, MedicineStatus from, MedicineStatus to) {
+        if (from == to) {
+            return;
+        }
+        Pending pending = current();
+        if (pending == null) {
+            medicineStatusCounters.apply(userId, from, to);
+            return;
+        }
+        Totals totals = pending.totals(userId);
+        totals.ok += MedicineStatusCounters.delta(MedicineStatus.OK, from, to);
+        totals.low += MedicineStatusCounters.delta(MedicineStatus.LOW, from, to);
+        totals.refillNeeded += MedicineStatusCounters.delta(MedicineStatus.REFILL_NEEDED, from, to);
+    }
+    
+    /**
+     * The highest of the next {@code count} sequence values of {@code userId}, handed out from
+     * memory, or null if the transaction has not taken one from the counter row yet.
+     */
+    Long reserveSeq(Long userId, int count) {
+        Pending pending = current();
+        Totals totals = pending != null ? pending.users.get(userId) : null;
+        if (totals == null || totals.lastSeq == null) {
+            return null;
+        }
+        totals.lastSeq += count;
+        totals.reservedSeq += count;
+        return totals.lastSeq;
+    }
+    
+    /**
+     * Records the value the transaction took from the counter row, which it now holds locked.
+     */
+    void seqTaken(Long userId, long seq) {
+        Pending pending = current();
+        if (pending != null) {
+            pending.totals(userId).lastSeq = seq;
+        }
+    }
+    
+    /**
+     * Queues a tombstone for the end of the current transaction; false outside one.
+     */
+    boolean tombstone(Long userId, Long medicineId, Long profileId, long seq) {
+        Pending pending = current();
+        if (pending == null) {
+            return false;
+        }
+        pending.tombstones.add(new Object[] {userId, medicineId, profileId, seq, Timestamp.valueOf(LocalDateTime.now())});
+        return true;
+    }
+    
+    private Pending current() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            // The transaction's own EntityManager; looking up a bean here can fail during shutdown
+            EntityManagerHolder holder = TransactionSynchronizationManager.getResourceMap().values().stream()
+                    .filter(EntityManagerHolder.class::isInstance)
+                    .map(EntityManagerHolder.class::cast)
+                    .findFirst().orElse(null);
+            if (holder == null) {
+                return null;
+            }
+            Pending created = new Pending();
+            holder.getEntityManager().unwrap(SessionImplementor.class).getActionQueue()
+                    .registerProcess((BeforeTransactionCompletionProcess) session -> write(created));
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MedicineWriteDeltas.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+    
+    private void write(Pending pending) {
+        if (!pending.tombstones.isEmpty()) {
+            jdbcTemplate.batchUpdate(MedicineChangeLog.INSERT_TOMBSTONE, pending.tombstones);
+        }
+        pending.users.forEach((userId, totals) -> {
+            if (totals.ok == 0 && totals.low == 0 && totals.refillNeeded == 0 && totals.reservedSeq == 0) {
+                return;
+            }
+            int updated = jdbcTemplate.update("UPDATE user_medicine_counters SET ok_count = ok_count + ?,"
+                    + " low_count = low_count + ?, refill_needed_count = refill_needed_count + ?,"
+                    + " change_seq = change_seq + ? WHERE user_id = ?",
+                    totals.ok, totals.low, totals.refillNeeded, totals.reservedSeq, userId);
+            if (updated == 0) {
+                // No row yet; the recount sees this transaction's medicines and tombstones
+                medicineStatusCounters.createFromRecount(userId);
+            }
+        });
+    }
+    
+    private static class Pending {
+        
+        // Ascending user ids, so concurrent transactions update counter rows in the same order
+        private final Map<Long, Totals> users = new TreeMap<>();
+        private final List<Object[]> tombstones = new ArrayList<>();
+        
+        Totals totals(Long userId) {
+            return users.computeIfAbsent(userId, id -> new Totals());
+        }
+    }
+    
+    private static class Totals {
+        
+        private int ok;
+        private int low;
+        private int refillNeeded;
+        // Last sequence value handed out, and how many of them the counter row has not seen yet
+        private Long lastSeq;
+        private int reservedSeq;
+    }
+}
@@ -0,0 +1,93 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.User;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A notification rendered once for one user and handed to each of the user's channels. Holds a
+ * snapshot of the recipient's addresses so channel workers never touch the User entity.
+ */
+public class Notification {
+    
+    public static final String TYPE_REFILL_REMINDER = "refill-reminder";
+    public static final String TYPE_WEEKLY_SUMMARY = "weekly-summary";
+    // Refill reminder and weekly summary merged into one message
+    public static final String TYPE_DIGEST = "digest";
+    
+    private final String id = UUID.randomUUID().toString();
+    private final String type;
+    private final Long userId;
+    private final String email;
+    private final String webhookUrl;
+    private final String subject;
+    private final String html;
+    private final String text;
+    // Structured content for machine channels such as webhooks
+    private final Map<String, Object> data;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    // Reminder state to record once a channel delivers this notification; null for other notifications
+    private volatile ReminderStateRecorder.Marks reminderMarks;
+    
+    public Notification(String type, User user, String subject, String html, String text, Map<String, Object> data) {
+        this.type = type;
+        this.userId = user.getId();
+        this.email = user.getEmail();
+        this.webhookUrl = user.getWebhookUrl();
+        this.subject = subject;
+        this.html = html;
+        this.text = text;
+        this.data = data;
+    }
+    
+    // Getters
+    public String getId() {
+        return id;
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public String getWebhookUrl() {
+        return webhookUrl;
+    }
+    
+    public String getSubject() {
+        return subject;
+    }
+    
+    public String getHtml() {
+        return html;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public Map<String, Object> getData() {
+        return data;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public ReminderStateRecorder.Marks getReminderMarks() {
+        return reminderMarks;
+    }
+    
+    void setReminderMarks(ReminderStateRecorder.Marks reminderMarks) {
+        this.reminderMarks = reminderMarks;
+    }
+}
@@ -0,0 +1,23 @@
+package com.medicinerefill.smartmedicine.service;
+
+import java.util.List;
+
+/**
+ * A delivery channel for rendered notifications (email, webhook, ...). Implementations are Spring
+ * beans picked up by NotificationPipeline, which gives each enabled channel its own queue, batch
+ * size, worker threads and retry policy from {@code app.notifications.channels.<name>}.
+ */
+public interface NotificationChannel {
+    
+    /** Name used in configuration and in users' channel preferences. */
+    String getName();
+    
+    /** Whether this notification has an address on this channel. */
+    boolean canDeliver(Notification notification);
+    
+    /**
+     * Delivers a batch of at most the configured batch size, called from the channel's own worker
+     * threads. Returns the notifications that failed and may be retried; throwing fails the whole batch.
+     */
+    List<Notification> deliver(List<Notification> batch) throws Exception;
+}
@@ -0,0 +1,345 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.config.NotificationProperties;
+import com.medicinerefill.smartmedicine.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Fans rendered notifications out to each user's enabled channels. Every channel has its own
+ * bounded queue drained in batches by its own worker threads, with retries and exponential backoff,
+ * so a slow provider only delays its own deliveries. Dispatch never blocks: a full queue rejects.
+ */
+@Service
+public class NotificationPipeline {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NotificationPipeline.class);
+    
+    @Autowired
+    private List<NotificationChannel> channels;
+    
+    @Autowired
+    private NotificationProperties properties;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired(required = false)
+    private List<DeliveryListener> deliveryListeners = List.of();
+    
+    private final Map<String, ChannelWorker> workers = new LinkedHashMap<>();
+    private ScheduledExecutorService retryExecutor;
+    private volatile boolean running;
+    
+    @PostConstruct
+    void start() {
+        running = true;
+        retryExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("notify-retry-"));
+        for (NotificationChannel channel : channels) {
+            NotificationProperties.Channel settings = properties.channel(channel.getName());
+            if (settings.isEnabled()) {
+                workers.put(channel.getName(), new ChannelWorker(channel, settings));
+            }
+        }
+        logger.info("Notification channels enabled: {}", workers.keySet());
+    }
+    
+    @PreDestroy
+    void stop() {
+        running = false;
+        retryExecutor.shutdownNow();
+        // Workers finish what is already queued, within a bound
+        for (ChannelWorker worker : workers.values()) {
+            worker.executor.shutdown();
+        }
+        for (ChannelWorker worker : workers.values()) {
+            try {
+                if (!worker.executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    worker.executor.shutdownNow();
+                    logger.warn("{} notification(s) left undelivered on channel {}", worker.queue.size(),
+                            worker.channel.getName());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Queues {@code notification} on every enabled channel the user has chosen and that has an
+     * address for it. Returns the outcome per channel.
+     */
+    public DispatchResult dispatch(User user, Notification notification) {
+        DispatchResult result = new DispatchResult();
+        for (String name : channelsFor(user)) {
+            ChannelWorker worker = workers.get(name);
+            if (worker == null || !worker.channel.canDeliver(notification)) {
+                continue;
+            }
+            if (worker.offer(new Delivery(notification))) {
+                result.queued.add(name);
+            } else {
+                result.rejected.add(name);
+            }
+        }
+        return result;
+    }
+    
+    /** All registered channel names, whether or not they are enabled on this node. */
+    public Set<String> getChannelNames() {
+        return channels.stream().map(NotificationChannel::getName).collect(Collectors.toCollection(TreeSet::new));
+    }
+    
+    public boolean isEnabled(String channel) {
+        return workers.containsKey(channel);
+    }
+    
+    public List<String> channelsFor(User user) {
+        if (user.getNotificationChannels() == null) {
+            return properties.getDefaultChannels();
+        }
+        return Arrays.stream(user.getNotificationChannels().split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+    }
+    
+    /** Queue depth and delivery counters per enabled channel. */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        for (ChannelWorker worker : workers.values()) {
+            Map<String, Object> channelStats = new LinkedHashMap<>();
+            channelStats.put("queued", worker.queue.size());
+            channelStats.put("capacity", worker.settings.getQueueCapacity());
+            channelStats.put("outstanding", worker.outstanding.get());
+            channelStats.put("delivered", worker.delivered.get());
+            channelStats.put("retried", worker.retried.get());
+            channelStats.put("failed", worker.failed.get());
+            channelStats.put("rejected", worker.rejected.get());
+            stats.put(worker.channel.getName(), channelStats);
+        }
+        return stats;
+    }
+    
+    /**
+     * Waits until every queue is empty and no batch or retry is pending. Returns false on timeout.
+     */
+    public boolean awaitIdle(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (workers.values().stream().allMatch(ChannelWorker::isIdle)) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+    
+    private class ChannelWorker {
+        
+        final NotificationChannel channel;
+        final NotificationProperties.Channel settings;
+        final BlockingQueue<Delivery> queue;
+        final ExecutorService executor;
+        // Accepted and not yet delivered or given up on: queued, in a batch or waiting for a retry
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong retried = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        
+        ChannelWorker(NotificationChannel channel, NotificationProperties.Channel settings) {
+            this.channel = channel;
+            this.settings = settings;
+            this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+            this.executor = Executors.newFixedThreadPool(settings.getConcurrency(),
+                    new CustomizableThreadFactory("notify-" + channel.getName() + "-"));
+            meterRegistry.gauge("notification.queue.size", Tags.of("channel", channel.getName()), queue,
+                    BlockingQueue::size);
+            for (int i = 0; i < settings.getConcurrency(); i++) {
+                executor.execute(this::run);
+            }
+        }
+        
+        boolean offer(Delivery delivery) {
+            if (queue.offer(delivery)) {
+                outstanding.incrementAndGet();
+                return true;
+            }
+            count(rejected, "rejected", 1);
+            return false;
+        }
+        
+        boolean isIdle() {
+            return outstanding.get() == 0;
+        }
+        
+        private void run() {
+            List<Delivery> batch = new ArrayList<>(settings.getBatchSize());
+            while (running || !queue.isEmpty()) {
+                try {
+                    Delivery first = queue.poll(500, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, settings.getBatchSize() - 1);
+                    process(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+        
+        private void process(List<Delivery> batch) {
+            List<Notification> notifications = batch.stream().map(d -> d.notification).toList();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            List<Notification> failedNotifications;
+            try {
+                failedNotifications = channel.deliver(notifications);
+            } catch (Exception e) {
+                logger.warn("Notification batch of {} failed on channel {}", batch.size(), channel.getName(), e);
+                failedNotifications = notifications;
+            }
+            sample.stop(meterRegistry.timer("notification.batch", "channel", channel.getName(),
+                    "outcome", failedNotifications.isEmpty() ? "success" : "failure"));
+            
+            Set<Notification> failedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            failedSet.addAll(failedNotifications);
+            count(delivered, "delivered", batch.size() - failedSet.size());
+            List<Notification> deliveredNotifications = new ArrayList<>(batch.size() - failedSet.size());
+            for (Delivery delivery : batch) {
+                if (failedSet.contains(delivery.notification)) {
+                    retryOrFail(delivery);
+                } else {
+                    deliveredNotifications.add(delivery.notification);
+                }
+            }
+            if (!deliveredNotifications.isEmpty()) {
+                for (DeliveryListener listener : deliveryListeners) {
+                    try {
+                        listener.delivered(channel.getName(), deliveredNotifications);
+                    } catch (RuntimeException e) {
+                        logger.error("Delivery listener failed on channel {}", channel.getName(), e);
+                    }
+                }
+                // Only now, so awaitIdle also covers what the listeners record
+                outstanding.addAndGet(-deliveredNotifications.size());
+            }
+        }
+        
+        private void retryOrFail(Delivery delivery) {
+            delivery.attempts++;
+            if (delivery.attempts >= settings.getMaxAttempts() || !running) {
+                giveUp(delivery);
+                logger.error("Giving up on {} notification {} for user {} on channel {} after {} attempt(s)",
+                        delivery.notification.getType(), delivery.notification.getId(),
+                        delivery.notification.getUserId(), channel.getName(), delivery.attempts);
+                return;
+            }
+            count(retried, "retried", 1);
+            long delayMs = settings.getRetryBackoff().toMillis() << Math.min(delivery.attempts - 1, 10);
+            try {
+                retryExecutor.schedule(() -> {
+                    if (!queue.offer(delivery)) {
+                        giveUp(delivery);
+                        logger.error("Queue full; dropped retry of notification {} on channel {}",
+                                delivery.notification.getId(), channel.getName());
+                    }
+                }, delayMs, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // Retry executor already stopped during shutdown
+                giveUp(delivery);
+            }
+        }
+        
+        private void giveUp(Delivery delivery) {
+            count(failed, "failed", 1);
+            for (DeliveryListener listener : deliveryListeners) {
+                try {
+                    listener.failed(channel.getName(), delivery.notification);
+                } catch (RuntimeException e) {
+                    logger.error("Delivery listener failed on channel {}", channel.getName(), e);
+                }
+            }
+            outstanding.decrementAndGet();
+        }
+        
+        private void count(AtomicLong counter, String outcome, long amount) {
+            if (amount <= 0) {
+                return;
+            }
+            counter.addAndGet(amount);
+            meterRegistry.counter("notification.deliveries", "channel", channel.getName(), "outcome", outcome)
+                    .increment(amount);
+        }
+    }
+    
+    /**
+     * Told what a channel delivered, once per processed batch, and each notification it gave up on.
+     * Called on the channel's worker and retry threads.
+     */
+    public interface DeliveryListener {
+        
+        void delivered(String channel, List<Notification> notifications);
+        
+        void failed(String channel, Notification notification);
+    }
+    
+    private static class Delivery {
+        final Notification notification;
+        int attempts;
+        
+        Delivery(Notification notification) {
+            this.notification = notification;
+        }
+    }
+    
+    /**
+     * Channels a notification was queued on, and channels whose queue was full.
+     */
+    public static class DispatchResult {
+        
+        private final List<String> queued = new ArrayList<>();
+        private final List<String> rejected = new ArrayList<>();
+        
+        public List<String> getQueued() {
+            return queued;
+        }
+        
+        public List<String> getRejected() {
+            return rejected;
+        }
+    }
+}
@@ -1,136 +1,359 @@
 package com.medicinerefill.smartmedicine.service;
 
+import com.medicinerefill.smartmedicine.config.NotificationProperties;
 import com.medicinerefill.smartmedicine.model.Medicine;
 import com.medicinerefill.smartmedicine.model.User;
 import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class NotificationSchedulerService {
     
     private static final Logger logger = LoggerFactory.getLogger(NotificationSchedulerService.class);
     
+    public static final String DAILY_REMINDER_JOB = "daily-refill-reminders";
+    public static final String WEEKLY_SUMMARY_JOB = "weekly-medicine-summary";
+    
+    // Run every day at 9:00 AM
+    public static final String DAILY_REMINDER_CRON = "0 0 9 * * *";
+    // The weekly summary goes out with the Monday daily run (DigestPlanner.SUMMARY_DAY)
+    public static final String WEEKLY_SUMMARY_CRON = "0 0 9 * * MON";
+    
     @Autowired
     private MedicineRepository medicineRepository;
     
     @Autowired
     private EmailService emailService;
     
-    // Run every day at 9:00 AM
-    @Scheduled(cron = "0 0 9 * * *")
+    @Autowired
+    private NotificationPipeline notificationPipeline;
+    
+    @Autowired
+    private MedicineCatalogService medicineCatalogService;
+    
+    @Autowired
+    private NotificationProperties notificationProperties;
+    
+    @Autowired
+    private MedicineSnapshot medicineSnapshot;
+    
+    @Autowired
+    private ReminderStateRecorder reminderStateRecorder;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Runs log one progress line per this many users; per-user lines are DEBUG
+    @Value("${app.jobs.progress-log-interval:1000}")
+    private int progressLogInterval;
+    
+    private static final int CANDIDATE_LOAD_CHUNK = 1000;
+    
+    private final Map<String, ReminderRunReport> lastRuns = new ConcurrentHashMap<>();
+    private final Lock digestLock = new ReentrantLock();
+    
     public void sendDailyRefillReminders() {
+        sendDailyRefillReminders(new ReminderJob(UUID.randomUUID().toString(), DAILY_REMINDER_JOB));
+    }
+    
+    /**
+     * Runs the daily reminder job, reporting progress to {@code job} and stopping between users
+     * once it is cancelled. On the summary day it also covers the weekly summary.
+     */
+    public void sendDailyRefillReminders(ReminderJob job) {
         logger.info("Starting daily refill reminder check...");
+        sendDigests(job, DAILY_REMINDER_JOB, LocalDate.now().getDayOfWeek() == DigestPlanner.SUMMARY_DAY);
+    }
+    
+    public void sendWeeklyMedicineSummary() {
+        sendWeeklyMedicineSummary(new ReminderJob(UUID.randomUUID().toString(), WEEKLY_SUMMARY_JOB));
+    }
+    
+    public void sendWeeklyMedicineSummary(ReminderJob job) {
+        logger.info("Starting weekly medicine summary...");
+        sendDigests(job, WEEKLY_SUMMARY_JOB, true);
+    }
+    
+    /**
+     * Queues one digest per user from a single candidate query, merging the weekly summary into the
+     * reminder when {@code includeSummary} is set. Users who already got a digest today, or whose digest
+     * is still queued on a channel, are skipped, so overlapping runs never send twice. Reminder state
+     * is recorded by ReminderStateRecorder once a channel has delivered the digest.
+     */
+    private void sendDigests(ReminderJob job, String jobName, boolean includeSummary) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LocalDateTime startedAt = LocalDateTime.now();
+        int medicinesScanned = 0;
+        int usersScanned = 0;
+        int digestsQueued = 0;
+        int failures = 0;
+        int queueFull = 0;
+        boolean completed = false;
+        LocalDate today = LocalDate.now();
         
+        // Runs of both job types share the sent-today marks, so they take turns
+        digestLock.lock();
         try {
-            LocalDate today = LocalDate.now();
-            LocalDate nextWeek = today.plusDays(7);
-            
-            // Find medicines needing refill reminders (refill date is today or within next 7 days)
-            List<Medicine> medicinesNeedingReminder = medicineRepository
-                    .findMedicinesNeedingRefillReminderBetween(today, nextWeek);
+            List<Medicine> candidates = findCandidates(today, includeSummary);
+            medicinesScanned = candidates.size();
             
-            if (medicinesNeedingReminder.isEmpty()) {
-                logger.info("No medicines need refill reminders today.");
-                return;
+            DigestPlanner.Plan plan = DigestPlanner.plan(candidates, today, includeSummary,
+                    reminderStateRecorder.getPendingUsers());
+            usersScanned = plan.getDigests().size();
+            job.setUsersTotal(usersScanned);
+            if (plan.getSkippedAlreadySent() > 0) {
+                logger.info("Skipped {} medicine(s) of users who already got or are getting today's digest",
+                        plan.getSkippedAlreadySent());
             }
             
-            // Group medicines by user
-            Map<User, List<Medicine>> medicinesByUser = medicinesNeedingReminder.stream()
-                    .collect(Collectors.groupingBy(Medicine::getUser));
-            
-            int totalEmailsSent = 0;
-            
-            for (Map.Entry<User, List<Medicine>> entry : medicinesByUser.entrySet()) {
-                User user = entry.getKey();
-                List<Medicine> userMedicines = entry.getValue();
+            for (DigestPlanner.UserDigest digest : plan.getDigests()) {
+                if (job.isCancelRequested()) {
+                    logger.info("{} run cancelled after {} users", jobName, job.getUsersProcessed());
+                    break;
+                }
+                User user = digest.getUser();
+                ReminderStateRecorder.Marks marks = reminderStateRecorder.track(job, digest, today);
+                int queuedOn = 0;
                 
                 try {
-                    if (userMedicines.size() == 1) {
-                        // Send single medicine reminder
-                        emailService.sendRefillReminder(user, userMedicines.get(0));
-                    } else {
-                        // Send multiple medicines reminder
-                        emailService.sendMultipleRefillReminders(user, userMedicines);
+                    Notification notification = renderDigest(user, digest);
+                    notification.setReminderMarks(marks);
+                    NotificationPipeline.DispatchResult result = notificationPipeline.dispatch(user, notification);
+                    queuedOn = result.getQueued().size();
+                    if (!result.getQueued().isEmpty()) {
+                        // Delivery and retries happen on the channel workers, which count deliveries
+                        digestsQueued++;
+                        job.recordDigestQueued();
+                        logger.debug("Queued digest for user: {} on {} for {} medicine(s)",
+                                  user.getEmail(), result.getQueued(), digest.getMedicineCount());
+                    } else if (!result.getRejected().isEmpty()) {
+                        failures++;
+                        queueFull++;
+                        job.recordFailure();
+                        logger.debug("Notification queue full on {} for user: {}", result.getRejected(), user.getEmail());
                     }
-                    
-                    totalEmailsSent++;
-                    logger.info("Sent refill reminder to user: {} for {} medicine(s)", 
-                              user.getEmail(), userMedicines.size());
-                    
+                
                 } catch (Exception e) {
-                    logger.error("Failed to send refill reminder to user: {}", user.getEmail(), e);
+                    failures++;
+                    job.recordFailure();
+                    logger.error("Failed to send digest to user: {}", user.getEmail(), e);
+                } finally {
+                    reminderStateRecorder.dispatched(marks, queuedOn);
+                }
+                job.recordUserProcessed();
+                if (job.getUsersProcessed() % progressLogInterval == 0) {
+                    logger.info("{} run progress: {}/{} users, {} digests queued, {} failures",
+                            jobName, job.getUsersProcessed(), usersScanned, digestsQueued, failures);
                 }
             }
-            
-            logger.info("Daily refill reminder check completed. Sent {} emails to {} users.", 
-                       totalEmailsSent, medicinesByUser.size());
-            
+            if (queueFull > 0) {
+                logger.warn("{} run found the notification queue full for {} users", jobName, queueFull);
+            }
+            logger.info("{} run completed. Queued {} digests for {} users, {} failures.", jobName, digestsQueued,
+                    usersScanned, failures);
+            completed = true;
+        
         } catch (Exception e) {
-            logger.error("Error during daily refill reminder check", e);
+            logger.error("Error during {} run", jobName, e);
+        } finally {
+            digestLock.unlock();
+            job.setReport(recordRun(jobName, job, sample, startedAt, medicinesScanned, usersScanned,
+                    digestsQueued, failures, completed));
         }
     }
     
-    // Run every Monday at 10:00 AM for weekly summary
-    @Scheduled(cron = "0 0 10 * * MON")
-    public void sendWeeklyMedicineSummary() {
-        logger.info("Starting weekly medicine summary...");
+    /**
+     * Medicines due within the run's window. The weekly summary lists everything; reminders alone
+     * skip unchanged medicines. Uses the in-memory snapshot when it is loaded, the database otherwise.
+     */
+    private List<Medicine> findCandidates(LocalDate today, boolean includeSummary) {
+        NotificationProperties.Suppression suppression = notificationProperties.getSuppression();
+        LocalDate windowEnd = DigestPlanner.windowEnd(today, includeSummary);
+        List<Integer> milestones = includeSummary || !suppression.isEnabled() || suppression.sortedMilestones().isEmpty()
+                ? null
+                : suppression.sortedMilestones();
         
-        try {
-            LocalDate today = LocalDate.now();
-            
-            // Find medicines that will need refill in the next 14 days
-            List<Medicine> upcomingRefills = medicineRepository
-                    .findMedicinesNeedingRefillReminderBetween(today, today.plusDays(14));
-            
-            if (upcomingRefills.isEmpty()) {
-                logger.info("No medicines need attention in the next 2 weeks.");
-                return;
-            }
-            
-            // Group by user
-            Map<User, List<Medicine>> medicinesByUser = upcomingRefills.stream()
-                    .collect(Collectors.groupingBy(Medicine::getUser));
-            
-            int totalEmailsSent = 0;
-            
-            for (Map.Entry<User, List<Medicine>> entry : medicinesByUser.entrySet()) {
-                User user = entry.getKey();
-                List<Medicine> userMedicines = entry.getValue();
-                
-                try {
-                    sendWeeklySummaryEmail(user, userMedicines);
-                    totalEmailsSent++;
-                    
-                    logger.info("Sent weekly summary to user: {} for {} medicine(s)", 
-                              user.getEmail(), userMedicines.size());
-                    
-                } catch (Exception e) {
-                    logger.error("Failed to send weekly summary to user: {}", user.getEmail(), e);
+        if (!medicineSnapshot.isReady()) {
+            return milestones == null
+                    ? medicineRepository.findMedicinesNeedingRefillReminderBetween(today, windowEnd)
+                    : medicineRepository.findUnsuppressedReminderCandidates(today, windowEnd, milestones,
+                            suppression.isOnStatusChange());
+        }
+        
+        long[] ids = medicineSnapshot.findReminderCandidateIds(today, windowEnd, milestones,
+                suppression.isOnStatusChange());
+        List<Medicine> candidates = new ArrayList<>(ids.length);
+        for (int from = 0; from < ids.length; from += CANDIDATE_LOAD_CHUNK) {
+            List<Long> chunk = Arrays.stream(ids, from, Math.min(ids.length, from + CANDIDATE_LOAD_CHUNK))
+                    .boxed()
+                    .toList();
+            for (Medicine medicine : medicineRepository.findWithUserByIdIn(chunk)) {
+                // The snapshot can trail writes from other instances; trust the loaded row
+                if (medicine.getRefillDate() != null && !medicine.getRefillDate().isBefore(today)
+                        && !medicine.getRefillDate().isAfter(windowEnd)
+                        && Boolean.TRUE.equals(medicine.getNotificationsEnabled())
+                        && Boolean.TRUE.equals(medicine.getUser().getEmailNotificationsEnabled())) {
+                    candidates.add(medicine);
                 }
             }
-            
-            logger.info("Weekly medicine summary completed. Sent {} emails.", totalEmailsSent);
-            
-        } catch (Exception e) {
-            logger.error("Error during weekly medicine summary", e);
         }
+        return candidates;
     }
     
-    private void sendWeeklySummaryEmail(User user, List<Medicine> medicines) {
-        String subject = "Weekly Medicine Summary - " + medicines.size() + " medicine(s) need attention";
+    private ReminderRunReport recordRun(String job, ReminderJob run, Timer.Sample sample, LocalDateTime startedAt,
+                                        int medicinesScanned, int usersScanned, int digestsQueued, int failures,
+                                        boolean completed) {
+        sample.stop(Timer.builder("reminder.job.duration")
+                .description("Duration of a reminder job run")
+                .tag("job", job)
+                .tag("outcome", completed ? "completed" : "error")
+                .register(meterRegistry));
+        meterRegistry.counter("reminder.job.medicines.scanned", "job", job).increment(medicinesScanned);
+        meterRegistry.counter("reminder.job.users.scanned", "job", job).increment(usersScanned);
+        meterRegistry.counter("reminder.job.digests.queued", "job", job).increment(digestsQueued);
+        meterRegistry.counter("reminder.job.failures", "job", job).increment(failures);
         
+        ReminderRunReport report = new ReminderRunReport(job, startedAt, LocalDateTime.now(), medicinesScanned,
+                usersScanned, digestsQueued, run::getDigestsDelivered, failures, completed);
+        lastRuns.put(job, report);
+        return report;
+    }
+    
+    public ReminderRunReport getLastRun(String job) {
+        return lastRuns.get(job);
+    }
+    
+    public LocalDateTime getNextRun(String job) {
+        String cron = WEEKLY_SUMMARY_JOB.equals(job) ? WEEKLY_SUMMARY_CRON : DAILY_REMINDER_CRON;
+        return CronExpression.parse(cron).next(LocalDateTime.now());
+    }
+    
+    Notification renderRefillReminder(User user, List<Medicine> medicines) {
+        if (medicines.size() == 1) {
+            Medicine medicine = medicines.get(0);
+            return new Notification(Notification.TYPE_REFILL_REMINDER, user,
+                    "Medicine Refill Reminder - " + medicine.getMedicineName(),
+                    emailService.buildRefillReminderHtml(user, medicine),
+                    buildText("Refill reminder", medicines), buildData(medicines));
+        }
+        return new Notification(Notification.TYPE_REFILL_REMINDER, user,
+                "Multiple Medicine Refill Reminders",
+                emailService.buildMultipleRefillReminderHtml(user, medicines),
+                buildText("Refill reminder", medicines), buildData(medicines));
+    }
+    
+    /**
+     * Renders a digest as the plain refill reminder or weekly summary when only one part has
+     * content, and as one combined message otherwise.
+     */
+    Notification renderDigest(User user, DigestPlanner.UserDigest digest) {
+        if (digest.getUpcoming().isEmpty()) {
+            return renderRefillReminder(user, digest.getDueSoon());
+        }
+        if (digest.getDueSoon().isEmpty()) {
+            return renderWeeklySummary(user, digest.getUpcoming());
+        }
+        List<Medicine> all = new ArrayList<>(digest.getDueSoon());
+        all.addAll(digest.getUpcoming());
+        return new Notification(Notification.TYPE_DIGEST, user,
+                "Medicine Digest - " + digest.getDueSoon().size() + " refill(s) due this week",
+                buildDigestHtml(user, digest),
+                buildText("Refill due", digest.getDueSoon()) + ". " + buildText("Coming up", digest.getUpcoming()),
+                buildData(all));
+    }
+    
+    Notification renderWeeklySummary(User user, List<Medicine> medicines) {
+        return new Notification(Notification.TYPE_WEEKLY_SUMMARY, user,
+                "Weekly Medicine Summary - " + medicines.size() + " medicine(s) need attention",
+                buildWeeklySummaryHtml(user, medicines),
+                buildText("Weekly summary", medicines), buildData(medicines));
+    }
+    
+    // Short plain-text form for channels without HTML, e.g. SMS gateways behind the webhook
+    private String buildText(String title, List<Medicine> medicines) {
+        StringBuilder text = new StringBuilder(title).append(": ");
+        for (int i = 0; i < medicines.size(); i++) {
+            Medicine medicine = medicines.get(i);
+            if (i > 0) {
+                text.append("; ");
+            }
+            text.append(medicine.getMedicineName()).append(" - ").append(medicine.getDaysLeft()).append(" day(s) left");
+            if (medicine.getRefillDate() != null) {
+                text.append(", refill by ").append(medicine.getRefillDate());
+            }
+        }
+        return text.toString();
+    }
+    
+    private Map<String, Object> buildData(List<Medicine> medicines) {
+        List<Map<String, Object>> items = new ArrayList<>(medicines.size());
+        for (Medicine medicine : medicines) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("medicineId", medicine.getId());
+            item.put("medicineName", medicine.getMedicineName());
+            item.put("remainingDoses", medicine.getRemainingDoses());
+            item.put("daysLeft", medicine.getDaysLeft());
+            item.put("refillDate", medicine.getRefillDate());
+            item.put("status", medicine.getStatus());
+            item.put("refillUrl", medicineCatalogService.getRefillUrl(medicine));
+            items.add(item);
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("medicines", items);
+        return data;
+    }
+    
+    private String buildWeeklySummaryHtml(User user, List<Medicine> medicines) {
         StringBuilder html = new StringBuilder();
+        appendSummaryHeader(html, user, "Weekly Medicine Summary");
+        html.append("<p>Here's your weekly medicine summary for the next 2 weeks:</p>");
+        
+        for (Medicine medicine : medicines) {
+            appendMedicineInfo(html, medicine);
+        }
+        
+        appendSummaryFooter(html);
+        return html.toString();
+    }
+    
+    private String buildDigestHtml(User user, DigestPlanner.UserDigest digest) {
+        StringBuilder html = new StringBuilder();
+        appendSummaryHeader(html, user, "Your Medicine Digest");
+        html.append("<h2>Refill within ").append(DigestPlanner.REMINDER_DAYS).append(" days</h2>");
+        for (Medicine medicine : digest.getDueSoon()) {
+            appendMedicineInfo(html, medicine);
+        }
+        html.append("<h2>Coming up in the next 2 weeks</h2>");
+        for (Medicine medicine : digest.getUpcoming()) {
+            appendMedicineInfo(html, medicine);
+        }
+        
+        appendSummaryFooter(html);
+        return html.toString();
+    }
+    
+    private void appendSummaryHeader(StringBuilder html, User user, String title) {
         html.append("<!DOCTYPE html>")
-            .append("<html><head><meta charset='UTF-8'><title>Weekly Medicine Summary</title>")
+            .append("<html><head><meta charset='UTF-8'><title>").append(title).append("</title>")
             .append("<style>")
             .append("body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }")
             .append(".container { max-width: 600px; margin: 0 auto; padding: 20px; }")
@@ -144,43 +367,36 @@ public class NotificationSchedulerService {
             .append("</style></head><body>")
             .append("<div class='container'>")
             .append("<div class='header'>")
-            .append("<h1>Weekly Medicine Summary</h1>")
+            .append("<h1>").append(title).append("</h1>")
             .append("</div>")
             .append("<div class='content'>")
-            .append("<p>Dear ").append(user.getName()).append(",</p>")
-            .append("<p>Here's your weekly medicine summary for the next 2 weeks:</p>");
-        
-        for (Medicine medicine : medicines) {
-            html.append("<div class='medicine-info'>")
-                .append("<h3>").append(medicine.getMedicineName()).append("</h3>")
-                .append("<p><strong>Remaining Doses:</strong> ").append(medicine.getRemainingDoses()).append(" | ")
-                .append("<strong>Days Left:</strong> ").append(medicine.getDaysLeft()).append("</p>")
-                .append("<p><strong>Status:</strong> <span class='status ")
-                .append(medicine.getStatus().toString().toLowerCase().replace("_", "-")).append("'>")
-                .append(medicine.getStatus().toString().replace("_", " ")).append("</span></p>")
-                .append("<p><strong>Refill Date:</strong> ").append(medicine.getRefillDate()).append("</p>")
-                .append("</div>");
-        }
-        
+            .append("<p>Dear ").append(user.getName()).append(",</p>");
+    }
+    
+    private void appendMedicineInfo(StringBuilder html, Medicine medicine) {
+        html.append("<div class='medicine-info'>")
+            .append("<h3>").append(medicine.getMedicineName()).append("</h3>")
+            .append("<p><strong>Remaining Doses:</strong> ").append(medicine.getRemainingDoses()).append(" | ")
+            .append("<strong>Days Left:</strong> ").append(medicine.getDaysLeft()).append("</p>")
+            .append("<p><strong>Status:</strong> <span class='status ")
+            .append(medicine.getStatus().toString().toLowerCase().replace("_", "-")).append("'>")
+            .append(medicine.getStatus().toString().replace("_", " ")).append("</span></p>")
+            .append("<p><strong>Refill Date:</strong> ").append(medicine.getRefillDate()).append("</p>")
+            .append("</div>");
+    }
+    
+    private void appendSummaryFooter(StringBuilder html) {
         html.append("<p>Please plan ahead to ensure you don't run out of your medications!</p>")
             .append("<p>You can manage your medicines by logging into your Smart Medicine Refill System dashboard.</p>")
             .append("<p>Best regards,<br>Smart Medicine Refill System</p>")
             .append("</div>")
             .append("</div>")
             .append("</body></html>");
-        
-        emailService.sendHtmlEmail(user.getEmail(), subject, html.toString());
-    }
-    
-    // Manual trigger for testing - can be called via API
-    public void triggerManualReminderCheck() {
-        logger.info("Manual reminder check triggered");
-        sendDailyRefillReminders();
     }
     
-    public void sendImmediateReminder(User user, Medicine medicine) {
+    public NotificationPipeline.DispatchResult sendImmediateReminder(User user, Medicine medicine) {
         logger.info("Sending immediate reminder for medicine: {} to user: {}", 
                    medicine.getMedicineName(), user.getEmail());
-        emailService.sendRefillReminder(user, medicine);
+        return notificationPipeline.dispatch(user, renderRefillReminder(user, List.of(medicine)));
     }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.medicinerefill.smartmedicine.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Retries read-modify-write operations on versioned entities (Medicine) that lose the version check
+ * to a write committed in between. Used by the direct medicine writes and the write-behind dose flush.
+ */
+@Component
+public class OptimisticRetry {
+    
+    private static final int ATTEMPTS = 5;
+    private static final long BACKOFF_MS = 10;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * Runs {@code write}, which reads entities and saves them, again on a version conflict. Each
+     * attempt must re-read what it changes; retries wait a random, growing delay so two writers of
+     * one row stop colliding. The last conflict is rethrown.
+     */
+    public <T> T run(Supplier<T> write) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt == ATTEMPTS) {
+                    throw e;
+                }
+                meterRegistry.counter("medicine.write.conflicts").increment();
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(BACKOFF_MS << attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+}
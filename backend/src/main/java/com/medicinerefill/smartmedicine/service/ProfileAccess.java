@@ -0,0 +1,70 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.Profile;
+import com.medicinerefill.smartmedicine.model.User;
+import com.medicinerefill.smartmedicine.repository.ProfileRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The current account's profiles, loaded with one query on first use and kept for the rest of the
+ * request. Ownership checks compare a medicine's profile id against them; the id comes from the
+ * lazy profile proxy, so checking any number of medicines loads neither profiles nor users.
+ */
+@Component
+@RequestScope
+public class ProfileAccess {
+    
+    @Autowired
+    private ProfileRepository profileRepository;
+    
+    private Map<Long, Profile> profiles;
+    
+    public List<Profile> profiles() {
+        return new ArrayList<>(load().values());
+    }
+    
+    /**
+     * The profile with {@code profileId} if it belongs to the current account, else null.
+     */
+    public Profile find(Long profileId) {
+        return profileId != null ? load().get(profileId) : null;
+    }
+    
+    public Profile defaultProfile() {
+        return load().values().stream().filter(Profile::isDefaultProfile).findFirst().orElse(null);
+    }
+    
+    public boolean canAccess(Medicine medicine) {
+        return medicine.getProfile() != null && load().containsKey(medicine.getProfile().getId());
+    }
+    
+    /**
+     * Drops the cached profiles after they were changed in this request.
+     */
+    public void invalidate() {
+        profiles = null;
+    }
+    
+    private Map<Long, Profile> load() {
+        if (profiles == null) {
+            profiles = new LinkedHashMap<>();
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof User user) {
+                for (Profile profile : profileRepository.findByUserIdOrderByIdAsc(user.getId())) {
+                    profiles.put(profile.getId(), profile);
+                }
+            }
+        }
+        return profiles;
+    }
+}
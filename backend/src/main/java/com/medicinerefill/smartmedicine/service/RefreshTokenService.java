@@ -0,0 +1,190 @@
+package com.medicinerefill.smartmedicine.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Rotating refresh tokens in the refresh_tokens table. A sign-in starts a family; every refresh
+ * uses up the presented token and issues the next one in the family. A token presented after it
+ * was used means it was copied, so the whole family is revoked together with its last access token.
+ * Tokens are 256 random bits, stored only as their SHA-256.
+ */
+@Service
+public class RefreshTokenService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+    
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+    
+    @Value("${jwt.refresh-expiration:30d}")
+    private Duration refreshExpiration;
+    
+    /**
+     * Starts a new family for {@code userId}, paired with the access token {@code accessJti}.
+     */
+    public String issue(Long userId, String accessJti, Instant accessExpiresAt) {
+        return insert(userId, UUID.randomUUID().toString(), accessJti, accessExpiresAt);
+    }
+    
+    /**
+     * Uses up {@code token} and issues the next token of its family, paired with the new access
+     * token {@code accessJti}. Returns null if the token is unknown, expired, revoked or already
+     * used; the last case also revokes the family.
+     */
+    @Transactional
+    public Rotation rotate(String token, String accessJti, Instant accessExpiresAt) {
+        List<StoredToken> rows = jdbcTemplate.query("SELECT id, user_id, family_id, expires_at, used_at, revoked_at"
+                        + " FROM refresh_tokens WHERE token_hash = ?",
+                (rs, rowNum) -> new StoredToken(rs.getLong(1), rs.getLong(2), rs.getString(3),
+                        rs.getTimestamp(4).toInstant(), rs.getTimestamp(5) != null, rs.getTimestamp(6) != null),
+                sha256(token));
+        if (rows.isEmpty()) {
+            return null;
+        }
+        StoredToken stored = rows.get(0);
+        Instant now = Instant.now();
+        if (stored.revoked || !stored.expiresAt.isAfter(now)) {
+            return null;
+        }
+        // The conditional update also settles two concurrent refreshes with the same token
+        if (stored.used || jdbcTemplate.update("UPDATE refresh_tokens SET used_at = ? WHERE id = ? AND used_at IS NULL",
+                Timestamp.from(now), stored.id) == 0) {
+            logger.warn("Refresh token reused for user {}; revoking its family", stored.userId);
+            revokeFamily(stored.familyId);
+            return null;
+        }
+        return new Rotation(stored.userId, insert(stored.userId, stored.familyId, accessJti, accessExpiresAt));
+    }
+    
+    /**
+     * Revokes the family of {@code token}, for logout. Unknown tokens are ignored.
+     */
+    @Transactional
+    public void revoke(String token) {
+        List<String> families = jdbcTemplate.queryForList("SELECT family_id FROM refresh_tokens WHERE token_hash = ?",
+                String.class, sha256(token));
+        if (!families.isEmpty()) {
+            revokeFamily(families.get(0));
+        }
+    }
+    
+    /**
+     * Revokes every family of {@code userId}, signing out all devices.
+     */
+    @Transactional
+    public void revokeAll(Long userId) {
+        List<String> families = jdbcTemplate.queryForList("SELECT DISTINCT family_id FROM refresh_tokens"
+                + " WHERE user_id = ? AND revoked_at IS NULL", String.class, userId);
+        for (String familyId : families) {
+            revokeFamily(familyId);
+        }
+    }
+    
+    @Scheduled(cron = "${app.auth.refresh-purge-cron:0 15 4 * * *}")
+    public void purgeExpired() {
+        int deleted = jdbcTemplate.update("DELETE FROM refresh_tokens WHERE expires_at < ?", Timestamp.from(Instant.now()));
+        logger.info("Purged {} expired refresh tokens", deleted);
+    }
+    
+    private void revokeFamily(String familyId) {
+        Instant now = Instant.now();
+        // Access tokens issued from the family are still live for up to their lifetime
+        Map<String, Instant> accessTokens = new HashMap<>();
+        jdbcTemplate.query("SELECT access_jti, access_expires_at FROM refresh_tokens WHERE family_id = ?"
+                        + " AND access_expires_at > ?",
+                rs -> {
+                    accessTokens.put(rs.getString(1), rs.getTimestamp(2).toInstant());
+                }, familyId, Timestamp.from(now));
+        accessTokens.forEach(tokenRevocationList::revoke);
+        jdbcTemplate.update("UPDATE refresh_tokens SET revoked_at = ? WHERE family_id = ? AND revoked_at IS NULL",
+                Timestamp.from(now), familyId);
+    }
+    
+    private String insert(Long userId, String familyId, String accessJti, Instant accessExpiresAt) {
+        byte[] random = new byte[32];
+        RANDOM.nextBytes(random);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        Instant now = Instant.now();
+        jdbcTemplate.update("INSERT INTO refresh_tokens (user_id, token_hash, family_id, access_jti, access_expires_at,"
+                        + " created_at, expires_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                userId, sha256(token), familyId, accessJti, Timestamp.from(accessExpiresAt), Timestamp.from(now),
+                Timestamp.from(now.plus(refreshExpiration)));
+        return token;
+    }
+    
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static class StoredToken {
+        
+        private final long id;
+        private final long userId;
+        private final String familyId;
+        private final Instant expiresAt;
+        private final boolean used;
+        private final boolean revoked;
+        
+        StoredToken(long id, long userId, String familyId, Instant expiresAt, boolean used, boolean revoked) {
+            this.id = id;
+            this.userId = userId;
+            this.familyId = familyId;
+            this.expiresAt = expiresAt;
+            this.used = used;
+            this.revoked = revoked;
+        }
+    }
+    
+    /**
+     * Outcome of a successful refresh: whose token it was, and its replacement.
+     */
+    public static class Rotation {
+        
+        private final Long userId;
+        private final String refreshToken;
+        
+        Rotation(Long userId, String refreshToken) {
+            this.userId = userId;
+            this.refreshToken = refreshToken;
+        }
+        
+        public Long getUserId() {
+            return userId;
+        }
+        
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.medicinerefill.smartmedicine.service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One run of a reminder job with live progress, polled through the notification jobs endpoints.
+ */
+public class ReminderJob {
+    
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+    
+    public enum Trigger { MANUAL, SCHEDULED, DIRECT }
+    
+    private final String id;
+    private final String job;
+    private final Trigger trigger;
+    private final LocalDateTime submittedAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile boolean cancelRequested;
+    private volatile int usersTotal;
+    private final AtomicInteger usersProcessed = new AtomicInteger();
+    private final AtomicInteger digestsQueued = new AtomicInteger();
+    // Keeps growing after the run finishes, as the channel workers deliver its digests
+    private final AtomicInteger digestsDelivered = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile ReminderRunReport report;
+    private volatile String error;
+    
+    public ReminderJob(String id, String job) {
+        this(id, job, Trigger.DIRECT);
+    }
+    
+    public ReminderJob(String id, String job, Trigger trigger) {
+        this.id = id;
+        this.job = job;
+        this.trigger = trigger;
+        this.submittedAt = LocalDateTime.now();
+    }
+    
+    void markRunning() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+    
+    void markFinished() {
+        finishedAt = LocalDateTime.now();
+        if (cancelRequested) {
+            status = Status.CANCELLED;
+        } else {
+            status = report != null && report.isCompleted() ? Status.COMPLETED : Status.FAILED;
+        }
+    }
+    
+    void markFailed(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+    
+    void markCancelled() {
+        cancelRequested = true;
+        finishedAt = LocalDateTime.now();
+        status = Status.CANCELLED;
+    }
+    
+    void requestCancel() {
+        cancelRequested = true;
+    }
+    
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+    
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+    
+    // Progress, updated by the run
+    void setUsersTotal(int usersTotal) {
+        this.usersTotal = usersTotal;
+    }
+    
+    void recordUserProcessed() {
+        usersProcessed.incrementAndGet();
+    }
+    
+    void recordDigestQueued() {
+        digestsQueued.incrementAndGet();
+    }
+    
+    void recordDigestDelivered() {
+        digestsDelivered.incrementAndGet();
+    }
+    
+    void recordFailure() {
+        failures.incrementAndGet();
+    }
+    
+    void setReport(ReminderRunReport report) {
+        this.report = report;
+    }
+    
+    // Getters
+    public String getId() {
+        return id;
+    }
+    
+    public String getJob() {
+        return job;
+    }
+    
+    public Trigger getTrigger() {
+        return trigger;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public int getUsersTotal() {
+        return usersTotal;
+    }
+    
+    public int getUsersProcessed() {
+        return usersProcessed.get();
+    }
+    
+    public int getDigestsQueued() {
+        return digestsQueued.get();
+    }
+    
+    public int getDigestsDelivered() {
+        return digestsDelivered.get();
+    }
+    
+    public int getFailures() {
+        return failures.get();
+    }
+    
+    public ReminderRunReport getReport() {
+        return report;
+    }
+    
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,182 @@
+package com.medicinerefill.smartmedicine.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs reminder jobs on a dedicated executor, both on their cron schedule and on demand. At most
+ * one run per job type is active on this node; a submit while one is queued or running returns
+ * that run. Finished runs are kept in a bounded history for polling.
+ */
+@Service
+public class ReminderJobService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReminderJobService.class);
+    
+    public static final List<String> JOB_TYPES = List.of(
+            NotificationSchedulerService.DAILY_REMINDER_JOB, NotificationSchedulerService.WEEKLY_SUMMARY_JOB);
+    
+    @Autowired
+    private NotificationSchedulerService notificationSchedulerService;
+    
+    @Value("${app.jobs.history-size:100}")
+    private int historySize;
+    
+    // One thread per job type; the runs themselves take turns on the scheduler's digest lock
+    private final ExecutorService executor = Executors.newFixedThreadPool(JOB_TYPES.size(),
+            new CustomizableThreadFactory("reminder-job-"));
+    private final Map<String, ReminderJob> active = new HashMap<>();
+    private final LinkedHashMap<String, ReminderJob> history = new LinkedHashMap<>();
+    
+    @PreDestroy
+    void stop() {
+        synchronized (this) {
+            active.values().forEach(ReminderJob::requestCancel);
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Scheduled(cron = NotificationSchedulerService.DAILY_REMINDER_CRON)
+    public void scheduleDailyRefillReminders() {
+        submit(NotificationSchedulerService.DAILY_REMINDER_JOB, ReminderJob.Trigger.SCHEDULED);
+    }
+    
+    /**
+     * Queues a run of {@code jobType}, or returns the run of that type already queued or running.
+     */
+    public synchronized Submission submit(String jobType, ReminderJob.Trigger trigger) {
+        if (!JOB_TYPES.contains(jobType)) {
+            throw new IllegalArgumentException("Unknown job type: " + jobType);
+        }
+        ReminderJob running = active.get(jobType);
+        if (running != null) {
+            logger.info("{} run {} still in progress, not starting another", jobType, running.getId());
+            return new Submission(running, false);
+        }
+        
+        ReminderJob job = new ReminderJob(UUID.randomUUID().toString(), jobType, trigger);
+        active.put(jobType, job);
+        history.put(job.getId(), job);
+        trimHistory();
+        
+        logger.info("Queued {} run {} ({})", jobType, job.getId(), trigger);
+        executor.submit(() -> run(job));
+        return new Submission(job, true);
+    }
+    
+    /**
+     * Requests cancellation. A queued run is cancelled at once; a running one stops before the
+     * next user. Returns the job, or null if it is unknown.
+     */
+    public synchronized ReminderJob cancel(String jobId) {
+        ReminderJob job = history.get(jobId);
+        if (job == null || job.isFinished()) {
+            return job;
+        }
+        if (job.getStatus() == ReminderJob.Status.QUEUED) {
+            job.markCancelled();
+            active.remove(job.getJob(), job);
+        } else {
+            job.requestCancel();
+        }
+        logger.info("Cancellation requested for {} run {}", job.getJob(), jobId);
+        return job;
+    }
+    
+    public synchronized ReminderJob getJob(String jobId) {
+        return history.get(jobId);
+    }
+    
+    /**
+     * Runs in the history, newest first.
+     */
+    public synchronized List<ReminderJob> getJobs() {
+        List<ReminderJob> jobs = new ArrayList<>(history.values());
+        Collections.reverse(jobs);
+        return jobs;
+    }
+    
+    public synchronized ReminderJob getActiveJob(String jobType) {
+        return active.get(jobType);
+    }
+    
+    private void run(ReminderJob job) {
+        synchronized (this) {
+            if (job.isFinished()) {
+                // Cancelled while queued
+                return;
+            }
+            job.markRunning();
+        }
+        try {
+            if (NotificationSchedulerService.WEEKLY_SUMMARY_JOB.equals(job.getJob())) {
+                notificationSchedulerService.sendWeeklyMedicineSummary(job);
+            } else {
+                notificationSchedulerService.sendDailyRefillReminders(job);
+            }
+            job.markFinished();
+        } catch (RuntimeException e) {
+            logger.error("{} run {} failed", job.getJob(), job.getId(), e);
+            job.markFailed(e.getMessage());
+        } finally {
+            synchronized (this) {
+                active.remove(job.getJob(), job);
+            }
+        }
+    }
+    
+    private void trimHistory() {
+        Iterator<ReminderJob> it = history.values().iterator();
+        while (history.size() > historySize && it.hasNext()) {
+            // Never drop a run that is still active
+            if (it.next().isFinished()) {
+                it.remove();
+            }
+        }
+    }
+    
+    /**
+     * Result of {@link #submit}: the run, and whether it was newly queued.
+     */
+    public static class Submission {
+        
+        private final ReminderJob job;
+        private final boolean created;
+        
+        Submission(ReminderJob job, boolean created) {
+            this.job = job;
+            this.created = created;
+        }
+        
+        public ReminderJob getJob() {
+            return job;
+        }
+        
+        public boolean isCreated() {
+            return created;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.medicinerefill.smartmedicine.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+/**
+ * Outcome of one reminder job run, kept for the notification status endpoint.
+ */
+public class ReminderRunReport {
+    
+    private final String job;
+    private final LocalDateTime startedAt;
+    private final LocalDateTime finishedAt;
+    private final int medicinesScanned;
+    private final int usersScanned;
+    private final int digestsQueued;
+    // Live count from the run's job: digests are delivered by the channel workers after the run
+    private final IntSupplier digestsDelivered;
+    private final int failures;
+    private final boolean completed;
+    
+    public ReminderRunReport(String job, LocalDateTime startedAt, LocalDateTime finishedAt,
+                             int medicinesScanned, int usersScanned, int digestsQueued,
+                             IntSupplier digestsDelivered, int failures, boolean completed) {
+        this.job = job;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.medicinesScanned = medicinesScanned;
+        this.usersScanned = usersScanned;
+        this.digestsQueued = digestsQueued;
+        this.digestsDelivered = digestsDelivered;
+        this.failures = failures;
+        this.completed = completed;
+    }
+    
+    // Getters
+    public String getJob() {
+        return job;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public long getDurationMs() {
+        return Duration.between(startedAt, finishedAt).toMillis();
+    }
+    
+    public int getMedicinesScanned() {
+        return medicinesScanned;
+    }
+    
+    public int getUsersScanned() {
+        return usersScanned;
+    }
+    
+    public int getDigestsQueued() {
+        return digestsQueued;
+    }
+    
+    public int getDigestsDelivered() {
+        return digestsDelivered.getAsInt();
+    }
+    
+    public int getFailures() {
+        return failures;
+    }
+    
+    public boolean isCompleted() {
+        return completed;
+    }
+}
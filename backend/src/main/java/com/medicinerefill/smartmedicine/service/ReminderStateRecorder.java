@@ -0,0 +1,173 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.config.NotificationProperties;
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import com.medicinerefill.smartmedicine.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes a digest's reminder state once a channel has delivered it: the user's sent-today mark and
+ * each due medicine's day, bucket and status, batched per delivered channel batch. A digest that no
+ * channel delivers leaves no state behind, so the next run sends it again. While a channel still holds
+ * a user's digest the user is pending, and runs skip them instead of queueing a second one.
+ */
+@Component
+public class ReminderStateRecorder implements NotificationPipeline.DeliveryListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReminderStateRecorder.class);
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private MedicineRepository medicineRepository;
+    
+    @Autowired
+    private MedicineSnapshot medicineSnapshot;
+    
+    @Autowired
+    private NotificationProperties notificationProperties;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Set<Long> pendingUsers = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * The marks for {@code digest}; its user is pending until {@link #dispatched} and every channel
+     * it was queued on have settled it.
+     */
+    Marks track(ReminderJob job, DigestPlanner.UserDigest digest, LocalDate day) {
+        NotificationProperties.Suppression suppression = notificationProperties.getSuppression();
+        Marks marks = new Marks(job, digest.getUser().getId(), day);
+        for (Medicine medicine : digest.getDueSoon()) {
+            Integer daysLeft = medicine.getDaysLeft(day);
+            int bucket = daysLeft != null ? suppression.bucketFor(daysLeft) : -1;
+            if (bucket >= 0) {
+                marks.medicineIds.computeIfAbsent(bucket, b -> new EnumMap<>(Medicine.MedicineStatus.class))
+                        .computeIfAbsent(medicine.getStatus(), st -> new ArrayList<>())
+                        .add(medicine.getId());
+            }
+        }
+        pendingUsers.add(marks.userId);
+        return marks;
+    }
+    
+    /**
+     * Called by the run once it has queued the digest on {@code queued} channels (0 if none took it).
+     */
+    void dispatched(Marks marks, int queued) {
+        if (marks.outstanding.addAndGet(queued - 1) == 0) {
+            settled(marks);
+        }
+    }
+    
+    /** Users whose digest is queued or being retried on some channel. */
+    public Set<Long> getPendingUsers() {
+        return Collections.unmodifiableSet(pendingUsers);
+    }
+    
+    @Override
+    public void delivered(String channel, List<Notification> notifications) {
+        List<Marks> claimed = new ArrayList<>();
+        for (Notification notification : notifications) {
+            Marks marks = notification.getReminderMarks();
+            // The first channel to deliver a digest records it; the others only settle
+            if (marks != null && marks.recorded.compareAndSet(false, true)) {
+                claimed.add(marks);
+            }
+        }
+        try {
+            record(claimed);
+        } catch (Exception e) {
+            logger.error("Failed to record reminder state for {} digest(s) delivered on {}", claimed.size(), channel, e);
+        } finally {
+            for (Notification notification : notifications) {
+                release(notification.getReminderMarks());
+            }
+        }
+    }
+    
+    @Override
+    public void failed(String channel, Notification notification) {
+        release(notification.getReminderMarks());
+    }
+    
+    private void record(List<Marks> claimed) {
+        Map<LocalDate, List<Marks>> byDay = new LinkedHashMap<>();
+        for (Marks marks : claimed) {
+            byDay.computeIfAbsent(marks.day, d -> new ArrayList<>()).add(marks);
+        }
+        byDay.forEach((day, marksOfDay) -> {
+            userRepository.markDigestSent(marksOfDay.stream().map(m -> m.userId).toList(), day);
+            Map<Integer, Map<Medicine.MedicineStatus, List<Long>>> medicineIds = new HashMap<>();
+            for (Marks marks : marksOfDay) {
+                marks.medicineIds.forEach((bucket, byStatus) -> byStatus.forEach((status, ids) ->
+                        medicineIds.computeIfAbsent(bucket, b -> new EnumMap<>(Medicine.MedicineStatus.class))
+                                .computeIfAbsent(status, st -> new ArrayList<>())
+                                .addAll(ids)));
+            }
+            medicineIds.forEach((bucket, byStatus) -> byStatus.forEach((status, ids) -> {
+                medicineRepository.markNotified(ids, day, bucket, status, day.plusDays(bucket));
+                medicineSnapshot.markNotified(ids, day, bucket, status);
+            }));
+        });
+        for (Marks marks : claimed) {
+            marks.job.recordDigestDelivered();
+            meterRegistry.counter("reminder.job.digests.delivered", "job", marks.job.getJob()).increment();
+        }
+    }
+    
+    private void release(Marks marks) {
+        if (marks != null && marks.outstanding.decrementAndGet() == 0) {
+            settled(marks);
+        }
+    }
+    
+    private void settled(Marks marks) {
+        pendingUsers.remove(marks.userId);
+        if (!marks.recorded.get()) {
+            meterRegistry.counter("reminder.job.digests.undelivered", "job", marks.job.getJob()).increment();
+            logger.debug("Digest for user {} was not delivered on any channel; the next run sends it again",
+                    marks.userId);
+        }
+    }
+    
+    /**
+     * One digest's reminder state, attached to its notification.
+     */
+    public static class Marks {
+        
+        private final ReminderJob job;
+        private final Long userId;
+        private final LocalDate day;
+        private final Map<Integer, Map<Medicine.MedicineStatus, List<Long>>> medicineIds = new HashMap<>();
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        // Channels still holding the digest, plus one for the run until it has dispatched it
+        private final AtomicInteger outstanding = new AtomicInteger(1);
+        
+        Marks(ReminderJob job, Long userId, LocalDate day) {
+            this.job = job;
+            this.userId = userId;
+            this.day = day;
+        }
+    }
+}
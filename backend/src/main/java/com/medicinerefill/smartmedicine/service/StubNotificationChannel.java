@@ -0,0 +1,84 @@
+package com.medicinerefill.smartmedicine.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process channel for tests and load runs: keeps the most recent notifications in memory
+ * instead of sending them. Latency and a failure rate can be injected to exercise batching,
+ * backpressure and retries. Disabled unless {@code app.notifications.channels.stub.enabled}.
+ */
+@Component
+public class StubNotificationChannel implements NotificationChannel {
+    
+    public static final String NAME = "stub";
+    
+    private static final int MAX_KEPT = 1000;
+    
+    @Value("${app.notifications.channels.stub.latency:0ms}")
+    private Duration latency;
+    
+    // Probability that a notification fails and is retried
+    @Value("${app.notifications.channels.stub.failure-rate:0}")
+    private double failureRate;
+    
+    private final Deque<Notification> delivered = new ArrayDeque<>();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public boolean canDeliver(Notification notification) {
+        return true;
+    }
+    
+    @Override
+    public List<Notification> deliver(List<Notification> batch) throws InterruptedException {
+        if (!latency.isZero()) {
+            Thread.sleep(latency.toMillis());
+        }
+        batchCount.incrementAndGet();
+        List<Notification> failed = new ArrayList<>();
+        for (Notification notification : batch) {
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failed.add(notification);
+                continue;
+            }
+            deliveredCount.incrementAndGet();
+            synchronized (delivered) {
+                delivered.addLast(notification);
+                if (delivered.size() > MAX_KEPT) {
+                    delivered.removeFirst();
+                }
+            }
+        }
+        return failed;
+    }
+    
+    /** The most recently delivered notifications, oldest first. */
+    public List<Notification> getDelivered() {
+        synchronized (delivered) {
+            return new ArrayList<>(delivered);
+        }
+    }
+    
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+    
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+}
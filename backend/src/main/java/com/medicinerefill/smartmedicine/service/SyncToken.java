@@ -0,0 +1,52 @@
+package com.medicinerefill.smartmedicine.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Opaque delta-sync position handed to clients: the last change sequence value they have seen and
+ * when the token was issued, so tokens older than the tombstone retention can be refused.
+ */
+public final class SyncToken {
+    
+    private static final String VERSION = "1";
+    
+    private final long seq;
+    private final Instant issuedAt;
+    
+    public SyncToken(long seq, Instant issuedAt) {
+        this.seq = seq;
+        this.issuedAt = issuedAt;
+    }
+    
+    /**
+     * @throws IllegalArgumentException if {@code token} was not issued by {@link #encode()}
+     */
+    public static SyncToken parse(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid sync token");
+            }
+            return new SyncToken(Long.parseLong(parts[1]), Instant.ofEpochMilli(Long.parseLong(parts[2])));
+        } catch (IllegalArgumentException e) {
+            // Also covers malformed Base64 and NumberFormatException
+            throw new IllegalArgumentException("Invalid sync token", e);
+        }
+    }
+    
+    public String encode() {
+        String raw = VERSION + ":" + seq + ":" + issuedAt.toEpochMilli();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public boolean isOlderThan(Duration age, Instant now) {
+        return issuedAt.isBefore(now.minus(age));
+    }
+    
+    public long getSeq() {
+        return seq;
+    }
+}
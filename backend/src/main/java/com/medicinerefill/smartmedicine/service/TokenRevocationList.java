@@ -0,0 +1,156 @@
+package com.medicinerefill.smartmedicine.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Access tokens revoked before they expire (logout, refresh token reuse), by jti. Lookups go
+ * through an in-memory Bloom filter of the revoked_tokens table, so a token that was never revoked
+ * costs no database access; only filter hits are confirmed with a primary key read. The filter is
+ * built at startup, takes in rows written by other nodes every poll interval, and is rebuilt from
+ * the remaining rows when expired ones are pruned.
+ */
+@Service
+public class TokenRevocationList {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+    
+    // Rows below the highest id seen that are read again by every poll. Ids are allocated at insert but
+    // become visible at commit, so a row can appear after one with a higher id
+    private static final int POLL_OVERLAP = 1000;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.auth.revocation-false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    // Lower bound of the filter size, so a node that starts with few revocations does not refill quickly
+    @Value("${app.auth.revocation-min-capacity:10000}")
+    private int minCapacity;
+    
+    private volatile BloomFilter filter;
+    // Highest revoked_tokens id already in the filter
+    private volatile long lastSeenId;
+    // Serializes poll and rebuild. Both query the database while holding it, which inside a synchronized
+    // block would pin a virtual thread to its carrier
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    
+    @PostConstruct
+    void init() {
+        rebuild();
+        meterRegistry.gauge("security.token.revocation.size", this, list -> list.filter.size());
+    }
+    
+    /**
+     * Revokes the access token with {@code jti} until {@code expiresAt}, when it stops being
+     * accepted anyway. Committed on its own so other nodes pick it up within the poll interval, even
+     * when called from a longer transaction.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void revoke(String jti, Instant expiresAt) {
+        Instant now = Instant.now();
+        if (!expiresAt.isAfter(now)) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO revoked_tokens (jti, expires_at, revoked_at) VALUES (?, ?, ?)",
+                    jti, Timestamp.from(expiresAt), Timestamp.from(now));
+        } catch (DuplicateKeyException e) {
+            // Already revoked
+        }
+        filter.put(jti);
+    }
+    
+    public boolean isRevoked(String jti) {
+        if (!filter.mightContain(jti)) {
+            meterRegistry.counter("security.token.revocation.checks", "result", "filter_miss").increment();
+            return false;
+        }
+        Integer found = jdbcTemplate.query("SELECT 1 FROM revoked_tokens WHERE jti = ?",
+                rs -> rs.next() ? 1 : null, jti);
+        meterRegistry.counter("security.token.revocation.checks", "result",
+                found != null ? "revoked" : "false_positive").increment();
+        return found != null;
+    }
+    
+    /**
+     * Adds revocations written since the last poll, by this or another node.
+     */
+    @Scheduled(fixedDelayString = "${app.auth.revocation-poll-seconds:5}", timeUnit = TimeUnit.SECONDS)
+    public void poll() {
+        refreshLock.lock();
+        try {
+            if (filter.isOverCapacity()) {
+                rebuild();
+            } else {
+                addRowsAfter(filter, lastSeenId - POLL_OVERLAP);
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+    
+    /**
+     * Deletes revocations of tokens that have expired anyway and rebuilds the filter without them.
+     */
+    @Scheduled(fixedDelayString = "${app.auth.revocation-prune-minutes:10}", timeUnit = TimeUnit.MINUTES)
+    public void prune() {
+        int deleted = jdbcTemplate.update("DELETE FROM revoked_tokens WHERE expires_at < ?", Timestamp.from(Instant.now()));
+        if (deleted > 0) {
+            logger.debug("Pruned {} expired token revocations", deleted);
+        }
+        rebuild();
+    }
+    
+    void rebuild() {
+        refreshLock.lock();
+        try {
+            long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM revoked_tokens", Long.class);
+            List<String> jtis = new ArrayList<>();
+            jdbcTemplate.query("SELECT jti FROM revoked_tokens WHERE id <= ?",
+                    rs -> {
+                        jtis.add(rs.getString(1));
+                    }, maxId);
+            BloomFilter rebuilt = new BloomFilter(Math.max(minCapacity, jtis.size() * 2), falsePositiveRate);
+            for (String jti : jtis) {
+                rebuilt.put(jti);
+            }
+            filter = rebuilt;
+            lastSeenId = maxId;
+            // A revoke() that wrote its row meanwhile may have added it to the replaced filter only
+            addRowsAfter(rebuilt, maxId - POLL_OVERLAP);
+            logger.debug("Token revocation filter rebuilt with {} entries", rebuilt.size());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+    
+    private void addRowsAfter(BloomFilter target, long afterId) {
+        jdbcTemplate.query("SELECT id, jti FROM revoked_tokens WHERE id > ? ORDER BY id",
+                rs -> {
+                    target.put(rs.getString(2));
+                    lastSeenId = Math.max(lastSeenId, rs.getLong(1));
+                }, afterId);
+    }
+}
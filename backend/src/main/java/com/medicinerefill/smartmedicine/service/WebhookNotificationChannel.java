@@ -0,0 +1,194 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Posts notifications as JSON to a webhook: the user's own URL when it matches
+ * {@code allowed-url-prefixes}, otherwise the configured {@code url} (an SMS gateway, a chat
+ * integration or a local stand-in). A batch becomes one POST per target URL carrying
+ * {@code {"batchId": ..., "notifications": [...]}}; any non-2xx response fails that POST.
+ */
+@Component
+public class WebhookNotificationChannel implements NotificationChannel {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WebhookNotificationChannel.class);
+    
+    public static final String NAME = "webhook";
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${app.notifications.channels.webhook.url:}")
+    private String defaultUrl;
+    
+    @Value("${app.notifications.channels.webhook.timeout:5s}")
+    private Duration timeout;
+    
+    // Users may only register URLs under these prefixes, so the server cannot be pointed anywhere
+    @Value("${app.notifications.channels.webhook.allowed-url-prefixes:}")
+    private List<String> allowedUrlPrefixes;
+    
+    private List<URI> allowedPrefixes;
+    private HttpClient client;
+    
+    @PostConstruct
+    void createClient() {
+        allowedPrefixes = new ArrayList<>();
+        for (String prefix : allowedUrlPrefixes) {
+            if (!StringUtils.hasText(prefix)) {
+                continue;
+            }
+            URI uri = parseHttpUrl(prefix.trim());
+            if (uri == null) {
+                throw new IllegalStateException("Invalid webhook URL prefix: " + prefix);
+            }
+            allowedPrefixes.add(uri);
+        }
+        client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public boolean canDeliver(Notification notification) {
+        return targetFor(notification) != null;
+    }
+    
+    /**
+     * True when {@code url} has the scheme, host and port of an allowed prefix and a path at or
+     * below the prefix's path. URLs with user info or dot segments are never allowed.
+     */
+    public boolean isAllowedUserUrl(String url) {
+        URI uri = parseHttpUrl(url);
+        return uri != null && allowedPrefixes.stream().anyMatch(prefix -> isUnder(uri, prefix));
+    }
+    
+    @Override
+    public List<Notification> deliver(List<Notification> batch) throws InterruptedException {
+        Map<String, List<Notification>> byTarget = new LinkedHashMap<>();
+        for (Notification notification : batch) {
+            byTarget.computeIfAbsent(targetFor(notification), url -> new ArrayList<>()).add(notification);
+        }
+        
+        List<Notification> failed = new ArrayList<>();
+        for (Map.Entry<String, List<Notification>> entry : byTarget.entrySet()) {
+            if (!post(entry.getKey(), entry.getValue())) {
+                failed.addAll(entry.getValue());
+            }
+        }
+        return failed;
+    }
+    
+    private boolean post(String url, List<Notification> notifications) throws InterruptedException {
+        String batchId = UUID.randomUUID().toString();
+        try {
+            List<Map<String, Object>> items = new ArrayList<>(notifications.size());
+            for (Notification notification : notifications) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", notification.getId());
+                item.put("type", notification.getType());
+                item.put("userId", notification.getUserId());
+                item.put("subject", notification.getSubject());
+                item.put("text", notification.getText());
+                item.put("data", notification.getData());
+                item.put("createdAt", notification.getCreatedAt());
+                items.add(item);
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("batchId", batchId);
+            body.put("notifications", items);
+            
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 == 2) {
+                return true;
+            }
+            logger.warn("Webhook {} answered {} for batch {} of {} notification(s)", url, response.statusCode(),
+                    batchId, notifications.size());
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Webhook {} failed for batch {} of {} notification(s): {}", url, batchId,
+                    notifications.size(), e.toString());
+        }
+        return false;
+    }
+    
+    // Null unless an absolute http(s) URL with a host, without user info and without dot segments
+    private static URI parseHttpUrl(String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        if (!"https".equalsIgnoreCase(uri.getScheme()) && !"http".equalsIgnoreCase(uri.getScheme())
+                || uri.getHost() == null || uri.getRawUserInfo() != null) {
+            return null;
+        }
+        // Decoded, so an encoded %2e%2e cannot climb out of the prefix either
+        String path = uri.getPath() != null ? uri.getPath() : "";
+        for (String segment : path.split("/")) {
+            if (segment.equals(".") || segment.equals("..")) {
+                return null;
+            }
+        }
+        return uri;
+    }
+    
+    private static boolean isUnder(URI uri, URI prefix) {
+        if (!uri.getScheme().equalsIgnoreCase(prefix.getScheme()) || !uri.getHost().equalsIgnoreCase(prefix.getHost())
+                || portOf(uri) != portOf(prefix)) {
+            return false;
+        }
+        String prefixPath = prefix.getPath() != null ? prefix.getPath() : "";
+        String path = uri.getPath() != null ? uri.getPath() : "";
+        if (prefixPath.isEmpty() || path.equals(prefixPath)) {
+            return true;
+        }
+        // Whole segments only: /hooks allows /hooks/123, not /hooks-admin
+        return path.startsWith(prefixPath.endsWith("/") ? prefixPath : prefixPath + "/");
+    }
+    
+    private static int portOf(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+    
+    private String targetFor(Notification notification) {
+        String userUrl = notification.getWebhookUrl();
+        if (userUrl != null && isAllowedUserUrl(userUrl)) {
+            return userUrl;
+        }
+        return StringUtils.hasText(defaultUrl) ? defaultUrl : null;
+    }
+}
@@ -0,0 +1,20 @@
+-- Per-user medicine counts by status, kept current on every medicine write so the dashboard reads
+-- one row instead of running COUNT queries. Repaired by a periodic recount (app.counters).
+
+CREATE TABLE user_medicine_counters (
+    user_id BIGINT NOT NULL,
+    ok_count INT NOT NULL DEFAULT 0,
+    low_count INT NOT NULL DEFAULT 0,
+    refill_needed_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id),
+    CONSTRAINT fk_user_medicine_counters_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+INSERT INTO user_medicine_counters (user_id, ok_count, low_count, refill_needed_count)
+SELECT u.id,
+       COALESCE(SUM(CASE WHEN m.status = 'OK' THEN 1 ELSE 0 END), 0),
+       COALESCE(SUM(CASE WHEN m.status = 'LOW' THEN 1 ELSE 0 END), 0),
+       COALESCE(SUM(CASE WHEN m.status = 'REFILL_NEEDED' THEN 1 ELSE 0 END), 0)
+FROM users u
+LEFT JOIN medicines m ON m.user_id = u.id
+GROUP BY u.id;
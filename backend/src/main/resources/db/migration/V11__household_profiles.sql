@@ -0,0 +1,32 @@
+-- Household profiles: an account manages medicines for several people. Every account gets a default
+-- profile for the account holder, which owns the existing medicines. medicines.user_id stays the
+-- account, so reminders, counters and scans are unchanged.
+
+CREATE TABLE profiles (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    name VARCHAR(50) NOT NULL,
+    color VARCHAR(20),
+    shape VARCHAR(10),
+    avatar_emoji VARCHAR(16),
+    default_profile BOOLEAN DEFAULT FALSE NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_profiles_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_profiles_user ON profiles (user_id);
+
+INSERT INTO profiles (user_id, name, default_profile, created_at)
+SELECT id, name, TRUE, created_at FROM users;
+
+-- Left nullable in the DDL (ALTER ... NOT NULL differs between H2 and MySQL); the entity requires it
+ALTER TABLE medicines ADD COLUMN profile_id BIGINT;
+ALTER TABLE medicines ADD CONSTRAINT fk_medicines_profile FOREIGN KEY (profile_id) REFERENCES profiles (id);
+
+UPDATE medicines SET profile_id = (
+    SELECT p.id FROM profiles p WHERE p.user_id = medicines.user_id AND p.default_profile = TRUE
+);
+
+-- Household dashboard: per-profile status counts and next refill date from the index alone
+CREATE INDEX idx_medicines_profile_status ON medicines (profile_id, status, refill_date);
@@ -0,0 +1,40 @@
+-- Delta sync for offline clients (GET /api/medicines/changes). Every medicine write takes the next value
+-- of its user's change_seq, kept on the user_medicine_counters row; the row lock serializes a user's
+-- writes, so sequence order is commit order. Deletes leave a tombstone with their own sequence value.
+
+ALTER TABLE user_medicine_counters ADD COLUMN change_seq BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE medicines ADD COLUMN change_seq BIGINT DEFAULT 0 NOT NULL;
+
+-- Existing rows: ids are unique and increasing per user, so they serve as initial sequence values
+UPDATE medicines SET change_seq = id;
+UPDATE user_medicine_counters SET change_seq = COALESCE(
+    (SELECT MAX(m.id) FROM medicines m WHERE m.user_id = user_medicine_counters.user_id), 0);
+
+CREATE INDEX idx_medicines_user_change_seq ON medicines (user_id, change_seq);
+
+CREATE TABLE medicine_tombstones (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    medicine_id BIGINT NOT NULL,
+    profile_id BIGINT,
+    change_seq BIGINT NOT NULL,
+    deleted_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_medicine_tombstones_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_medicine_tombstones_user_seq ON medicine_tombstones (user_id, change_seq);
+CREATE INDEX idx_medicine_tombstones_deleted_at ON medicine_tombstones (deleted_at);
+
+-- Offline dose events already applied, keyed by the id the device gave them, so re-uploads are ignored
+CREATE TABLE dose_events (
+    user_id BIGINT NOT NULL,
+    event_id VARCHAR(64) NOT NULL,
+    medicine_id BIGINT NOT NULL,
+    taken_at DATETIME(6),
+    received_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (user_id, event_id),
+    CONSTRAINT fk_dose_events_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_dose_events_received_at ON dose_events (received_at);
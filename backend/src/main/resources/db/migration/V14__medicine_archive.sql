@@ -0,0 +1,38 @@
+-- Archival tier: medicines that ran out and were left alone for app.archive.inactive-after are moved
+-- here by a nightly job, keeping medicines and its indexes to medicines in use. Rows keep their id,
+-- so refilling one moves it back unchanged (GET /api/medicines/history lists them).
+
+CREATE TABLE medicines_archive (
+    id BIGINT NOT NULL,
+    medicine_name VARCHAR(255) NOT NULL,
+    dosage_per_day INTEGER NOT NULL,
+    total_quantity INTEGER NOT NULL,
+    start_date DATE NOT NULL,
+    refill_date DATE,
+    current_quantity INTEGER,
+    notifications_enabled BOOLEAN DEFAULT TRUE,
+    low_stock_threshold INTEGER DEFAULT 5,
+    status VARCHAR(20) DEFAULT 'OK',
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    user_id BIGINT NOT NULL,
+    profile_id BIGINT,
+    catalog_id BIGINT,
+    dose_pattern VARCHAR(255),
+    weekday_mask INTEGER,
+    taper_step INTEGER,
+    taper_every_days INTEGER,
+    taper_floor INTEGER,
+    last_notified_on DATE,
+    last_notified_status VARCHAR(20),
+    last_notified_bucket INTEGER,
+    change_seq BIGINT DEFAULT 0 NOT NULL,
+    archived_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    -- No profile foreign key: a profile may be deleted while its medicines are archived; restoring
+    -- falls back to the default profile
+    CONSTRAINT fk_medicines_archive_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+-- History page, newest first
+CREATE INDEX idx_medicines_archive_user_archived_at ON medicines_archive (user_id, archived_at);
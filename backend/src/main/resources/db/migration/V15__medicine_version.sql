@@ -0,0 +1,8 @@
+-- Optimistic locking for medicines: every JPA write checks and bumps version, so a write based on a
+-- stale read (a dose flush racing a refill or an edit) fails and is retried instead of overwriting
+-- the other write.
+
+ALTER TABLE medicines ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+
+-- Archived rows keep theirs, so a medicine comes back from the archive at the version it left with
+ALTER TABLE medicines_archive ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,32 @@
+-- Baseline schema for Smart Medicine Refill System.
+-- Existing databases created by ddl-auto are baselined at this version (see spring.flyway.baseline-on-migrate).
+
+CREATE TABLE users (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(50) NOT NULL,
+    email VARCHAR(50) NOT NULL,
+    password VARCHAR(120) NOT NULL,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    email_notifications_enabled BOOLEAN DEFAULT TRUE,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE medicines (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    medicine_name VARCHAR(255) NOT NULL,
+    dosage_per_day INTEGER NOT NULL,
+    total_quantity INTEGER NOT NULL,
+    start_date DATE NOT NULL,
+    refill_date DATE,
+    current_quantity INTEGER,
+    notifications_enabled BOOLEAN DEFAULT TRUE,
+    low_stock_threshold INTEGER DEFAULT 5,
+    status VARCHAR(20) DEFAULT 'OK',
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_medicines_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
@@ -0,0 +1,12 @@
+-- Composite indexes for the hot MedicineRepository queries.
+
+-- findByUser / findByUserOrderByRefillDateAsc: equality on user_id, rows come back already sorted by refill_date.
+-- Also serves as the index backing fk_medicines_user.
+CREATE INDEX idx_medicines_user_refill_date ON medicines (user_id, refill_date);
+
+-- findByUserAndStatus, countRefillNeededByUser, countLowStockByUser: the counts are answered from the index alone.
+CREATE INDEX idx_medicines_user_status ON medicines (user_id, status);
+
+-- findMedicinesNeedingRefillReminder(Between): equality on notifications_enabled, range on refill_date,
+-- user_id carried in the index so the join to users is resolved by primary key without touching the row.
+CREATE INDEX idx_medicines_reminder_scan ON medicines (notifications_enabled, refill_date, user_id);
@@ -0,0 +1,15 @@
+-- Shared catalog of medicine names. Each user's medicine row points at its catalog entry;
+-- rows that predate the catalog are linked by MedicineCatalogService at startup.
+
+CREATE TABLE medicine_catalog (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    display_name VARCHAR(255) NOT NULL,
+    normalized_name VARCHAR(255) NOT NULL,
+    refill_url VARCHAR(2048) NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_medicine_catalog_normalized_name UNIQUE (normalized_name)
+);
+
+ALTER TABLE medicines ADD COLUMN catalog_id BIGINT;
+ALTER TABLE medicines ADD CONSTRAINT fk_medicines_catalog FOREIGN KEY (catalog_id) REFERENCES medicine_catalog (id);
@@ -0,0 +1,15 @@
+-- Idempotency-Key claims shared between nodes (app.idempotency.jdbc-enabled). A row without a
+-- status_code is still executing; completed rows keep the response until expires_at.
+
+CREATE TABLE idempotency_keys (
+    key_hash CHAR(64) NOT NULL,
+    fingerprint CHAR(64) NOT NULL,
+    status_code INT,
+    content_type VARCHAR(255),
+    response_body BLOB,
+    created_at DATETIME(6) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (key_hash)
+);
+
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
@@ -0,0 +1,3 @@
+-- Role for method-level authorization. Admins are assigned from app.security.admin-emails.
+
+ALTER TABLE users ADD COLUMN role VARCHAR(20) DEFAULT 'USER' NOT NULL;
@@ -0,0 +1,10 @@
+-- Optional dosing schedule per medicine. All columns null means the constant dosage_per_day every day.
+-- dose_pattern: comma-separated doses for consecutive days of a cycle anchored at start_date ("2,0" = alternate days)
+-- weekday_mask: bit 0 = Monday .. bit 6 = Sunday; doses on other weekdays are skipped
+-- taper_*: every taper_every_days the non-zero doses drop by taper_step, down to taper_floor
+
+ALTER TABLE medicines ADD COLUMN dose_pattern VARCHAR(255);
+ALTER TABLE medicines ADD COLUMN weekday_mask INTEGER;
+ALTER TABLE medicines ADD COLUMN taper_step INTEGER;
+ALTER TABLE medicines ADD COLUMN taper_every_days INTEGER;
+ALTER TABLE medicines ADD COLUMN taper_floor INTEGER;
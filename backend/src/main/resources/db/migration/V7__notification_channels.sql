@@ -0,0 +1,5 @@
+-- Per-user notification channels (comma-separated channel names; null = app.notifications.default-channels)
+-- and an optional personal webhook URL for the webhook channel.
+
+ALTER TABLE users ADD COLUMN notification_channels VARCHAR(255);
+ALTER TABLE users ADD COLUMN webhook_url VARCHAR(2048);
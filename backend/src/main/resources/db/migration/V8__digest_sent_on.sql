@@ -0,0 +1,4 @@
+-- Day the last reminder digest was queued for a user, so daily and weekly runs send at most one
+-- consolidated message per user per day.
+
+ALTER TABLE users ADD COLUMN last_digest_sent_on DATE;
@@ -0,0 +1,6 @@
+-- Per-medicine reminder state, so unchanged medicines are not reminded again every day: the day,
+-- status and days-left bucket (app.notifications.suppression.milestones) of the last reminder.
+
+ALTER TABLE medicines ADD COLUMN last_notified_on DATE;
+ALTER TABLE medicines ADD COLUMN last_notified_status VARCHAR(20);
+ALTER TABLE medicines ADD COLUMN last_notified_bucket INTEGER;
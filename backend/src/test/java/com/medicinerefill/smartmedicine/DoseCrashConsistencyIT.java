@@ -0,0 +1,208 @@
+package com.medicinerefill.smartmedicine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Crash consistency of the take-dose write modes. Each scenario runs the application in a child
+ * JVM on a file-backed H2 database, records the quantity acknowledged by every tap, stops the JVM
+ * (SIGKILL for a crash, SIGTERM for a shutdown), restarts it on the same database and compares the
+ * stored quantity with the acknowledgements:
+ *
+ *   sync         + crash     stored == last acknowledged
+ *   write-behind + shutdown  stored == last acknowledged (flushed on shutdown)
+ *   write-behind + crash     last acknowledged <= stored <= quantity acknowledged one flush window
+ *                            before the crash (only the unflushed tail is lost, nothing applied twice)
+ *
+ * Runs in mvn verify (failsafe); each scenario starts two JVMs.
+ */
+class DoseCrashConsistencyIT {
+    
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("\"accessToken\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern QUANTITY_PATTERN = Pattern.compile("\"currentQuantity\"\\s*:\\s*(\\d+)");
+    private static final int INITIAL_QUANTITY = 100_000;
+    private static final int TAPS = 300;
+    private static final long FLUSH_MS = 250;
+    
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    
+    @Test
+    void syncModeKeepsEveryAcknowledgedDoseThroughACrash() throws Exception {
+        run("sync", true);
+    }
+    
+    @Test
+    void writeBehindFlushesEveryAcknowledgedDoseOnShutdown() throws Exception {
+        run("write-behind", false);
+    }
+    
+    @Test
+    void writeBehindLosesAtMostTheLastFlushWindowInACrash() throws Exception {
+        run("write-behind", true);
+    }
+    
+    private void run(String mode, boolean crash) throws Exception {
+        Path dataDir = Files.createTempDirectory("dose-crash-");
+        App app = start(mode, dataDir);
+        String baseUrl = awaitStarted(app);
+        String token = signup(baseUrl);
+        long medicineId = createMedicine(baseUrl, token);
+        
+        // Quantity acknowledged by each tap, with the time the acknowledgement arrived
+        List<long[]> acks = new ArrayList<>(TAPS);
+        HttpRequest tap = post(baseUrl + "/medicines/" + medicineId + "/take-dose", "", token);
+        for (int i = 0; i < TAPS; i++) {
+            HttpResponse<String> response = client.send(tap, HttpResponse.BodyHandlers.ofString());
+            acks.add(new long[] {System.nanoTime(), extract(QUANTITY_PATTERN, response.body())});
+        }
+        long stoppedAt = System.nanoTime();
+        if (crash) {
+            app.process().destroyForcibly();
+        } else {
+            app.process().destroy();
+        }
+        app.process().waitFor(30, TimeUnit.SECONDS);
+        
+        App restarted = start(mode, dataDir);
+        long stored;
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                            URI.create(awaitStarted(restarted) + "/medicines/" + medicineId))
+                    .header("Authorization", "Bearer " + token)
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            stored = extract(QUANTITY_PATTERN, response.body());
+        } finally {
+            restarted.process().destroy();
+            restarted.process().waitFor(30, TimeUnit.SECONDS);
+        }
+        
+        long lastAcked = acks.get(acks.size() - 1)[1];
+        if (!crash || "sync".equals(mode)) {
+            assertThat(stored).as("stored quantity, see %s", restarted.log()).isEqualTo(lastAcked);
+            return;
+        }
+        // Anything acknowledged more than one flush window (plus scheduling slack) before the crash must be stored
+        long windowStart = stoppedAt - TimeUnit.MILLISECONDS.toNanos(FLUSH_MS * 2);
+        long mustBeStored = INITIAL_QUANTITY;
+        for (long[] ack : acks) {
+            if (ack[0] <= windowStart) {
+                mustBeStored = ack[1];
+            }
+        }
+        assertThat(stored).as("stored quantity, see %s", restarted.log()).isBetween(lastAcked, mustBeStored);
+    }
+    
+    private App start(String mode, Path dataDir) throws IOException {
+        String dbUrl = "jdbc:h2:file:" + dataDir.resolve("db").toAbsolutePath()
+                + ";WRITE_DELAY=0;DB_CLOSE_ON_EXIT=FALSE";
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                // Failsafe sets java.class.path to the test class path, which includes the application
+                "-cp", System.getProperty("java.class.path"),
+                SmartMedicineApplication.class.getName(),
+                "--server.port=" + port,
+                "--spring.datasource.url=" + dbUrl,
+                "--app.doses.write-mode=" + mode,
+                "--app.doses.flush-interval=" + FLUSH_MS + "ms",
+                "--jwt.secret=crashCheckSecretKey0123456789crashCheckSecretKey0123456789crashCheckKey",
+                "--app.rate-limit.enabled=false",
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.com.medicinerefill.smartmedicine=WARN",
+                "--logging.level.org.hibernate=WARN",
+                "--logging.level.org.springframework.security=WARN");
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(dataDir.resolve("app.log").toFile()))
+                .start();
+        return new App(process, port, dataDir.resolve("app.log"));
+    }
+    
+    private String awaitStarted(App app) throws Exception {
+        Process process = app.process();
+        HttpRequest probe = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + "/api/actuator/health"))
+                .GET()
+                .build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with status " + process.exitValue()
+                        + ", see " + app.log());
+            }
+            try {
+                // Any response will do: health reports DOWN without a reachable SMTP server
+                client.send(probe, HttpResponse.BodyHandlers.discarding());
+                return "http://localhost:" + app.port() + "/api/api";
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("Application did not start within 120 s, see " + app.log());
+    }
+    
+    private String signup(String baseUrl) throws Exception {
+        String body = "{\"name\":\"Crash Check\",\"email\":\"crash@example.com\",\"password\":\"password123\"}";
+        HttpResponse<String> response = client.send(post(baseUrl + "/auth/signup", body, null),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = TOKEN_PATTERN.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("Signup failed: " + response.statusCode() + " " + response.body());
+        }
+        return matcher.group(1);
+    }
+    
+    private long createMedicine(String baseUrl, String token) throws Exception {
+        String body = "{\"medicineName\":\"Crash Check\",\"dosagePerDay\":6,\"totalQuantity\":" + INITIAL_QUANTITY
+                + ",\"startDate\":\"2024-01-01\"}";
+        HttpResponse<String> response = client.send(post(baseUrl + "/medicines", body, token),
+                HttpResponse.BodyHandlers.ofString());
+        return extract(ID_PATTERN, response.body());
+    }
+    
+    private static long extract(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unexpected response: " + body);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+    
+    private static HttpRequest post(String url, String body, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+    
+    private record App(Process process, int port, Path log) {}
+}
@@ -0,0 +1,133 @@
+package com.medicinerefill.smartmedicine.repository;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the V2 indexes: runs EXPLAIN on the SQL Hibernate generates for the hot medicine queries
+ * and fails if H2 plans a scan of the medicines table instead of the matching idx_medicines_* index.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.medicinerefill.smartmedicine.repository.HotQueryIndexTest$RecordingInspector")
+@ActiveProfiles("test")
+class HotQueryIndexTest {
+    
+    private static final int USERS = 50;
+    private static final int MEDICINES_PER_USER = 40;
+    
+    @Autowired
+    private MedicineRepository medicineRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private User user;
+    
+    @BeforeEach
+    void seed() {
+        user = userRepository.findByEmail("index-0@example.com").orElse(null);
+        if (user != null) {
+            return;
+        }
+        // Enough rows that the planner's costs reflect a real table rather than an empty one
+        List<User> users = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            users.add(userRepository.save(new User("Index User " + u, "index-" + u + "@example.com", "x")));
+        }
+        LocalDate today = LocalDate.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (User owner : users) {
+            for (int m = 0; m < MEDICINES_PER_USER; m++) {
+                int daysLeft = (m * 7) % 365;
+                rows.add(new Object[] {"Medicine " + m, 1, 60, daysLeft, Date.valueOf(today),
+                        Date.valueOf(today.plusDays(daysLeft)), m % 5 != 0, daysLeft <= 5 ? "LOW" : "OK",
+                        owner.getId(), owner.getProfiles().get(0).getId()});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO medicines (medicine_name, dosage_per_day, total_quantity,"
+                + " current_quantity, start_date, refill_date, notifications_enabled, status, user_id, profile_id)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.execute("ANALYZE");
+        user = users.get(0);
+    }
+    
+    @Test
+    void reminderScanUsesReminderIndex() {
+        LocalDate today = LocalDate.now();
+        String sql = capture(() -> medicineRepository.findMedicinesNeedingRefillReminderBetween(today, today.plusDays(7)));
+        assertUsesIndex(explain(sql, Date.valueOf(today), Date.valueOf(today.plusDays(7))),
+                "IDX_MEDICINES_REMINDER_SCAN");
+    }
+    
+    @Test
+    void medicineListUsesUserIndex() {
+        String sql = capture(() -> medicineRepository.findByUserOrderByRefillDateAsc(user));
+        // H2 keeps a separate index for fk_medicines_user (MySQL reuses idx_medicines_user_refill_date for it)
+        // and only credits an index for ORDER BY when its first column is the sort column, so it ties the two
+        // on user_id and takes the narrower one; either way the lookup must be by user_id, not a scan
+        assertThat(explain(sql, user.getId()))
+                .containsPattern("PUBLIC\\.(IDX_MEDICINES_USER_REFILL_DATE|FK_MEDICINES_USER_INDEX_\\d+): USER_ID = ")
+                .doesNotContain("MEDICINES.tableScan");
+    }
+    
+    @Test
+    void statusFilterUsesUserStatusIndex() {
+        String sql = capture(() -> medicineRepository.findByUserAndStatus(user, Medicine.MedicineStatus.LOW));
+        assertUsesIndex(explain(sql, user.getId(), "LOW"), "IDX_MEDICINES_USER_STATUS");
+    }
+    
+    private static void assertUsesIndex(String plan, String index) {
+        assertThat(plan).contains("PUBLIC." + index).doesNotContain("MEDICINES.tableScan");
+    }
+    
+    /**
+     * The medicines query Hibernate sends for {@code query}.
+     */
+    private static String capture(Runnable query) {
+        RecordingInspector.statements.clear();
+        query.run();
+        List<String> medicineQueries = RecordingInspector.statements.stream()
+                .filter(sql -> sql.startsWith("select") && sql.contains(" from medicines "))
+                .toList();
+        assertThat(medicineQueries).hasSize(1);
+        return medicineQueries.get(0);
+    }
+    
+    private String explain(String sql, Object... parameters) {
+        assertThat(sql.chars().filter(c -> c == '?').count()).as("parameters of %s", sql).isEqualTo(parameters.length);
+        return String.join("\n", jdbcTemplate.query("EXPLAIN " + sql, (rs, rowNum) -> rs.getString(1), parameters));
+    }
+    
+    /**
+     * Records every statement Hibernate prepares; set through hibernate.session_factory.statement_inspector.
+     */
+    public static class RecordingInspector implements StatementInspector {
+        
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+        
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.medicinerefill.smartmedicine.repository;
+
+import com.medicinerefill.smartmedicine.model.Profile;
+import com.medicinerefill.smartmedicine.model.User;
+import com.medicinerefill.smartmedicine.service.CustomUserDetailsService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The Hibernate second-level cache, measured with Hibernate's statement counters: repeated
+ * principal lookups (the JWT filter's loadUserByUsername) run no SQL after the first, writes through
+ * save and the bulk markDigestSent are visible to the next lookup, and the cached profile list
+ * picks up a new profile.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class SecondLevelCacheTest {
+    
+    private static final int LOOKUPS = 1000;
+    private static final AtomicInteger EMAILS = new AtomicInteger();
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ProfileRepository profileRepository;
+    
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    private User user;
+    
+    @BeforeEach
+    void createUser() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = userRepository.save(new User("Cache Test", "cache-" + EMAILS.incrementAndGet() + "@example.com",
+                "{noop}password"));
+    }
+    
+    @Test
+    void repeatedPrincipalLookupsRunNoSql() {
+        // The first lookup may resolve the email in the database; the rest must not
+        userDetailsService.loadUserByUsername(user.getEmail());
+        long hitsBefore = statistics.getDomainDataRegionStatistics("users").getHitCount();
+        
+        long statements = statementsDuring(() -> {
+            for (int i = 0; i < LOOKUPS; i++) {
+                userDetailsService.loadUserByUsername(user.getEmail());
+            }
+        });
+        
+        assertThat(statements).isZero();
+        assertThat(statistics.getDomainDataRegionStatistics("users").getHitCount() - hitsBefore)
+                .isGreaterThanOrEqualTo(LOOKUPS);
+    }
+    
+    @Test
+    void saveIsVisibleToTheNextLookup() {
+        // A detached principal saved the way NotificationController does it
+        User principal = (User) userDetailsService.loadUserByUsername(user.getEmail());
+        principal.setEmailNotificationsEnabled(false);
+        userRepository.save(principal);
+        
+        User reloaded = (User) userDetailsService.loadUserByUsername(user.getEmail());
+        assertThat(reloaded.getEmailNotificationsEnabled()).isFalse();
+    }
+    
+    @Test
+    void bulkMarkDigestSentIsVisibleToTheNextLookup() {
+        userDetailsService.loadUserByUsername(user.getEmail());
+        LocalDate today = LocalDate.now();
+        userRepository.markDigestSent(List.of(user.getId()), today);
+        
+        User reloaded = (User) userDetailsService.loadUserByUsername(user.getEmail());
+        assertThat(reloaded.getLastDigestSentOn()).isEqualTo(today);
+    }
+    
+    @Test
+    void cachedProfileListRunsNoSqlUntilAProfileIsAdded() {
+        profileRepository.findByUserIdOrderByIdAsc(user.getId());
+        long statements = statementsDuring(() -> profileRepository.findByUserIdOrderByIdAsc(user.getId()));
+        assertThat(statements).isZero();
+        
+        profileRepository.save(new Profile(user, "Second", false));
+        assertThat(profileRepository.findByUserIdOrderByIdAsc(user.getId())).hasSize(2);
+    }
+    
+    private long statementsDuring(Runnable action) {
+        long before = statistics.getPrepareStatementCount();
+        action.run();
+        return statistics.getPrepareStatementCount() - before;
+    }
+}
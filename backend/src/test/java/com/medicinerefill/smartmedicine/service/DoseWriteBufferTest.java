@@ -0,0 +1,164 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import com.medicinerefill.smartmedicine.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Write-behind take-dose: acknowledged doses are stored by a flush and on shutdown, the flush before
+ * a direct write stores only that medicine's doses, and a flush racing a refill (the read-modify-write
+ * MedicineController does) loses neither write. Flushes only run when called; the scheduled one waits
+ * an hour. The child-JVM crash scenarios are in DoseCrashConsistencyIT.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "app.doses.write-mode=write-behind",
+        "app.doses.flush-interval=1h"})
+@ActiveProfiles("test")
+class DoseWriteBufferTest {
+    
+    private static final int INITIAL_QUANTITY = 10_000;
+    private static final AtomicInteger EMAILS = new AtomicInteger();
+    
+    @Autowired
+    private DoseWriteBuffer doseWriteBuffer;
+    
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    
+    @Autowired
+    private MedicineRepository medicineRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    private User user;
+    private Long medicineId;
+    
+    @BeforeEach
+    void createMedicine() {
+        user = userRepository.save(new User("Dose Test", "dose-" + EMAILS.incrementAndGet() + "@example.com", "x"));
+        Medicine medicine = new Medicine("Dose Test", 1, INITIAL_QUANTITY, LocalDate.now(),
+                user.getProfiles().get(0));
+        medicineId = medicineRepository.save(medicine).getId();
+    }
+    
+    @Test
+    void flushStoresEveryAcknowledgedDose() {
+        int acknowledged = takeDoses(50);
+        assertThat(storedQuantity()).isEqualTo(INITIAL_QUANTITY);
+        
+        doseWriteBuffer.flush();
+        assertThat(acknowledged).isEqualTo(INITIAL_QUANTITY - 50);
+        assertThat(storedQuantity()).isEqualTo(acknowledged);
+    }
+    
+    @Test
+    void shutdownFlushesPendingDoses() {
+        // Calls the shutdown hook without closing the context: that would close the JCache
+        // CacheManager every cached context shares
+        int acknowledged = takeDoses(20);
+        doseWriteBuffer.stop();
+        assertThat(storedQuantity()).isEqualTo(acknowledged);
+    }
+    
+    @Test
+    void flushingOneMedicineLeavesOthersPending() {
+        Long otherId = medicineRepository.save(new Medicine("Other", 1, INITIAL_QUANTITY, LocalDate.now(),
+                user.getProfiles().get(0))).getId();
+        doseWriteBuffer.takeDose(otherId, user.getId(), Medicine::getCurrentQuantity).orElseThrow();
+        takeDoses(5);
+        
+        doseWriteBuffer.flush(medicineId);
+        assertThat(storedQuantity()).isEqualTo(INITIAL_QUANTITY - 5);
+        assertThat(medicineRepository.findById(otherId).orElseThrow().getCurrentQuantity()).isEqualTo(INITIAL_QUANTITY);
+        
+        doseWriteBuffer.flush();
+        assertThat(medicineRepository.findById(otherId).orElseThrow().getCurrentQuantity())
+                .isEqualTo(INITIAL_QUANTITY - 1);
+    }
+    
+    @Test
+    void saveBasedOnAReadFromBeforeAFlushConflicts() {
+        Medicine stale = medicineRepository.findById(medicineId).orElseThrow();
+        takeDoses(10);
+        doseWriteBuffer.flush();
+        
+        stale.refillMedicine(30);
+        assertThatThrownBy(() -> medicineRepository.save(stale)).isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(storedQuantity()).isEqualTo(INITIAL_QUANTITY - 10);
+    }
+    
+    @Test
+    void concurrentRefillsAndFlushesLoseNoWrites() throws Exception {
+        int doses = 200;
+        int refills = 20;
+        // A flush about every 50 ms, five times as often as the scheduled one
+        CompletableFuture<Void> tapping = CompletableFuture.runAsync(() -> {
+            for (int i = 1; i <= doses; i++) {
+                takeDoses(1);
+                if (i % 10 == 0) {
+                    try {
+                        doseWriteBuffer.flush();
+                    } catch (OptimisticLockingFailureException e) {
+                        // Lost every retry to the refills; like the scheduled flush, the doses stay
+                        // pending for the next one
+                    }
+                }
+                LockSupport.parkNanos(5_000_000);
+            }
+        });
+        CompletableFuture<Void> refilling = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < refills; i++) {
+                refill(10);
+            }
+        });
+        CompletableFuture.allOf(tapping, refilling).get();
+        doseWriteBuffer.flush();
+        
+        assertThat(storedQuantity()).isEqualTo(INITIAL_QUANTITY - doses + refills * 10);
+    }
+    
+    /**
+     * What POST /api/medicines/{id}/refill does in write-behind mode.
+     */
+    private void refill(int quantity) {
+        doseWriteBuffer.flush(medicineId);
+        optimisticRetry.run(() -> {
+            Medicine medicine = medicineRepository.findById(medicineId).orElseThrow();
+            medicine.refillMedicine(quantity);
+            return medicineRepository.save(medicine);
+        });
+        doseWriteBuffer.evict(medicineId);
+    }
+    
+    /**
+     * Takes {@code count} doses and returns the quantity acknowledged for the last one.
+     */
+    private int takeDoses(int count) {
+        int acknowledged = -1;
+        for (int i = 0; i < count; i++) {
+            acknowledged = doseWriteBuffer.takeDose(medicineId, user.getId(), Medicine::getCurrentQuantity)
+                    .orElseThrow();
+        }
+        return acknowledged;
+    }
+    
+    private int storedQuantity() {
+        return medicineRepository.findById(medicineId).orElseThrow().getCurrentQuantity();
+    }
+}
@@ -0,0 +1,163 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import com.medicinerefill.smartmedicine.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The medicine archive on seeded rows: only medicines with no quantity left and unchanged for
+ * inactive-after (90 days) move, each leaving a sync tombstone with the status counters still matching
+ * a recount; restoring and refilling (what POST /api/medicines/{id}/refill does) brings one back under
+ * its id with a change sequence after its tombstone; two concurrent restores restore it once. Moved
+ * medicines leave the reminder snapshot once their range commits. The small batch size spreads each
+ * user's medicines over several ranges.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "app.archive.batch-size=25",
+        "app.medicine-snapshot.enabled=true"})
+@ActiveProfiles("test")
+class MedicineArchiveTest {
+    
+    private static final int MEDICINES = 60;
+    private static final AtomicInteger EMAILS = new AtomicInteger();
+    
+    @Autowired
+    private MedicineArchive medicineArchive;
+    
+    @Autowired
+    private MedicineStatusCounters medicineStatusCounters;
+    
+    @Autowired
+    private MedicineChangeLog medicineChangeLog;
+    
+    @Autowired
+    private MedicineSnapshot medicineSnapshot;
+    
+    @Autowired
+    private MedicineRepository medicineRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private User user;
+    private int toArchive;
+    
+    @BeforeEach
+    void seedMedicines() {
+        user = userRepository.save(new User("Archive Test", "archive-" + EMAILS.incrementAndGet() + "@example.com",
+                "x"));
+        Long profileId = user.getProfiles().get(0).getId();
+        Timestamp old = Timestamp.valueOf(LocalDateTime.now().minusDays(200));
+        Timestamp recent = Timestamp.valueOf(LocalDateTime.now().minusDays(10));
+        List<Object[]> rows = new ArrayList<>();
+        toArchive = 0;
+        for (int m = 0; m < MEDICINES; m++) {
+            // Every third finished long ago, every sixth (of the rest) finished recently
+            boolean finished = m % 3 == 0 || m % 6 == 1;
+            boolean inactive = m % 3 == 0;
+            toArchive += inactive ? 1 : 0;
+            int quantity = finished ? 0 : 20 + m;
+            Timestamp updatedAt = inactive ? old : recent;
+            rows.add(new Object[] {"Medicine " + m, 1, 30, quantity, Date.valueOf(LocalDate.now().minusDays(30)),
+                    Date.valueOf(LocalDate.now().plusDays(quantity)), finished ? "REFILL_NEEDED" : "OK",
+                    updatedAt, updatedAt, user.getId(), profileId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO medicines (medicine_name, dosage_per_day, total_quantity,"
+                + " current_quantity, start_date, refill_date, status, created_at, updated_at, user_id, profile_id)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        medicineStatusCounters.reconcile();
+        // The rows were inserted past the entity listeners
+        medicineSnapshot.rebuild();
+    }
+    
+    @Test
+    void archivesOnlyInactiveFinishedMedicines() {
+        int inSnapshot = medicineSnapshot.size();
+        // Also moves medicines other tests restored without refilling
+        int archived = medicineArchive.archive();
+        
+        assertThat(count("SELECT COUNT(*) FROM medicines_archive WHERE user_id = ?")).isEqualTo(toArchive);
+        assertThat(count("SELECT COUNT(*) FROM medicines WHERE user_id = ?")).isEqualTo(MEDICINES - toArchive);
+        assertThat(count("SELECT COUNT(*) FROM medicine_tombstones WHERE user_id = ?")).isEqualTo(toArchive);
+        assertThat(medicineStatusCounters.reconcile()).isZero();
+        assertThat(medicineArchive.findHistory(user.getId(), null, 0, MEDICINES)).hasSize(toArchive);
+        assertThat(medicineSnapshot.size()).isEqualTo(inSnapshot - archived);
+        
+        assertThat(medicineArchive.archive()).isZero();
+    }
+    
+    @Test
+    void restoreAndRefillBringTheMedicineBack() {
+        medicineArchive.archive();
+        MedicineArchive.ArchivedMedicine archived = medicineArchive.findHistory(user.getId(), null, 0, 1).get(0);
+        long tombstoneSeq = medicineChangeLog.findTombstones(user.getId(), 0, Integer.MAX_VALUE).stream()
+                .filter(t -> t.getMedicineId().equals(archived.getId()))
+                .mapToLong(MedicineChangeLog.Tombstone::getChangeSeq).max().orElseThrow();
+        
+        assertThat(medicineArchive.restore(archived.getId(), user.getId(), archived.getProfileId())).isTrue();
+        assertThat(medicineArchive.find(archived.getId(), user.getId())).isNull();
+        Medicine medicine = medicineRepository.findById(archived.getId()).orElseThrow();
+        assertThat(medicine.getMedicineName()).isEqualTo(archived.getMedicineName());
+        
+        medicine.refillMedicine(30);
+        medicine = medicineRepository.save(medicine);
+        assertThat(medicine.getStatus()).isEqualTo(Medicine.MedicineStatus.OK);
+        assertThat(medicine.getChangeSeq()).isGreaterThan(tombstoneSeq);
+        assertThat(medicineStatusCounters.reconcile()).isZero();
+    }
+    
+    @Test
+    void concurrentRestoresRestoreOnce() throws Exception {
+        medicineArchive.archive();
+        MedicineArchive.ArchivedMedicine archived = medicineArchive.findHistory(user.getId(), null, 0, 1).get(0);
+        
+        CountDownLatch ready = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> restores = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            restores.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return medicineArchive.restore(archived.getId(), user.getId(), archived.getProfileId());
+            }));
+        }
+        ready.countDown();
+        int restored = 0;
+        for (CompletableFuture<Boolean> restore : restores) {
+            restored += restore.get() ? 1 : 0;
+        }
+        
+        assertThat(restored).isEqualTo(1);
+        assertThat(medicineRepository.findById(archived.getId())).isPresent();
+        assertThat(medicineStatusCounters.reconcile()).isZero();
+    }
+    
+    private int count(String sql) {
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, user.getId());
+        return count != null ? count : 0;
+    }
+}
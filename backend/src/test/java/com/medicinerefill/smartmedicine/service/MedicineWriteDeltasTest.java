@@ -0,0 +1,122 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import com.medicinerefill.smartmedicine.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Counter deltas, change sequence values and tombstones summed per transaction: several writes and a
+ * delete in one transaction leave the counters matching a recount and hand out consecutive sequence
+ * values, a rolled back transaction leaves no trace, and a row that drifted below zero is counted
+ * and not served.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class MedicineWriteDeltasTest {
+    
+    private static final AtomicInteger EMAILS = new AtomicInteger();
+    
+    @Autowired
+    private MedicineRepository medicineRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private MedicineStatusCounters medicineStatusCounters;
+    
+    @Autowired
+    private MedicineChangeLog medicineChangeLog;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private User user;
+    private TransactionTemplate transaction;
+    
+    @BeforeEach
+    void createUser() {
+        user = userRepository.save(new User("Delta Test", "delta-" + EMAILS.incrementAndGet() + "@example.com", "x"));
+        transaction = new TransactionTemplate(transactionManager);
+    }
+    
+    @Test
+    void writesInOneTransactionAreSummed() {
+        long seqBefore = medicineChangeLog.currentSeq(user.getId());
+        List<Medicine> saved = transaction.execute(status -> {
+            List<Medicine> medicines = new ArrayList<>();
+            for (int quantity : new int[] {60, 60, 5, 2}) {
+                medicines.add(medicineRepository.save(new Medicine("Delta " + quantity, 1, quantity, LocalDate.now(),
+                        user.getProfiles().get(0))));
+            }
+            Medicine refilled = medicines.get(2);
+            refilled.refillMedicine(60);
+            medicineRepository.saveAndFlush(refilled);
+            medicineRepository.delete(medicines.get(3));
+            return medicines;
+        });
+        
+        long seqAfter = medicineChangeLog.currentSeq(user.getId());
+        List<Long> seqs = new ArrayList<>(medicineRepository.findChangedSince(user.getId(), seqBefore,
+                PageRequest.of(0, 10)).stream().map(Medicine::getChangeSeq).toList());
+        medicineChangeLog.findTombstones(user.getId(), seqBefore, 10).forEach(t -> seqs.add(t.getChangeSeq()));
+        assertThat(seqs).hasSize(4).doesNotHaveDuplicates().allMatch(seq -> seq > seqBefore && seq <= seqAfter);
+        assertThat(seqAfter).isEqualTo(seqs.stream().mapToLong(Long::longValue).max().orElseThrow());
+        assertThat(saved.get(2).getStatus()).isEqualTo(Medicine.MedicineStatus.OK);
+        
+        MedicineStatusCounters.Counts counts = medicineStatusCounters.find(user.getId());
+        assertThat(counts.getOk()).isEqualTo(3);
+        assertThat(counts.getTotal()).isEqualTo(3);
+        assertThat(medicineStatusCounters.reconcile()).isZero();
+    }
+    
+    @Test
+    void rolledBackTransactionLeavesNoTrace() {
+        long seqBefore = medicineChangeLog.currentSeq(user.getId());
+        assertThatThrownBy(() -> transaction.executeWithoutResult(status -> {
+            medicineRepository.saveAndFlush(new Medicine("Rolled Back", 1, 60, LocalDate.now(),
+                    user.getProfiles().get(0)));
+            throw new IllegalStateException("rollback");
+        })).isInstanceOf(IllegalStateException.class);
+        
+        assertThat(medicineChangeLog.currentSeq(user.getId())).isEqualTo(seqBefore);
+        assertThat(medicineStatusCounters.find(user.getId()).getTotal()).isZero();
+    }
+    
+    @Test
+    void negativeDriftIsCountedAndNotServed() {
+        double before = meterRegistry.counter("medicine.counters.negative").count();
+        jdbcTemplate.update("UPDATE user_medicine_counters SET low_count = -1 WHERE user_id = ?", user.getId());
+        
+        assertThat(medicineStatusCounters.find(user.getId())).isNull();
+        assertThat(meterRegistry.counter("medicine.counters.negative").count()).isEqualTo(before + 1);
+        
+        medicineStatusCounters.reconcile();
+        assertThat(medicineStatusCounters.find(user.getId())).isNotNull();
+    }
+}
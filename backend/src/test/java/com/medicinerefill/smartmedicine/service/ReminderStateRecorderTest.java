@@ -0,0 +1,99 @@
+package com.medicinerefill.smartmedicine.service;
+
+import com.medicinerefill.smartmedicine.model.Medicine;
+import com.medicinerefill.smartmedicine.model.User;
+import com.medicinerefill.smartmedicine.repository.MedicineRepository;
+import com.medicinerefill.smartmedicine.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reminder state follows delivery, not queueing: a digest that its only channel gives up on leaves the
+ * user and medicine unmarked and is sent again by the next run, which then records it. Marks never land
+ * on a medicine refilled after the run loaded it.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "app.notifications.default-channels=stub",
+        "app.notifications.channels.email.enabled=false",
+        "app.notifications.channels.stub.enabled=true",
+        "app.notifications.channels.stub.failure-rate=1",
+        "app.notifications.channels.stub.max-attempts=1"})
+@ActiveProfiles("test")
+class ReminderStateRecorderTest {
+    
+    @Autowired
+    private NotificationSchedulerService schedulerService;
+    
+    @Autowired
+    private NotificationPipeline notificationPipeline;
+    
+    @Autowired
+    private StubNotificationChannel stubChannel;
+    
+    @Autowired
+    private ReminderStateRecorder reminderStateRecorder;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private MedicineRepository medicineRepository;
+    
+    @Test
+    void digestIsMarkedOnlyOnceDelivered() throws Exception {
+        User user = userRepository.save(new User("Digest Test", "digest@example.com", "x"));
+        Long medicineId = medicineRepository.save(new Medicine("Digest Test", 1, 3, LocalDate.now(),
+                user.getProfiles().get(0))).getId();
+        
+        ReminderJob failedRun = runReminders();
+        assertThat(failedRun.getDigestsQueued()).isEqualTo(1);
+        assertThat(failedRun.getDigestsDelivered()).isZero();
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getLastDigestSentOn()).isNull();
+        assertThat(medicineRepository.findById(medicineId).orElseThrow().getLastNotifiedOn()).isNull();
+        assertThat(reminderStateRecorder.getPendingUsers()).isEmpty();
+        
+        ReflectionTestUtils.setField(stubChannel, "failureRate", 0.0);
+        ReminderJob deliveredRun = runReminders();
+        assertThat(deliveredRun.getDigestsQueued()).isEqualTo(1);
+        assertThat(deliveredRun.getDigestsDelivered()).isEqualTo(1);
+        assertThat(deliveredRun.getReport().getDigestsDelivered()).isEqualTo(1);
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getLastDigestSentOn())
+                .isEqualTo(LocalDate.now());
+        assertThat(medicineRepository.findById(medicineId).orElseThrow().getLastNotifiedOn())
+                .isEqualTo(LocalDate.now());
+        
+        assertThat(runReminders().getDigestsQueued()).isZero();
+    }
+    
+    @Test
+    void markNotifiedLeavesAMedicineRefilledSinceTheRunAlone() {
+        User user = userRepository.save(new User("Refill Test", "refilled@example.com", "x"));
+        Medicine loaded = medicineRepository.save(new Medicine("Refill Test", 1, 3, LocalDate.now(),
+                user.getProfiles().get(0)));
+        LocalDate today = LocalDate.now();
+        
+        Medicine refilled = medicineRepository.findById(loaded.getId()).orElseThrow();
+        refilled.refillMedicine(30);
+        medicineRepository.save(refilled);
+        
+        assertThat(medicineRepository.markNotified(List.of(loaded.getId()), today, 3, loaded.getStatus(),
+                today.plusDays(3))).isZero();
+        assertThat(medicineRepository.findById(loaded.getId()).orElseThrow().getLastNotifiedOn()).isNull();
+    }
+    
+    private ReminderJob runReminders() throws InterruptedException {
+        ReminderJob job = new ReminderJob("test", NotificationSchedulerService.DAILY_REMINDER_JOB);
+        schedulerService.sendDailyRefillReminders(job);
+        assertThat(notificationPipeline.awaitIdle(Duration.ofSeconds(10))).isTrue();
+        return job;
+    }
+}
@@ -4,7 +4,7 @@
 -- Use the medicine_refill_db database
 USE medicine_refill_db;
 
--- Create users table (will be created automatically by JPA, this is for reference)
+-- Create users table (created by Flyway migration V1, this is for reference)
 -- CREATE TABLE IF NOT EXISTS users (
 --     id BIGINT AUTO_INCREMENT PRIMARY KEY,
 --     name VARCHAR(50) NOT NULL,
@@ -15,7 +15,7 @@ USE medicine_refill_db;
 --     email_notifications_enabled BOOLEAN DEFAULT TRUE
 -- );
 
--- Create medicines table (will be created automatically by JPA, this is for reference)
+-- Create medicines table (created by Flyway migration V1, this is for reference)
 -- CREATE TABLE IF NOT EXISTS medicines (
 --     id BIGINT AUTO_INCREMENT PRIMARY KEY,
 --     medicine_name VARCHAR(255) NOT NULL,
@@ -53,12 +53,8 @@ USE medicine_refill_db;
 -- ('Omega-3 Fish Oil', 1, 30, '2024-12-01', 5, 2, TRUE, 5),
 -- ('Calcium Carbonate', 2, 100, '2024-11-10', 80, 2, TRUE, 15);
 
--- Create indexes for better performance
--- CREATE INDEX IF NOT EXISTS idx_medicines_user_id ON medicines(user_id);
--- CREATE INDEX IF NOT EXISTS idx_medicines_status ON medicines(status);
--- CREATE INDEX IF NOT EXISTS idx_medicines_refill_date ON medicines(refill_date);
--- CREATE INDEX IF NOT EXISTS idx_medicines_notifications ON medicines(notifications_enabled);
--- CREATE INDEX IF NOT EXISTS idx_users_email ON users(email);
+-- Tables and indexes are owned by the Flyway migrations in
+-- backend/src/main/resources/db/migration and are applied when the backend starts.
 
 -- Create view for medicines with calculated fields (optional)
 -- CREATE VIEW IF NOT EXISTS medicine_summary AS
@@ -81,8 +77,8 @@ USE medicine_refill_db;
 -- SET GLOBAL innodb_buffer_pool_size = 268435456; -- 256MB
 -- SET GLOBAL max_connections = 200;
 
--- Grant permissions to the medicine_user
-GRANT SELECT, INSERT, UPDATE, DELETE ON medicine_refill_db.* TO 'medicine_user'@'%';
+-- Grant permissions to the medicine_user (DDL privileges are needed by the Flyway migrations)
+GRANT SELECT, INSERT, UPDATE, DELETE, CREATE, ALTER, INDEX, REFERENCES ON medicine_refill_db.* TO 'medicine_user'@'%';
 FLUSH PRIVILEGES;
 
 -- Display completion message
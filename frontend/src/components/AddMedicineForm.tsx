@@ -1,5 +1,5 @@
-import React, { useState } from 'react';
-import { MedicineRequest } from '../types/index.ts';
+import React, { useEffect, useState } from 'react';
+import { CatalogSuggestion, MedicineRequest } from '../types/index.ts';
 import medicineService from '../services/medicineService.ts';
 
 interface Props {
@@ -16,6 +16,26 @@ const AddMedicineForm: React.FC<Props> = ({ onCreated }) => {
   const [notificationsEnabled, setNotificationsEnabled] = useState<boolean>(true);
   const [submitting, setSubmitting] = useState(false);
   const [error, setError] = useState<string | null>(null);
+  const [suggestions, setSuggestions] = useState<CatalogSuggestion[]>([]);
+
+  // Debounced autocomplete from the shared medicine catalog
+  useEffect(() => {
+    const query = medicineName.trim();
+    if (query.length < 2) {
+      setSuggestions([]);
+      return;
+    }
+    let cancelled = false;
+    const timer = setTimeout(() => {
+      medicineService.searchCatalog(query)
+        .then((result) => { if (!cancelled) setSuggestions(result); })
+        .catch(() => { if (!cancelled) setSuggestions([]); });
+    }, 200);
+    return () => {
+      cancelled = true;
+      clearTimeout(timer);
+    };
+  }, [medicineName]);
 
   const onSubmit = async (e: React.FormEvent) => {
     e.preventDefault();
@@ -67,7 +87,10 @@ const AddMedicineForm: React.FC<Props> = ({ onCreated }) => {
       <h3 style={{ marginTop: 0 }}>Add Medicine</h3>
       <div className="form-row">
         <label>Medicine name</label>
-        <input type="text" value={medicineName} onChange={(e) => setMedicineName(e.target.value)} required placeholder="e.g., Metformin 500mg" />
+        <input type="text" list="medicine-catalog-suggestions" autoComplete="off" value={medicineName} onChange={(e) => setMedicineName(e.target.value)} required placeholder="e.g., Metformin 500mg" />
+        <datalist id="medicine-catalog-suggestions">
+          {suggestions.map((s) => <option key={s.id} value={s.name} />)}
+        </datalist>
       </div>
       <div className="form-row">
         <label>Dosage per day</label>
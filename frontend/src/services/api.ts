@@ -4,6 +4,8 @@ import { mockApi } from './mockApi.ts';
 
 class ApiService {
   private api: AxiosInstance | null = null;
+  // Shared by requests that hit 401 together, so the refresh token is rotated once
+  private refreshing: Promise<string> | null = null;
   // Default to mock mode unless explicitly disabled
   private useMock = ((process.env.REACT_APP_USE_MOCK_API ?? 'true').toLowerCase() === 'true');
 
@@ -40,11 +42,23 @@ class ApiService {
       (response: AxiosResponse) => {
         return response;
       },
-      (error) => {
-        if (error.response?.status === 401) {
+      async (error) => {
+        const original = error.config;
+        if (error.response?.status === 401 && original && !original._retried && !original.url?.startsWith('/auth/')
+            && localStorage.getItem('refreshToken')) {
+          // Access tokens are short-lived: renew once and replay the request
+          original._retried = true;
+          try {
+            const token = await this.refreshAccessToken();
+            original.headers.Authorization = `Bearer ${token}`;
+            return (this.api as AxiosInstance).request(original);
+          } catch (refreshError) {
+            // Fall through to the sign-out below
+          }
+        }
+        if (error.response?.status === 401 && !original?.url?.startsWith('/auth/')) {
           // Token expired or invalid
-          localStorage.removeItem('authToken');
-          localStorage.removeItem('user');
+          this.removeAuthToken();
           window.location.href = '/login';
         }
         return Promise.reject(error);
@@ -52,12 +66,31 @@ class ApiService {
     );
   }
 
+  private refreshAccessToken(): Promise<string> {
+    if (!this.refreshing) {
+      const refreshToken = localStorage.getItem('refreshToken');
+      this.refreshing = (this.api as AxiosInstance)
+        .post<AuthResponse>('/auth/refresh', { refreshToken })
+        .then((response) => {
+          this.setAuthToken(response.data.accessToken, response.data.refreshToken);
+          return response.data.accessToken;
+        })
+        .finally(() => {
+          this.refreshing = null;
+        });
+    }
+    return this.refreshing;
+  }
+
   // Generic request methods
   async get<T>(url: string): Promise<T> {
     if (this.useMock) {
       if (url === '/auth/me') return (await mockApi.me()) as unknown as T;
       if (url === '/medicines') return (await mockApi.getMedicines()) as unknown as T;
       if (url === '/medicines/dashboard-summary') return (await mockApi.getSummary()) as unknown as T;
+      if (url.startsWith('/medicine-catalog/search')) {
+        return (await mockApi.searchCatalog(new URLSearchParams(url.split('?')[1]).get('q') || '')) as unknown as T;
+      }
       throw { error: `Mock GET not implemented for ${url}` };
     }
     try {
@@ -68,7 +101,7 @@ class ApiService {
     }
   }
 
-  async post<T>(url: string, data?: any): Promise<T> {
+  async post<T>(url: string, data?: any, headers?: Record<string, string>): Promise<T> {
     if (this.useMock) {
       if (url === '/auth/signin') return (await mockApi.signin(data)) as unknown as T;
       if (url === '/auth/signup') return (await mockApi.signup(data)) as unknown as T;
@@ -87,14 +120,14 @@ class ApiService {
       throw { error: `Mock POST not implemented for ${url}` };
     }
     try {
-      const response = await (this.api as AxiosInstance).post<T>(url, data);
+      const response = await (this.api as AxiosInstance).post<T>(url, data, { headers });
       return response.data;
     } catch (error: any) {
       throw this.handleError(error);
     }
   }
 
-  async put<T>(url: string, data?: any): Promise<T> {
+  async put<T>(url: string, data?: any, headers?: Record<string, string>): Promise<T> {
     if (this.useMock) {
       if (url.startsWith('/medicines/')) {
         const id = Number(url.split('/')[2]);
@@ -103,7 +136,7 @@ class ApiService {
       throw { error: `Mock PUT not implemented for ${url}` };
     }
     try {
-      const response = await (this.api as AxiosInstance).put<T>(url, data);
+      const response = await (this.api as AxiosInstance).put<T>(url, data, { headers });
       return response.data;
     } catch (error: any) {
       throw this.handleError(error);
@@ -150,15 +183,23 @@ class ApiService {
   }
 
   // Auth methods
-  setAuthToken(token: string) {
+  setAuthToken(token: string, refreshToken?: string) {
     localStorage.setItem('authToken', token);
+    if (refreshToken) {
+      localStorage.setItem('refreshToken', refreshToken);
+    }
   }
 
   removeAuthToken() {
     localStorage.removeItem('authToken');
+    localStorage.removeItem('refreshToken');
     localStorage.removeItem('user');
   }
 
+  getRefreshToken(): string | null {
+    return localStorage.getItem('refreshToken');
+  }
+
   getAuthToken(): string | null {
     return localStorage.getItem('authToken');
   }
@@ -7,7 +7,7 @@ class AuthService {
     try {
       const response = await apiService.post<AuthResponse>('/auth/signin', credentials);
       // Store auth token and user data
-      apiService.setAuthToken(response.accessToken);
+      apiService.setAuthToken(response.accessToken, response.refreshToken);
       localStorage.setItem('user', JSON.stringify(response.user));
       return response;
     } catch (error) {
@@ -26,7 +26,7 @@ class AuthService {
     const response = await apiService.post<AuthResponse>('/auth/signup', userData);
     
     // Store auth token and user data
-    apiService.setAuthToken(response.accessToken);
+    apiService.setAuthToken(response.accessToken, response.refreshToken);
     localStorage.setItem('user', JSON.stringify(response.user));
     
     return response;
@@ -34,7 +34,9 @@ class AuthService {
 
   async logout(): Promise<void> {
     try {
-      await apiService.post('/auth/logout');
+      // Revokes the access token and the refresh token's whole rotation chain
+      const refreshToken = apiService.getRefreshToken();
+      await apiService.post('/auth/logout', refreshToken ? { refreshToken } : undefined);
     } catch (error) {
       // Even if logout request fails, clear local storage
       console.warn('Logout request failed, but clearing local storage');
@@ -1,5 +1,15 @@
 import apiService from './api.ts';
-import { Medicine, MedicineRequest, MedicineStatus, DashboardSummary } from '../types/index.ts';
+import {
+  Medicine, MedicineRequest, MedicineStatus, DashboardSummary, CatalogSuggestion, MedicineChanges, DoseEvent,
+  DoseEventResults, MedicineHistory,
+} from '../types/index.ts';
+
+// Lets the backend deduplicate a write that is retried after a lost response
+const idempotencyHeaders = (): Record<string, string> => ({
+  'Idempotency-Key': typeof crypto !== 'undefined' && typeof crypto.randomUUID === 'function'
+    ? crypto.randomUUID()
+    : `${Date.now()}-${Math.random().toString(36).slice(2)}`,
+});
 
 class MedicineService {
   async getAllMedicines(): Promise<Medicine[]> {
@@ -11,11 +21,11 @@ class MedicineService {
   }
 
   async createMedicine(medicine: MedicineRequest): Promise<Medicine> {
-    return await apiService.post<Medicine>('/medicines', medicine);
+    return await apiService.post<Medicine>('/medicines', medicine, idempotencyHeaders());
   }
 
   async updateMedicine(id: number, medicine: MedicineRequest): Promise<Medicine> {
-    return await apiService.put<Medicine>(`/medicines/${id}`, medicine);
+    return await apiService.put<Medicine>(`/medicines/${id}`, medicine, idempotencyHeaders());
   }
 
   async deleteMedicine(id: number): Promise<{ message: string }> {
@@ -23,11 +33,11 @@ class MedicineService {
   }
 
   async takeDose(id: number): Promise<Medicine> {
-    return await apiService.post<Medicine>(`/medicines/${id}/take-dose`);
+    return await apiService.post<Medicine>(`/medicines/${id}/take-dose`, undefined, idempotencyHeaders());
   }
 
   async refillMedicine(id: number, quantity: number): Promise<Medicine> {
-    return await apiService.post<Medicine>(`/medicines/${id}/refill?quantity=${quantity}`);
+    return await apiService.post<Medicine>(`/medicines/${id}/refill?quantity=${quantity}`, undefined, idempotencyHeaders());
   }
 
   async getMedicinesByStatus(status: MedicineStatus): Promise<Medicine[]> {
@@ -38,6 +48,25 @@ class MedicineService {
     return await apiService.get<DashboardSummary>('/medicines/dashboard-summary');
   }
 
+  // Changes since the token of the previous call; omit it on first sync
+  async getChanges(since?: string, limit = 200): Promise<MedicineChanges> {
+    const query = since ? `since=${encodeURIComponent(since)}&limit=${limit}` : `limit=${limit}`;
+    return await apiService.get<MedicineChanges>(`/medicines/changes?${query}`);
+  }
+
+  // Archived medicines; refillMedicine on one of them restores it
+  async getHistory(page = 0, size = 50): Promise<MedicineHistory> {
+    return await apiService.get<MedicineHistory>(`/medicines/history?page=${page}&size=${size}`);
+  }
+
+  async uploadDoseEvents(events: DoseEvent[]): Promise<DoseEventResults> {
+    return await apiService.post<DoseEventResults>('/medicines/dose-events', { events });
+  }
+
+  async searchCatalog(query: string, limit = 10): Promise<CatalogSuggestion[]> {
+    return await apiService.get<CatalogSuggestion[]>(`/medicine-catalog/search?q=${encodeURIComponent(query)}&limit=${limit}`);
+  }
+
   // Utility methods for frontend logic
   getStatusColor(status: MedicineStatus): string {
     switch (status) {
@@ -65,8 +94,10 @@ class MedicineService {
     }
   }
 
-  formatDaysLeft(daysLeft: number): string {
-    if (daysLeft === 0) {
+  formatDaysLeft(daysLeft: number | null): string {
+    if (daysLeft === null) {
+      return 'Outlasts schedule';
+    } else if (daysLeft === 0) {
       return 'Today';
     } else if (daysLeft === 1) {
       return '1 day';
@@ -94,8 +125,8 @@ class MedicineService {
       const statusDiff = statusPriority[b.status] - statusPriority[a.status];
       if (statusDiff !== 0) return statusDiff;
 
-      // Then sort by days left (ascending)
-      return a.daysLeft - b.daysLeft;
+      // Then sort by days left (ascending), medicines that never run out last
+      return (a.daysLeft ?? Number.MAX_SAFE_INTEGER) - (b.daysLeft ?? Number.MAX_SAFE_INTEGER);
     });
   }
 }
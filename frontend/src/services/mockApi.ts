@@ -1,5 +1,5 @@
 /* Mock API mode for running frontend without backend */
-import { AuthResponse, DashboardSummary, Medicine, MedicineStatus, User } from '../types/index.ts';
+import { AuthResponse, CatalogSuggestion, DashboardSummary, Medicine, MedicineStatus, User } from '../types/index.ts';
 
 const delay = (ms: number) => new Promise((res) => setTimeout(res, ms));
 
@@ -164,6 +164,18 @@ export const mockApi = {
     if (!token) throw { error: 'Unauthorized' };
     return computeSummary();
   },
+  async searchCatalog(query: string): Promise<CatalogSuggestion[]> {
+    await delay(100);
+    const prefix = query.trim().toLowerCase();
+    if (!prefix) return [];
+    const seen = new Set<string>();
+    return Object.values(userMedicines)
+      .flat()
+      .filter((m) => m.medicineName.toLowerCase().startsWith(prefix))
+      .filter((m) => !seen.has(m.medicineName.toLowerCase()) && !!seen.add(m.medicineName.toLowerCase()))
+      .slice(0, 10)
+      .map((m) => ({ id: m.id, name: m.medicineName, refillUrl: m.refillUrl }));
+  },
   async takeDose(id: number): Promise<Medicine> {
     await delay(200);
     const list = getList();
@@ -171,7 +183,7 @@ export const mockApi = {
     if (!m) throw { error: 'Not found' };
     if (m.currentQuantity > 0) m.currentQuantity -= 1;
     m.remainingDoses = Math.max(0, m.remainingDoses - 1);
-    m.daysLeft = Math.max(0, m.daysLeft - 1);
+    if (m.daysLeft !== null) m.daysLeft = Math.max(0, m.daysLeft - 1);
     m.status = m.currentQuantity === 0 ? MedicineStatus.REFILL_NEEDED : m.currentQuantity <= (m.lowStockThreshold || 10) ? MedicineStatus.LOW : MedicineStatus.OK;
     m.updatedAt = new Date().toISOString();
     setList(list);
@@ -185,7 +197,7 @@ export const mockApi = {
     m.currentQuantity += qty;
     m.totalQuantity += qty;
     m.remainingDoses += qty;
-    m.daysLeft += Math.ceil(qty / m.dosagePerDay);
+    if (m.daysLeft !== null) m.daysLeft += Math.ceil(qty / m.dosagePerDay);
     m.status = m.currentQuantity <= (m.lowStockThreshold || 10) ? MedicineStatus.LOW : MedicineStatus.OK;
     m.updatedAt = new Date().toISOString();
     setList(list);
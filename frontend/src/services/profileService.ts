@@ -0,0 +1,43 @@
+import apiService from './api.ts';
+import { HouseholdProfile, ProfileRequest, HouseholdDashboard, Medicine } from '../types/index.ts';
+import { Profile } from '../components/FamilySwitcher.tsx';
+
+class ProfileService {
+  async getProfiles(): Promise<HouseholdProfile[]> {
+    return await apiService.get<HouseholdProfile[]>('/profiles');
+  }
+
+  async createProfile(profile: ProfileRequest): Promise<HouseholdProfile> {
+    return await apiService.post<HouseholdProfile>('/profiles', profile);
+  }
+
+  async updateProfile(id: number, profile: ProfileRequest): Promise<HouseholdProfile> {
+    return await apiService.put<HouseholdProfile>(`/profiles/${id}`, profile);
+  }
+
+  async deleteProfile(id: number): Promise<{ message: string }> {
+    return await apiService.delete<{ message: string }>(`/profiles/${id}`);
+  }
+
+  // Counts for every profile in one request
+  async getHouseholdDashboard(): Promise<HouseholdDashboard> {
+    return await apiService.get<HouseholdDashboard>('/profiles/dashboard');
+  }
+
+  async getMedicines(profileId: number): Promise<Medicine[]> {
+    return await apiService.get<Medicine[]>(`/medicines?profileId=${profileId}`);
+  }
+
+  // Shape expected by FamilySwitcher
+  toSwitcherProfile(profile: HouseholdProfile): Profile {
+    return {
+      id: String(profile.id),
+      name: profile.name,
+      color: profile.color,
+      shape: profile.shape,
+      avatarEmoji: profile.avatarEmoji ?? undefined,
+    };
+  }
+}
+
+export default new ProfileService();
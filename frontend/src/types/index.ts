@@ -10,16 +10,26 @@ export interface Medicine {
   dosagePerDay: number;
   totalQuantity: number;
   startDate: string;
-  refillDate: string;
+  refillDate: string | null; // null when the schedule tapers off before the supply runs out
   currentQuantity: number;
   notificationsEnabled: boolean;
   lowStockThreshold: number;
   status: MedicineStatus;
   createdAt: string;
   updatedAt: string;
-  daysLeft: number;
+  daysLeft: number | null; // null together with refillDate
   remainingDoses: number;
   refillUrl: string;
+  schedule?: DosingSchedule | null;
+  profileId?: number | null;
+}
+
+export interface DosingSchedule {
+  dosePattern?: number[];
+  weekdays?: string[];
+  taperStep?: number;
+  taperEveryDays?: number;
+  taperFloor?: number;
 }
 
 export enum MedicineStatus {
@@ -36,6 +46,8 @@ export interface MedicineRequest {
   currentQuantity?: number;
   notificationsEnabled?: boolean;
   lowStockThreshold?: number;
+  schedule?: DosingSchedule | null;
+  profileId?: number; // defaults to the account holder's profile on create
 }
 
 export interface LoginRequest {
@@ -52,9 +64,17 @@ export interface SignUpRequest {
 export interface AuthResponse {
   accessToken: string;
   tokenType: string;
+  expiresIn?: number; // seconds
+  refreshToken?: string;
   user: User;
 }
 
+export interface CatalogSuggestion {
+  id: number;
+  name: string;
+  refillUrl: string;
+}
+
 export interface DashboardSummary {
   totalMedicines: number;
   refillNeeded: number;
@@ -63,6 +83,82 @@ export interface DashboardSummary {
   recentMedicines: Medicine[];
 }
 
+export interface MedicineChanges {
+  changes: Medicine[];
+  deleted: { id: number; profileId: number | null; deletedAt: string }[];
+  token: string;
+  hasMore: boolean;
+  reset: boolean; // the list is complete and replaces the local copy
+}
+
+export interface ArchivedMedicine {
+  id: number;
+  profileId: number | null;
+  medicineName: string;
+  dosagePerDay: number;
+  totalQuantity: number;
+  startDate: string;
+  refillDate: string | null;
+  currentQuantity: number | null;
+  status: MedicineStatus;
+  createdAt: string;
+  updatedAt: string;
+  archivedAt: string;
+  refillUrl: string;
+}
+
+export interface MedicineHistory {
+  medicines: ArchivedMedicine[];
+  page: number;
+  size: number;
+  hasMore: boolean;
+}
+
+export interface DoseEvent {
+  eventId: string;
+  medicineId: number;
+  takenAt?: string;
+}
+
+export interface DoseEventResults {
+  results: { eventId: string; status: 'applied' | 'duplicate' | 'out_of_stock' | 'not_found' }[];
+  medicines: Medicine[];
+}
+
+export type ProfileShape = 'circle' | 'square' | 'hex';
+
+export interface HouseholdProfile {
+  id: number;
+  name: string;
+  color: string;
+  shape: ProfileShape;
+  avatarEmoji: string | null;
+  defaultProfile: boolean;
+}
+
+export interface ProfileRequest {
+  name: string;
+  color?: string;
+  shape?: ProfileShape;
+  avatarEmoji?: string;
+}
+
+export interface ProfileSummary extends HouseholdProfile {
+  totalMedicines: number;
+  ok: number;
+  lowStock: number;
+  refillNeeded: number;
+  nextRefillDate: string | null;
+}
+
+export interface HouseholdDashboard {
+  profiles: ProfileSummary[];
+  totalMedicines: number;
+  ok: number;
+  lowStock: number;
+  refillNeeded: number;
+}
+
 export interface ApiError {
   error: string;
   message?: string;